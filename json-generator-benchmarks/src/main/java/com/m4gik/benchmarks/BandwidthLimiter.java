@@ -0,0 +1,68 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.InterruptedIOException;
+
+/**
+ * This class limits amount of bytes per second shared by all transfers, like
+ * single WAN link. Each transfer reserves time for its bytes and waits until
+ * the link would be free.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class BandwidthLimiter {
+
+    /**
+     * The time in nanoseconds, when link is free again.
+     */
+    private long freeAt = 0;
+
+    /**
+     * The limit of bytes per second, zero for no limit.
+     */
+    private final Long rate;
+
+    /**
+     * The constructor for {@link BandwidthLimiter}.
+     * 
+     * @param rate
+     *            The limit of bytes per second, zero for no limit.
+     */
+    public BandwidthLimiter(Long rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * This method waits until given amount of bytes may be sent.
+     * 
+     * @param bytes
+     *            The amount of bytes.
+     * @throws InterruptedIOException
+     *             If thread is interrupted while waiting.
+     */
+    public void acquire(Integer bytes) throws InterruptedIOException {
+        if (rate <= 0) {
+            return;
+        }
+
+        long wait = 0;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            freeAt = Math.max(freeAt, now) + bytes * 1000000000L / rate;
+            wait = freeAt - now;
+        }
+
+        try {
+            Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs benchmarks with GC profiler, so each result reports
+ * allocation rate next to throughput. The JMH command line options are
+ * accepted, e.g. regular expression of benchmarks to run, or -rf json -rff
+ * result.json to store results for comparison.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class BenchmarkRunner {
+
+    /**
+     * The main method to run benchmarks.
+     * 
+     * @param args
+     *            The JMH command line options.
+     * @throws CommandLineOptionException
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws CommandLineOptionException,
+            RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class).build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ftpserver.ftplet.FtpException;
+
+import com.m4gik.Main;
+
+/**
+ * This class creates class data sharing archive of generator by training run
+ * against FTP server embedded in this process, which serves synthetic tree of
+ * tagged MP3 files. The first run of generator builds library on server, then
+ * one new file is added and the second run, which updates library like usual
+ * scheduled run, writes archive of loaded classes at exit. Options are given
+ * as name=value arguments:
+ * <ul>
+ * <li>jar - the jar of generator, its absolute path must be the same as when
+ * archive is used,</li>
+ * <li>archive - the class data sharing archive to create,</li>
+ * <li>files - amount of files in each directory of tree.</li>
+ * </ul>
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class ClassDataTraining {
+
+    /**
+     * The name and password of user of embedded server.
+     */
+    private final static String USER = "training";
+
+    /**
+     * The main method to run training.
+     * 
+     * @param args
+     *            The options as name=value.
+     * @throws FtpException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws FtpException, IOException,
+            InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+
+        for (String arg : args) {
+            Integer separator = arg.indexOf('=');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value, got "
+                        + arg);
+            }
+
+            options.put(arg.substring(0, separator),
+                    arg.substring(separator + 1));
+        }
+
+        if (!options.containsKey("jar") || !options.containsKey("archive")) {
+            throw new IllegalArgumentException("Expected jar and archive");
+        }
+
+        String classPath = StartupBenchmark.toAbsolute(options.get("jar"));
+        File archive = new File(options.get("archive")).getAbsoluteFile();
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        corpus.setDepth(2);
+        corpus.setFanOut(2);
+        corpus.setFilesPerDirectory(Integer.valueOf(options
+                .containsKey("files") ? options.get("files") : "5"));
+        File root = File.createTempFile("audio-search-corpus", "");
+        root.delete();
+        corpus.generate(root);
+        File work = File.createTempFile("audio-search-work", "");
+        work.delete();
+        work.mkdirs();
+        EmbeddedFTPServer server = new EmbeddedFTPServer(root, USER, USER, 0L,
+                0L);
+
+        try {
+            server.start();
+            run(classPath, new ArrayList<String>(), server, work);
+            FileUtils.writeByteArrayToFile(new File(root, "new.mp3"),
+                    SyntheticFixtures.createMP3("New", "Artist", "Album",
+                            "2026", 0, 0, 100, false));
+            archive.delete();
+            List<String> dump = new ArrayList<String>();
+            dump.add("-XX:ArchiveClassesAtExit=" + archive.getPath());
+            run(classPath, dump, server, work);
+        } finally {
+            server.stop();
+            FileUtils.deleteQuietly(root);
+            FileUtils.deleteQuietly(work);
+        }
+
+        if (!archive.isFile()) {
+            throw new IllegalStateException("Archive " + archive
+                    + " was not created");
+        }
+
+        System.out.println("Archive " + archive + ", " + archive.length()
+                + " bytes");
+    }
+
+    /**
+     * This method starts generator as new process against embedded server
+     * and waits until it exits.
+     * 
+     * @param classPath
+     *            The class path of generator.
+     * @param jvmOptions
+     *            The options of JVM.
+     * @param server
+     *            The embedded server.
+     * @param work
+     *            The working directory of generator.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static void run(String classPath, List<String> jvmOptions,
+            EmbeddedFTPServer server, File work) throws IOException,
+            InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java")
+                .getPath());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(Main.class.getName());
+        command.add(server.getAddress());
+        command.add(USER);
+        command.add(USER);
+        command.add("/");
+
+        Process process = new ProcessBuilder(command).directory(work)
+                .inheritIO().start();
+
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Generator exited with "
+                    + process.exitValue());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ftpserver.ftplet.DefaultFtplet;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpRequest;
+import org.apache.ftpserver.ftplet.FtpSession;
+import org.apache.ftpserver.ftplet.FtpletResult;
+
+/**
+ * This class counts FTP commands received by server and delays each command,
+ * to model round trip time of slow link.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class CommandCounter extends DefaultFtplet {
+
+    /**
+     * The amounts of received commands, indexed by command.
+     */
+    private final ConcurrentMap<String, AtomicInteger> counts = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * The delay of each command in milliseconds.
+     */
+    private final Long latency;
+
+    /**
+     * The constructor for {@link CommandCounter}.
+     * 
+     * @param latency
+     *            The delay of each command in milliseconds.
+     */
+    public CommandCounter(Long latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * This method counts and delays command.
+     * 
+     * @see org.apache.ftpserver.ftplet.DefaultFtplet#beforeCommand(org.apache.ftpserver.ftplet.FtpSession,
+     *      org.apache.ftpserver.ftplet.FtpRequest)
+     */
+    @Override
+    public FtpletResult beforeCommand(FtpSession session, FtpRequest request)
+            throws FtpException, IOException {
+        String command = request.getCommand().toUpperCase();
+        AtomicInteger count = counts.get(command);
+
+        if (count == null) {
+            counts.putIfAbsent(command, new AtomicInteger(0));
+            count = counts.get(command);
+        }
+
+        count.incrementAndGet();
+
+        if (latency > 0) {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return super.beforeCommand(session, request);
+    }
+
+    /**
+     * This method gets amount of given command.
+     * 
+     * @param command
+     * @return The amount of received commands.
+     */
+    public Integer getCount(String command) {
+        AtomicInteger count = counts.get(command);
+
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return The amounts of all received commands, sorted by command.
+     */
+    public Map<String, Integer> getCounts() {
+        Map<String, Integer> sorted = new TreeMap<String, Integer>();
+
+        for (Map.Entry<String, AtomicInteger> count : counts.entrySet()) {
+            sorted.put(count.getKey(), count.getValue().get());
+        }
+
+        return sorted;
+    }
+
+    /**
+     * This method clears all amounts.
+     */
+    public void reset() {
+        counts.clear();
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ftpserver.ftplet.FtpException;
+
+import com.m4gik.core.FTPConnection;
+import com.m4gik.core.FTPConnectionPool;
+
+/**
+ * This class measures whole crawl of {@link FTPConnection} against embedded FTP
+ * server with synthetic corpus. The corpus is crawled several times, the first
+ * run builds library from scratch and next runs show cost of incremental
+ * rescan. Options are given as name=value arguments:
+ * <ul>
+ * <li>depth, fanOut, files - shape of tree, files are per leaf directory,</li>
+ * <li>frames, picture, padding - audio frames per file, size of attached
+ * picture and padding of tag in bytes,</li>
+ * <li>latency - delay of each FTP command in milliseconds,</li>
+ * <li>rate - limit of transferred bytes per second, 0 for no limit,</li>
+ * <li>connections, headerOnly, adaptive - options of crawler,</li>
+ * <li>executor - workers of crawler, pool for fixed pool of threads, virtual
+ * for virtual thread per file, or both to crawl with each of them in every
+ * run,</li>
+ * <li>runs - amount of crawls.</li>
+ * </ul>
+ * Peak amount of live platform threads is reported with wall time, to compare
+ * memory needed by workers waiting on high latency link.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class CrawlBenchmark {
+
+    /**
+     * The executors of workers selected by executor option.
+     */
+    private final static Map<String, Boolean[]> EXECUTORS = new HashMap<String, Boolean[]>();
+
+    static {
+        EXECUTORS.put("pool", new Boolean[] { false });
+        EXECUTORS.put("virtual", new Boolean[] { true });
+        EXECUTORS.put("both", new Boolean[] { false, true });
+    }
+
+    /**
+     * The name and password of user.
+     */
+    private final static String USER = "benchmark";
+
+    /**
+     * The commands shown in report, other commands are summed.
+     */
+    private final static String[] REPORTED_COMMANDS = { "LIST", "MLSD",
+            "MLST", "RETR", "REST", "STOR", "RNTO", "DELE" };
+
+    /**
+     * This method gets option from arguments.
+     * 
+     * @param options
+     * @param name
+     * @param defaultValue
+     * @return The value of option, or default value if it is not given.
+     */
+    private static Long getOption(Map<String, String> options, String name,
+            Long defaultValue) {
+        String value = options.get(name);
+
+        return value == null ? defaultValue : Long.valueOf(value);
+    }
+
+    /**
+     * The main method to run benchmark.
+     * 
+     * @param args
+     *            The options as name=value.
+     * @throws IOException
+     * @throws FtpException
+     */
+    public static void main(String[] args) throws IOException, FtpException {
+        Map<String, String> options = new HashMap<String, String>();
+
+        for (String arg : args) {
+            Integer separator = arg.indexOf('=');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value, got "
+                        + arg);
+            }
+
+            options.put(arg.substring(0, separator),
+                    arg.substring(separator + 1));
+        }
+
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        corpus.setDepth(getOption(options, "depth", 2L).intValue());
+        corpus.setFanOut(getOption(options, "fanOut", 4L).intValue());
+        corpus.setFilesPerDirectory(getOption(options, "files", 10L)
+                .intValue());
+        corpus.setFrames(getOption(options, "frames", 2000L).intValue());
+        corpus.setPictureSize(getOption(options, "picture", 0L).intValue());
+        corpus.setPaddingSize(getOption(options, "padding", 1024L).intValue());
+
+        File root = File.createTempFile("audio-search-corpus", "");
+        root.delete();
+        corpus.generate(root);
+        System.out.println("Corpus: " + corpus.getGeneratedFiles()
+                + " files, " + corpus.getGeneratedBytes() + " bytes in "
+                + root);
+
+        EmbeddedFTPServer server = new EmbeddedFTPServer(root, USER, USER,
+                getOption(options, "latency", 0L), getOption(options, "rate",
+                        0L));
+
+        try {
+            server.start();
+            Integer connections = getOption(options, "connections", 4L)
+                    .intValue();
+            FTPConnectionPool.setHostLimit(server.getAddress(), connections);
+            Long runs = getOption(options, "runs", 2L);
+            String executor = options.containsKey("executor") ? options
+                    .get("executor") : "pool";
+
+            if (!EXECUTORS.containsKey(executor)) {
+                throw new IllegalArgumentException("Unknown executor "
+                        + executor);
+            }
+
+            for (Integer run = 1; run <= runs; run++) {
+                for (Boolean virtualThreads : EXECUTORS.get(executor)) {
+                    server.getCommandCounter().reset();
+                    server.getFileSystem().reset();
+                    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+                    threads.resetPeakThreadCount();
+                    long start = System.nanoTime();
+
+                    FTPConnection connection = new FTPConnection(
+                            server.getAddress(), USER, USER, true, 10000L, "/");
+                    connection.setConnections(connections);
+                    connection.setHeaderOnly(getOption(options,
+                            "headerOnly", 1L) != 0L);
+                    connection.setAdaptive(getOption(options, "adaptive",
+                            1L) != 0L);
+                    connection.setVirtualThreads(virtualThreads);
+                    connection.retrieveFiles("/");
+                    connection.disconnect();
+
+                    report(run, virtualThreads ? "virtual" : "pool",
+                            (System.nanoTime() - start) / 1000000L,
+                            threads.getPeakThreadCount(), server);
+                }
+            }
+        } finally {
+            server.stop();
+            FileUtils.deleteQuietly(root);
+        }
+    }
+
+    /**
+     * This method prints results of single run.
+     * 
+     * @param run
+     *            The number of run.
+     * @param executor
+     *            The name of executor of workers.
+     * @param time
+     *            The wall time in milliseconds.
+     * @param peakThreads
+     *            The peak amount of live platform threads.
+     * @param server
+     *            The server with counters.
+     */
+    private static void report(Integer run, String executor, Long time,
+            Integer peakThreads, EmbeddedFTPServer server) {
+        StringBuilder line = new StringBuilder();
+        line.append("\nRun ").append(run).append(" (").append(executor)
+                .append("): ").append(time).append(" ms, peak threads ")
+                .append(peakThreads);
+        Map<String, Integer> counts = server.getCommandCounter().getCounts();
+        Integer others = 0;
+
+        for (Integer count : counts.values()) {
+            others += count;
+        }
+
+        for (String command : REPORTED_COMMANDS) {
+            Integer count = server.getCommandCounter().getCount(command);
+            line.append(", ").append(command).append(" ").append(count);
+            others -= count;
+        }
+
+        line.append(", other commands ").append(others);
+        line.append(", downloaded ")
+                .append(server.getFileSystem().getBytesDownloaded())
+                .append(" bytes, uploaded ")
+                .append(server.getFileSystem().getBytesUploaded())
+                .append(" bytes");
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ftpserver.ConnectionConfigFactory;
+import org.apache.ftpserver.FtpServer;
+import org.apache.ftpserver.FtpServerFactory;
+import org.apache.ftpserver.ftplet.Authority;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.Ftplet;
+import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.impl.DefaultFtpServer;
+import org.apache.ftpserver.listener.ListenerFactory;
+import org.apache.ftpserver.usermanager.PropertiesUserManagerFactory;
+import org.apache.ftpserver.usermanager.impl.BaseUser;
+import org.apache.ftpserver.usermanager.impl.ConcurrentLoginPermission;
+import org.apache.ftpserver.usermanager.impl.WritePermission;
+
+/**
+ * This class runs FTP server in the same process, on loopback address and free
+ * port. The single user has write access to given directory. The commands are
+ * counted and delayed by {@link CommandCounter}, and transfers are counted and
+ * limited by {@link ThrottledFileSystemFactory}.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class EmbeddedFTPServer {
+
+    /**
+     * The address of server.
+     */
+    public final static String HOST = "127.0.0.1";
+
+    /**
+     * The name of listener.
+     */
+    private final static String LISTENER = "default";
+
+    /**
+     * The maximum amount of logged connections.
+     */
+    private final static Integer MAX_LOGINS = 128;
+
+    /**
+     * The counter of commands.
+     */
+    private final CommandCounter commandCounter;
+
+    /**
+     * The file system with counted transfers.
+     */
+    private final ThrottledFileSystemFactory fileSystem;
+
+    /**
+     * The password of user.
+     */
+    private final String password;
+
+    /**
+     * The port of server, known after start.
+     */
+    private Integer port = 0;
+
+    /**
+     * The root directory of server.
+     */
+    private final File root;
+
+    /**
+     * The running server.
+     */
+    private FtpServer server = null;
+
+    /**
+     * The name of user.
+     */
+    private final String username;
+
+    /**
+     * The constructor for {@link EmbeddedFTPServer}.
+     * 
+     * @param root
+     *            The root directory of server.
+     * @param username
+     * @param password
+     * @param latency
+     *            The delay of each command in milliseconds.
+     * @param rate
+     *            The limit of transferred bytes per second, zero for no limit.
+     */
+    public EmbeddedFTPServer(File root, String username, String password,
+            Long latency, Long rate) {
+        this.root = root;
+        this.username = username;
+        this.password = password;
+        this.commandCounter = new CommandCounter(latency);
+        this.fileSystem = new ThrottledFileSystemFactory(rate);
+    }
+
+    /**
+     * @return The address of server with port, as accepted by FTP connection.
+     */
+    public String getAddress() {
+        return HOST + ":" + port;
+    }
+
+    /**
+     * @return the commandCounter
+     */
+    public CommandCounter getCommandCounter() {
+        return commandCounter;
+    }
+
+    /**
+     * @return the fileSystem
+     */
+    public ThrottledFileSystemFactory getFileSystem() {
+        return fileSystem;
+    }
+
+    /**
+     * This method starts server.
+     * 
+     * @throws FtpException
+     *             If server cannot be started.
+     */
+    public void start() throws FtpException {
+        FtpServerFactory serverFactory = new FtpServerFactory();
+        ListenerFactory listenerFactory = new ListenerFactory();
+        listenerFactory.setServerAddress(HOST);
+        listenerFactory.setPort(0);
+        serverFactory.addListener(LISTENER, listenerFactory.createListener());
+
+        ConnectionConfigFactory connections = new ConnectionConfigFactory();
+        connections.setMaxLogins(MAX_LOGINS);
+        connections.setMaxThreads(MAX_LOGINS);
+        serverFactory.setConnectionConfig(connections
+                .createConnectionConfig());
+
+        BaseUser user = new BaseUser();
+        user.setName(username);
+        user.setPassword(password);
+        user.setHomeDirectory(root.getAbsolutePath());
+        List<Authority> authorities = new ArrayList<Authority>();
+        authorities.add(new WritePermission());
+        authorities.add(new ConcurrentLoginPermission(MAX_LOGINS, MAX_LOGINS));
+        user.setAuthorities(authorities);
+        UserManager userManager = new PropertiesUserManagerFactory()
+                .createUserManager();
+        userManager.save(user);
+        serverFactory.setUserManager(userManager);
+        serverFactory.setFileSystem(fileSystem);
+        // Server clears its ftplets, when it is stopped.
+        Map<String, Ftplet> ftplets = new HashMap<String, Ftplet>();
+        ftplets.put("counter", commandCounter);
+        serverFactory.setFtplets(ftplets);
+
+        server = serverFactory.createServer();
+        server.start();
+        port = ((DefaultFtpServer) server).getListener(LISTENER).getPort();
+    }
+
+    /**
+     * This method stops server.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+
+/**
+ * This class measures operations on library, which cost may grow with size of
+ * library.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LibraryBenchmark {
+
+    /**
+     * The serialized library.
+     */
+    private byte[] bytes;
+
+    /**
+     * The key of entry in library.
+     */
+    private String existingKey;
+
+    /**
+     * The library with synthetic entries.
+     */
+    private Library library;
+
+    /**
+     * The key of entry, which is not in library.
+     */
+    private String missingKey;
+
+    /**
+     * The amount of entries in library.
+     */
+    @Param({ "1000", "10000", "100000" })
+    public Integer size;
+
+    /**
+     * This method benchmarks lookup of key, which is in library.
+     * 
+     * @return True if key exists.
+     */
+    @Benchmark
+    public Boolean checkExistingKey() {
+        return JSONBuilder.checkExistingKey(library, existingKey);
+    }
+
+    /**
+     * This method benchmarks lookup of key, which is not in library.
+     * 
+     * @return True if key exists.
+     */
+    @Benchmark
+    public Boolean checkMissingKey() {
+        return JSONBuilder.checkExistingKey(library, missingKey);
+    }
+
+    /**
+     * This method benchmarks reading of serialized library.
+     * 
+     * @return The read library.
+     * @throws IOException
+     */
+    @Benchmark
+    public Library readLibrary() throws IOException {
+        return Library.readFrom(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * This method creates library.
+     * 
+     * @throws IOException
+     */
+    @Setup
+    public void setUp() throws IOException {
+        library = SyntheticFixtures.createLibrary(size);
+        existingKey = SyntheticFixtures.getKey(size / 2);
+        missingKey = SyntheticFixtures.getKey(size);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        library.writeTo(outputStream);
+        bytes = outputStream.toByteArray();
+    }
+
+    /**
+     * This method benchmarks {@link JSONBuilder#updateJsonHeader(Library)}.
+     * 
+     * @return The updated library.
+     */
+    @Benchmark
+    public Library updateJsonHeader() {
+        return JSONBuilder.updateJsonHeader(library);
+    }
+
+    /**
+     * This method benchmarks writing of library.
+     * 
+     * @throws IOException
+     */
+    @Benchmark
+    public void writeLibrary() throws IOException {
+        library.writeTo(NullOutputStream.NULL_OUTPUT_STREAM);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.m4gik.util.AudioData;
+import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class measures cost of reading information about single file and
+ * storing it in library.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MP3FileInformationBenchmark {
+
+    /**
+     * The content of file.
+     */
+    private AudioData data;
+
+    /**
+     * The kind of fixture: constant bit rate, variable bit rate with Xing
+     * header, or constant bit rate with large attached picture.
+     */
+    @Param({ "cbr", "vbr", "picture" })
+    public String fixture;
+
+    /**
+     * The library, which receives entries.
+     */
+    private Library library;
+
+    /**
+     * This method releases fixture.
+     */
+    @TearDown(Level.Trial)
+    public void close() {
+        data.close();
+    }
+
+    /**
+     * This method benchmarks {@link JSONBuilder#getMP3FileInformation}.
+     * 
+     * @return The created entry.
+     */
+    @Benchmark
+    public TrackEntry getMP3FileInformation() {
+        return JSONBuilder.getMP3FileInformation("Artist_-_Title.mp3",
+                "/music/Artist/Album/", 1400000000000L, data, library);
+    }
+
+    /**
+     * This method creates fixture.
+     * 
+     * @throws IOException
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Integer pictureSize = "picture".equals(fixture) ? 256 * 1024 : 0;
+        // Polish title in windows-1250, as written by many old taggers.
+        byte[] title = "Zażółć gęślą jaźń".getBytes("windows-1250");
+        byte[] bytes = SyntheticFixtures.createMP3(new String(title,
+                "ISO-8859-1"), "Artist", "Album", "2014", pictureSize, 256,
+                2000, "vbr".equals(fixture));
+        data = AudioData.fromStream(new ByteArrayInputStream(bytes),
+                (long) bytes.length);
+        library = new Library();
+    }
+}
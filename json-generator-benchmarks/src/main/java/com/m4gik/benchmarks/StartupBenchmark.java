@@ -0,0 +1,219 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+
+import com.m4gik.Main;
+
+/**
+ * This class measures time to first file of small delta run, when generator
+ * is started as new process. Synthetic archive on local disk is indexed once,
+ * then each run adds single new file and starts generator again, so the run
+ * is dominated by start of JVM, loading of classes and initialization of
+ * libraries. Options are given as name=value arguments:
+ * <ul>
+ * <li>jar - the jar of generator, by default class path of benchmark,</li>
+ * <li>archive - the class data sharing archive of the jar, runs are repeated
+ * with and without it, when given,</li>
+ * <li>files - amount of files already in library,</li>
+ * <li>runs - amount of runs of each mode.</li>
+ * </ul>
+ * Each run reports time to start of crawl, when all subsystems needed before
+ * the first file are initialized, and time to exit, when library with new
+ * file is written.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class StartupBenchmark {
+
+    /**
+     * The line printed by generator, when crawl starts.
+     */
+    private final static String CRAWL_STARTED = "Budowanie biblioteki w toku";
+
+    /**
+     * This method gets option from arguments.
+     * 
+     * @param options
+     * @param name
+     * @param defaultValue
+     * @return The value of option, or default value if it is not given.
+     */
+    private static Long getOption(Map<String, String> options, String name,
+            Long defaultValue) {
+        String value = options.get(name);
+
+        return value == null ? defaultValue : Long.valueOf(value);
+    }
+
+    /**
+     * The main method to run benchmark.
+     * 
+     * @param args
+     *            The options as name=value.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static void main(String[] args) throws IOException,
+            InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+
+        for (String arg : args) {
+            Integer separator = arg.indexOf('=');
+
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected name=value, got "
+                        + arg);
+            }
+
+            options.put(arg.substring(0, separator),
+                    arg.substring(separator + 1));
+        }
+
+        String classPath = toAbsolute(options.containsKey("jar") ? options
+                .get("jar") : System.getProperty("java.class.path"));
+        Map<String, List<String>> modes = new LinkedHashMap<String, List<String>>();
+        modes.put("default", new ArrayList<String>());
+
+        if (options.containsKey("archive")) {
+            List<String> shared = new ArrayList<String>();
+            shared.add("-XX:SharedArchiveFile="
+                    + toAbsolute(options.get("archive")));
+            modes.put("archive", shared);
+        }
+
+        SyntheticCorpus corpus = new SyntheticCorpus();
+        corpus.setDepth(1);
+        corpus.setFanOut(1);
+        corpus.setFilesPerDirectory(getOption(options, "files", 100L)
+                .intValue());
+        File root = File.createTempFile("audio-search-corpus", "");
+        root.delete();
+        corpus.generate(root);
+        File work = File.createTempFile("audio-search-work", "");
+        work.delete();
+        work.mkdirs();
+
+        try {
+            // The first run builds library, which next runs update.
+            run(classPath, new ArrayList<String>(), root, work);
+            Long runs = getOption(options, "runs", 5L);
+
+            for (Integer run = 1; run <= runs; run++) {
+                for (Map.Entry<String, List<String>> mode : modes.entrySet()) {
+                    FileUtils.writeByteArrayToFile(new File(root, "new-"
+                            + mode.getKey() + "-" + run + ".mp3"),
+                            SyntheticFixtures.createMP3("New " + run,
+                                    "Artist", "Album", "2026", 0, 0, 100,
+                                    false));
+                    Long[] times = run(classPath, mode.getValue(), root,
+                            work);
+                    System.out.println("Run " + run + " (" + mode.getKey()
+                            + "): crawl started after " + times[0]
+                            + " ms, first file published after " + times[1]
+                            + " ms");
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(root);
+            FileUtils.deleteQuietly(work);
+        }
+    }
+
+    /**
+     * This method starts generator as new process and waits until it exits.
+     * 
+     * @param classPath
+     *            The class path of generator.
+     * @param jvmOptions
+     *            The options of JVM.
+     * @param root
+     *            The directory of archive.
+     * @param work
+     *            The working directory of generator.
+     * @return The time to start of crawl and the time to exit in
+     *         milliseconds.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private static Long[] run(String classPath, List<String> jvmOptions,
+            File root, File work) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java")
+                .getPath());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(Main.class.getName());
+        command.add("file:");
+        command.add("-");
+        command.add("-");
+        command.add(root.getPath());
+
+        Long[] times = { -1L, -1L };
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(work)
+                .redirectErrorStream(true).start();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                process.getInputStream()));
+
+        try {
+            String line = null;
+
+            while ((line = reader.readLine()) != null) {
+                if (times[0] < 0 && line.contains(CRAWL_STARTED)) {
+                    times[0] = (System.nanoTime() - start) / 1000000L;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("Generator exited with "
+                    + process.exitValue());
+        }
+
+        times[1] = (System.nanoTime() - start) / 1000000L;
+
+        return times;
+    }
+
+    /**
+     * This method converts paths to absolute, because generator is started in
+     * other working directory. The class path must be also the same as when
+     * class data sharing archive was created.
+     * 
+     * @param paths
+     *            The paths separated by path separator.
+     * @return The absolute paths separated by path separator.
+     */
+    static String toAbsolute(String paths) {
+        StringBuilder absolute = new StringBuilder();
+
+        for (String path : paths.split(File.pathSeparator)) {
+            if (absolute.length() > 0) {
+                absolute.append(File.pathSeparator);
+            }
+
+            absolute.append(new File(path).getAbsolutePath());
+        }
+
+        return absolute.toString();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * This class generates directory tree with synthetic MP3 files. Each level of
+ * tree has the same amount of subdirectories, and files are placed in leaf
+ * directories. Names of files are unique in whole tree, because library is
+ * keyed by name of file.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SyntheticCorpus {
+
+    /**
+     * The modification time of all generated files and directories, so
+     * consecutive crawls of the same corpus see it unchanged.
+     */
+    private final static Long MODIFIED = 1400000000000L;
+
+    /**
+     * The amount of levels of directories.
+     */
+    private Integer depth = 2;
+
+    /**
+     * The amount of subdirectories of each directory.
+     */
+    private Integer fanOut = 4;
+
+    /**
+     * The amount of files in each leaf directory.
+     */
+    private Integer filesPerDirectory = 10;
+
+    /**
+     * The amount of audio frames in each file.
+     */
+    private Integer frames = 2000;
+
+    /**
+     * The amount of generated bytes.
+     */
+    private Long generatedBytes = 0L;
+
+    /**
+     * The amount of generated files.
+     */
+    private Integer generatedFiles = 0;
+
+    /**
+     * The size of padding of tag.
+     */
+    private Integer paddingSize = 1024;
+
+    /**
+     * The size of attached picture, zero for no picture.
+     */
+    private Integer pictureSize = 0;
+
+    /**
+     * This method generates tree in given directory.
+     * 
+     * @param root
+     *            The root directory of tree.
+     * @throws IOException
+     */
+    public void generate(File root) throws IOException {
+        generatedFiles = 0;
+        generatedBytes = 0L;
+        generate(root, "", depth);
+    }
+
+    /**
+     * This method generates subtree.
+     * 
+     * @param directory
+     *            The directory of subtree.
+     * @param prefix
+     *            The prefix for names of files, unique for directory.
+     * @param level
+     *            The amount of levels below directory.
+     * @throws IOException
+     */
+    private void generate(File directory, String prefix, Integer level)
+            throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        if (level == 0) {
+            for (Integer i = 0; i < filesPerDirectory; i++) {
+                String name = prefix + "track-" + i;
+                writeFile(new File(directory, name + ".mp3"), name, i);
+            }
+        } else {
+            for (Integer i = 0; i < fanOut; i++) {
+                generate(new File(directory, "dir-" + i), prefix + i + "-",
+                        level - 1);
+            }
+        }
+
+        directory.setLastModified(MODIFIED);
+    }
+
+    /**
+     * @return the generatedBytes
+     */
+    public Long getGeneratedBytes() {
+        return generatedBytes;
+    }
+
+    /**
+     * @return the generatedFiles
+     */
+    public Integer getGeneratedFiles() {
+        return generatedFiles;
+    }
+
+    /**
+     * @param depth
+     *            the depth to set
+     */
+    public void setDepth(Integer depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * @param fanOut
+     *            the fanOut to set
+     */
+    public void setFanOut(Integer fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @param filesPerDirectory
+     *            the filesPerDirectory to set
+     */
+    public void setFilesPerDirectory(Integer filesPerDirectory) {
+        this.filesPerDirectory = filesPerDirectory;
+    }
+
+    /**
+     * @param frames
+     *            the frames to set
+     */
+    public void setFrames(Integer frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * @param paddingSize
+     *            the paddingSize to set
+     */
+    public void setPaddingSize(Integer paddingSize) {
+        this.paddingSize = paddingSize;
+    }
+
+    /**
+     * @param pictureSize
+     *            the pictureSize to set
+     */
+    public void setPictureSize(Integer pictureSize) {
+        this.pictureSize = pictureSize;
+    }
+
+    /**
+     * This method writes single file.
+     * 
+     * @param file
+     * @param name
+     *            The unique name used in tags.
+     * @param index
+     *            The index of file in directory.
+     * @throws IOException
+     */
+    private void writeFile(File file, String name, Integer index)
+            throws IOException {
+        byte[] bytes = SyntheticFixtures.createMP3("Title " + name,
+                "Artist " + name, "Album " + name, String.valueOf(1960 + index
+                        % 60), pictureSize, paddingSize, frames,
+                index % 2 == 0);
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+
+        file.setLastModified(MODIFIED);
+        generatedFiles++;
+        generatedBytes += bytes.length;
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class creates synthetic fixtures for benchmarks. The MP3 files have
+ * ID3v2.3 tag and silent MPEG 1 Layer III frames, so they are valid for both
+ * native parser and tag libraries, but do not need any audio files in
+ * repository.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SyntheticFixtures {
+
+    /**
+     * The header of MPEG 1 Layer III frame with 128 kbps, 44100 Hz and joint
+     * stereo.
+     */
+    private final static byte[] FRAME_HEADER = { (byte) 0xff, (byte) 0xfb,
+            (byte) 0x90, (byte) 0x40 };
+
+    /**
+     * The length of frame for bit rate and sample rate of
+     * {@link #FRAME_HEADER}.
+     */
+    private final static Integer FRAME_LENGTH = 417;
+
+    /**
+     * The charset of ID3v2 text frames.
+     */
+    private final static String TEXT_CHARSET = "ISO-8859-1";
+
+    /**
+     * The offset of Xing header in stereo MPEG 1 frame.
+     */
+    private final static Integer XING_OFFSET = 4 + 32;
+
+    /**
+     * This method creates library with given amount of entries. The keys are
+     * names of files from {@link #getKey(Integer)}.
+     * 
+     * @param size
+     *            The amount of entries.
+     * @return The library with synthetic entries.
+     */
+    public static Library createLibrary(Integer size) {
+        Library library = JSONBuilder.initLibrary();
+
+        for (Integer i = 0; i < size; i++) {
+            String directory = "/music/artist-" + (i / 100) + "/album-"
+                    + (i / 10) + "/";
+            TrackEntry entry = new TrackEntry();
+            entry.setTitle("Title " + i);
+            entry.setArtist("Artist " + (i / 100));
+            entry.setYear(String.valueOf(1960 + i % 60));
+            entry.setAlbum("Album " + (i / 10));
+            entry.setLength("00:03:" + String.format("%02d", i % 60));
+            entry.setBitRate(i % 3 == 0 ? "~192" : "128");
+            entry.setSize(String.valueOf(3000000 + i));
+            entry.setOriginalName(getKey(i));
+            entry.setDirectory(directory);
+            entry.setWebDirectory(directory.substring(7) + getKey(i));
+            entry.setLocation(directory + getKey(i));
+            entry.setModified(String.valueOf(1400000000000L + i));
+            library.put(getKey(i), entry);
+        }
+
+        return library;
+    }
+
+    /**
+     * This method creates MP3 file.
+     * 
+     * @param title
+     * @param artist
+     * @param album
+     * @param year
+     * @param pictureSize
+     *            The size of attached picture frame, zero for no picture.
+     * @param paddingSize
+     *            The size of padding after frames of tag.
+     * @param frames
+     *            The amount of audio frames.
+     * @param isVbr
+     *            True if first frame contains Xing header.
+     * @return The content of file.
+     * @throws IOException
+     */
+    public static byte[] createMP3(String title, String artist, String album,
+            String year, Integer pictureSize, Integer paddingSize,
+            Integer frames, Boolean isVbr) throws IOException {
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        writeTextFrame(tag, "TIT2", title);
+
+        if (pictureSize > 0) {
+            writeFrame(tag, "APIC", new byte[pictureSize]);
+        }
+
+        writeTextFrame(tag, "TPE1", artist);
+        writeTextFrame(tag, "TALB", album);
+        writeTextFrame(tag, "TYER", year);
+        tag.write(new byte[paddingSize]);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        int size = tag.size();
+        file.write(new byte[] { 'I', 'D', '3', 3, 0, 0,
+                (byte) ((size >> 21) & 0x7f), (byte) ((size >> 14) & 0x7f),
+                (byte) ((size >> 7) & 0x7f), (byte) (size & 0x7f) });
+        tag.writeTo(file);
+
+        for (Integer i = 0; i < frames; i++) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_LENGTH);
+            frame.put(FRAME_HEADER);
+
+            if (i == 0 && isVbr) {
+                ((Buffer) frame).position(XING_OFFSET);
+                frame.put("Xing".getBytes(TEXT_CHARSET));
+                // Only frame count is present.
+                frame.putInt(0x01);
+                frame.putInt(frames - 1);
+            }
+
+            file.write(frame.array());
+        }
+
+        return file.toByteArray();
+    }
+
+    /**
+     * This method gets key of entry in synthetic library.
+     * 
+     * @param index
+     *            The index of entry.
+     * @return The name of file.
+     */
+    public static String getKey(Integer index) {
+        return "track-" + index + ".mp3";
+    }
+
+    /**
+     * This method writes ID3v2.3 frame.
+     * 
+     * @param tag
+     * @param id
+     * @param content
+     * @throws IOException
+     */
+    private static void writeFrame(ByteArrayOutputStream tag, String id,
+            byte[] content) throws IOException {
+        tag.write(id.getBytes(TEXT_CHARSET));
+        tag.write(ByteBuffer.allocate(4).putInt(content.length).array());
+        // Flags.
+        tag.write(new byte[2]);
+        tag.write(content);
+    }
+
+    /**
+     * This method writes ID3v2.3 text frame in ISO-8859-1.
+     * 
+     * @param tag
+     * @param id
+     * @param text
+     * @throws IOException
+     */
+    private static void writeTextFrame(ByteArrayOutputStream tag, String id,
+            String text) throws IOException {
+        byte[] bytes = text.getBytes(TEXT_CHARSET);
+        byte[] content = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, content, 1, bytes.length);
+        writeFrame(tag, id, content);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.m4gik.util.TextRepair;
+
+/**
+ * This class measures cost of repairing encoding of text read from tags, which
+ * is paid for each field of each file. The corpus of polish artists and titles
+ * is repaired by {@link TextRepair} and by former routine, which decoded each
+ * text through charset found in map of all charsets and replaced letters
+ * looked up in map of boxed characters.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextRepairBenchmark {
+
+    /**
+     * The polish artists and titles, as found in tags of library.
+     */
+    private final static String[] CORPUS = { "Kult", "Arahja",
+            "Lady Pank", "Mniej niż zero", "Budka Suflera",
+            "Jolka, Jolka pamiętasz", "Republika", "Śmierć w bikini", "Dżem",
+            "Whisky", "Czesław Niemen", "Dziwny jest ten świat", "Myslovitz",
+            "Długość dźwięku samotności", "Kazik", "Łysy jedzie do Moskwy",
+            "Elektryczne Gitary", "Człowiek z liściem", "Wilki", "Baśka",
+            "Maanam", "Kocham cię, kochanie moje", "Perfect", "Niepokonani",
+            "Zażółć gęślą jaźń", "1993", "Źródło", "Żółta łódź" };
+
+    /**
+     * The letters of former routine, indexed by letter read as ISO-8859-1.
+     */
+    private final static Map<Character, Character> LEGACY_LETTERS;
+
+    /**
+     * The polish letters.
+     */
+    private final static String POLISH_LETTERS = "ĄąĆćĘęŁłŃńÓóŚśŹźŻż";
+
+    static {
+        LEGACY_LETTERS = new HashMap<Character, Character>();
+
+        for (char letter : POLISH_LETTERS.toCharArray()) {
+            try {
+                char read = new String(String.valueOf(letter).getBytes(
+                        "windows-1250"), "ISO-8859-1").charAt(0);
+                LEGACY_LETTERS.put(read, letter);
+            } catch (UnsupportedEncodingException uee) {
+                throw new IllegalStateException(uee);
+            }
+        }
+    }
+
+    /**
+     * The encoding of corpus: ASCII without polish letters, text decoded from
+     * UTF-16 frames, or polish text in windows-1250 or ISO-8859-2 read as
+     * ISO-8859-1.
+     */
+    @Param({ "ascii", "utf-16", "windows-1250", "iso-8859-2" })
+    public String encoding;
+
+    /**
+     * The texts to repair.
+     */
+    private String[] texts;
+
+    /**
+     * This method repairs corpus with former routine.
+     * 
+     * @param blackhole
+     * @throws CharacterCodingException
+     */
+    @Benchmark
+    public void legacyRepair(Blackhole blackhole)
+            throws CharacterCodingException {
+        for (String text : texts) {
+            String decoded = Charset.availableCharsets().get("UTF-8")
+                    .newDecoder().decode(ByteBuffer.wrap(text.getBytes()))
+                    .toString();
+            StringBuilder repaired = new StringBuilder();
+
+            for (char letter : decoded.toCharArray()) {
+                Character polish = LEGACY_LETTERS.get(letter);
+                repaired.append(polish == null ? letter : polish);
+            }
+
+            blackhole.consume(repaired.toString());
+        }
+    }
+
+    /**
+     * This method repairs corpus with {@link TextRepair#repair(String)}.
+     * 
+     * @param blackhole
+     */
+    @Benchmark
+    public void repair(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(TextRepair.repair(text));
+        }
+    }
+
+    /**
+     * This method encodes corpus.
+     * 
+     * @throws UnsupportedEncodingException
+     */
+    @Setup
+    public void setUp() throws UnsupportedEncodingException {
+        texts = new String[CORPUS.length];
+
+        for (int i = 0; i < CORPUS.length; i++) {
+            if ("ascii".equals(encoding)) {
+                texts[i] = toASCII(CORPUS[i]);
+            } else if ("utf-16".equals(encoding)) {
+                texts[i] = new String(CORPUS[i].toCharArray());
+            } else {
+                texts[i] = new String(CORPUS[i].getBytes(encoding),
+                        "ISO-8859-1");
+            }
+        }
+    }
+
+    /**
+     * This method replaces polish letters with ASCII letters.
+     * 
+     * @param text
+     * @return The text without polish letters.
+     */
+    private String toASCII(String text) {
+        String ascii = "AaCcEeLlNnOoSsZzZz";
+        char[] letters = text.toCharArray();
+
+        for (int i = 0; i < letters.length; i++) {
+            int index = POLISH_LETTERS.indexOf(letters[i]);
+
+            if (index >= 0) {
+                letters[i] = ascii.charAt(index);
+            }
+        }
+
+        return new String(letters);
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.benchmarks;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemFactory;
+import org.apache.ftpserver.ftplet.FileSystemView;
+import org.apache.ftpserver.ftplet.FtpException;
+import org.apache.ftpserver.ftplet.FtpFile;
+import org.apache.ftpserver.ftplet.User;
+
+/**
+ * This class serves local files like native file system of FTP server, but
+ * counts bytes of all transfers and limits their bandwidth. Only content of
+ * files passes through limiter, listings are not limited.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class ThrottledFileSystemFactory implements FileSystemFactory {
+
+    /**
+     * The amount of bytes sent to clients.
+     */
+    private final AtomicLong bytesDownloaded = new AtomicLong(0);
+
+    /**
+     * The amount of bytes received from clients.
+     */
+    private final AtomicLong bytesUploaded = new AtomicLong(0);
+
+    /**
+     * The limiter shared by all transfers.
+     */
+    private final BandwidthLimiter limiter;
+
+    /**
+     * The file system, which serves files.
+     */
+    private final NativeFileSystemFactory nativeFactory = new NativeFileSystemFactory();
+
+    /**
+     * The constructor for {@link ThrottledFileSystemFactory}.
+     * 
+     * @param rate
+     *            The limit of bytes per second, zero for no limit.
+     */
+    public ThrottledFileSystemFactory(Long rate) {
+        this.limiter = new BandwidthLimiter(rate);
+    }
+
+    /**
+     * @see org.apache.ftpserver.ftplet.FileSystemFactory#createFileSystemView(org.apache.ftpserver.ftplet.User)
+     */
+    @Override
+    public FileSystemView createFileSystemView(User user) throws FtpException {
+        return new ThrottledView(nativeFactory.createFileSystemView(user));
+    }
+
+    /**
+     * @return the bytesDownloaded
+     */
+    public Long getBytesDownloaded() {
+        return bytesDownloaded.get();
+    }
+
+    /**
+     * @return the bytesUploaded
+     */
+    public Long getBytesUploaded() {
+        return bytesUploaded.get();
+    }
+
+    /**
+     * This method clears amounts of bytes.
+     */
+    public void reset() {
+        bytesDownloaded.set(0);
+        bytesUploaded.set(0);
+    }
+
+    /**
+     * This method wraps file of native file system.
+     * 
+     * @param file
+     * @return The throttled file, or null if file is null.
+     */
+    private FtpFile wrap(FtpFile file) {
+        return file == null ? null : new ThrottledFile(file);
+    }
+
+    /**
+     * This class counts and limits bytes passed by stream.
+     */
+    private class CountingInputStream extends FilterInputStream {
+
+        /**
+         * The constructor for {@link CountingInputStream}.
+         * 
+         * @param inputStream
+         */
+        CountingInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        /**
+         * @see java.io.FilterInputStream#read()
+         */
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+
+            if (read >= 0) {
+                transferred(1);
+            }
+
+            return read;
+        }
+
+        /**
+         * @see java.io.FilterInputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+                throws IOException {
+            int read = super.read(bytes, offset, length);
+
+            if (read > 0) {
+                transferred(read);
+            }
+
+            return read;
+        }
+
+        /**
+         * This method counts and limits bytes.
+         * 
+         * @param bytes
+         * @throws IOException
+         */
+        private void transferred(Integer bytes) throws IOException {
+            bytesDownloaded.addAndGet(bytes);
+            limiter.acquire(bytes);
+        }
+    }
+
+    /**
+     * This class counts and limits bytes passed by stream.
+     */
+    private class CountingOutputStream extends FilterOutputStream {
+
+        /**
+         * The constructor for {@link CountingOutputStream}.
+         * 
+         * @param outputStream
+         */
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        /**
+         * @see java.io.FilterOutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+                throws IOException {
+            out.write(bytes, offset, length);
+            transferred(length);
+        }
+
+        /**
+         * @see java.io.FilterOutputStream#write(int)
+         */
+        @Override
+        public void write(int value) throws IOException {
+            out.write(value);
+            transferred(1);
+        }
+
+        /**
+         * This method counts and limits bytes.
+         * 
+         * @param bytes
+         * @throws IOException
+         */
+        private void transferred(Integer bytes) throws IOException {
+            bytesUploaded.addAndGet(bytes);
+            limiter.acquire(bytes);
+        }
+    }
+
+    /**
+     * This class delegates to file of native file system, but wraps streams
+     * of content.
+     */
+    private class ThrottledFile implements FtpFile {
+
+        /**
+         * The file of native file system.
+         */
+        private final FtpFile file;
+
+        /**
+         * The constructor for {@link ThrottledFile}.
+         * 
+         * @param file
+         */
+        ThrottledFile(FtpFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public InputStream createInputStream(long offset) throws IOException {
+            return new CountingInputStream(file.createInputStream(offset));
+        }
+
+        @Override
+        public OutputStream createOutputStream(long offset) throws IOException {
+            return new CountingOutputStream(file.createOutputStream(offset));
+        }
+
+        @Override
+        public boolean delete() {
+            return file.delete();
+        }
+
+        @Override
+        public boolean doesExist() {
+            return file.doesExist();
+        }
+
+        @Override
+        public String getAbsolutePath() {
+            return file.getAbsolutePath();
+        }
+
+        @Override
+        public String getGroupName() {
+            return file.getGroupName();
+        }
+
+        @Override
+        public long getLastModified() {
+            return file.getLastModified();
+        }
+
+        @Override
+        public int getLinkCount() {
+            return file.getLinkCount();
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public String getOwnerName() {
+            return file.getOwnerName();
+        }
+
+        @Override
+        public Object getPhysicalFile() {
+            return file.getPhysicalFile();
+        }
+
+        @Override
+        public long getSize() {
+            return file.getSize();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return file.isDirectory();
+        }
+
+        @Override
+        public boolean isFile() {
+            return file.isFile();
+        }
+
+        @Override
+        public boolean isHidden() {
+            return file.isHidden();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return file.isReadable();
+        }
+
+        @Override
+        public boolean isRemovable() {
+            return file.isRemovable();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return file.isWritable();
+        }
+
+        @Override
+        public List<FtpFile> listFiles() {
+            List<? extends FtpFile> files = file.listFiles();
+
+            if (files == null) {
+                return null;
+            }
+
+            List<FtpFile> wrapped = new ArrayList<FtpFile>(files.size());
+
+            for (FtpFile child : files) {
+                wrapped.add(wrap(child));
+            }
+
+            return wrapped;
+        }
+
+        @Override
+        public boolean mkdir() {
+            return file.mkdir();
+        }
+
+        @Override
+        public boolean move(FtpFile destination) {
+            // Native file system renames only to its own files.
+            if (destination instanceof ThrottledFile) {
+                return file.move(((ThrottledFile) destination).file);
+            }
+
+            return file.move(destination);
+        }
+
+        @Override
+        public boolean setLastModified(long time) {
+            return file.setLastModified(time);
+        }
+    }
+
+    /**
+     * This class delegates to view of native file system, but wraps files.
+     */
+    private class ThrottledView implements FileSystemView {
+
+        /**
+         * The view of native file system.
+         */
+        private final FileSystemView view;
+
+        /**
+         * The constructor for {@link ThrottledView}.
+         * 
+         * @param view
+         */
+        ThrottledView(FileSystemView view) {
+            this.view = view;
+        }
+
+        @Override
+        public boolean changeWorkingDirectory(String directory)
+                throws FtpException {
+            return view.changeWorkingDirectory(directory);
+        }
+
+        @Override
+        public void dispose() {
+            view.dispose();
+        }
+
+        @Override
+        public FtpFile getFile(String file) throws FtpException {
+            return wrap(view.getFile(file));
+        }
+
+        @Override
+        public FtpFile getHomeDirectory() throws FtpException {
+            return wrap(view.getHomeDirectory());
+        }
+
+        @Override
+        public FtpFile getWorkingDirectory() throws FtpException {
+            return wrap(view.getWorkingDirectory());
+        }
+
+        @Override
+        public boolean isRandomAccessible() throws FtpException {
+            return view.isRandomAccessible();
+        }
+    }
+}
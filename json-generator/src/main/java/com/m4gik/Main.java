@@ -8,14 +8,20 @@ package com.m4gik;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.logging.Handler;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.jaudiotagger.audio.AudioFile;
 
+import com.m4gik.core.AudioSource;
 import com.m4gik.core.FTPConnection;
+import com.m4gik.core.FTPConnectionPool;
+import com.m4gik.core.LocalSource;
+import com.m4gik.core.SourceWatcher;
+import com.m4gik.util.CrawlJournal;
 import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.MP3HeaderParser;
+import com.m4gik.util.MetadataCache;
+import com.m4gik.util.Metrics;
 
 /**
  * The main class, which is the core of application. This class uses all needed
@@ -32,6 +38,12 @@ public class Main {
      */
     static final Logger logger = LogManager.getLogger(Main.class.getName());
 
+    /**
+     * The time in milliseconds to wait for current crawl, when watching
+     * process is terminated.
+     */
+    private final static Long SHUTDOWN_TIMEOUT = 60000L;
+
     /**
      * This method builds JSON library on server.
      * 
@@ -40,12 +52,31 @@ public class Main {
      */
     private static void buildLibrary(String... properties) {
         initConfiguration();
-        FTPConnection ftpConn = initConnection(properties[0], properties[1],
+        MP3HeaderParser.setAccuracy(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "lengthAccuracy",
+                MP3HeaderParser.DEFAULT_ACCURACY.longValue()).intValue());
+        AudioSource source = initSource(properties[0], properties[1],
                 properties[2], properties[3]);
+        Long watchInterval = JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "watchSeconds", 0L) * 1000L;
+
+        if (watchInterval > 0) {
+            logger.debug("Watching library every " + watchInterval + " ms");
+            System.out.println("Obserwowanie biblioteki w toku: ");
+            SourceWatcher watcher = new SourceWatcher(source, properties[3],
+                    watchInterval, new File(SourceWatcher.TRIGGER_FILE));
+            watcher.addShutdownHook(SHUTDOWN_TIMEOUT);
+            watcher.run();
+            return;
+        }
+
         logger.debug("Bulding library process in progress...");
         System.out.println("Budowanie biblioteki w toku: ");
-        ftpConn.retrieveFiles(properties[3]);
-        clean();
+        source.retrieveFiles(properties[3]);
+        // Metrics are written next to properties for node exporter.
+        source.getMetrics().writeFiles(new File(Metrics.PROMETHEUS_FILE),
+                new File(Metrics.SUMMARY_FILE));
+        source.disconnect();
         System.out.println("\nBudowanie biblioteki zakończone pomyślnie.");
     }
 
@@ -116,39 +147,13 @@ public class Main {
         return isCorrect;
     }
 
-    /**
-     * This method deletes all temporary files.
-     */
-    private static void clean() {
-        File file = new File(JSONBuilder.TEMP);
-
-        if (file.exists()) {
-            if (file.isDirectory()) {
-                for (File singleFile : file.listFiles()) {
-                    singleFile.delete();
-                }
-            }
-            file.delete();
-        }
-    }
-
     /**
      * This method contains configuration for this application.
      */
     private static void initConfiguration() {
-        loggerSetup();
         logger.debug("Application is starting...");
 
         System.out.println("Trwa uruchamianie aplikacji...");
-        File file = new File(JSONBuilder.TEMP);
-        if (!file.exists()) {
-            if (!file.mkdir()) {
-                System.out.println("Aplikacja nie ma praw do stworzenia"
-                        + " lokalnego folderu temp.");
-                System.out.println("Nadaj odpowiednia prawa aplikacji,"
-                        + " lub spróbuj stworzyć folder ręcznie");
-            }
-        }
     }
 
     /**
@@ -162,15 +167,80 @@ public class Main {
      */
     private static FTPConnection initConnection(String address, String login,
             String password, String path) {
-        return new FTPConnection(address, login, password, true, 2000L, path);
+        FTPConnectionPool.setHostLimit(address, JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "maxConnectionsPerHost",
+                FTPConnectionPool.DEFAULT_HOST_LIMIT.longValue()).intValue());
+        FTPConnection ftpConn = new FTPConnection(address, login, password,
+                true, 2000L, path);
+        ftpConn.setConnections(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "connections", 4L).intValue());
+        ftpConn.setCheckpointFiles(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "checkpointFiles", 0L).intValue());
+        ftpConn.setCheckpointInterval(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "checkpointSeconds", 0L) * 1000L);
+        ftpConn.setHeaderOnly(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "headerOnly", 1L) != 0L);
+        ftpConn.setFullRescan(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "fullRescan", 0L) != 0L);
+        ftpConn.setCompressed(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "gzip", 1L) != 0L);
+        ftpConn.setBinary(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "binary", 0L) != 0L);
+        ftpConn.setSharded(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "shards", 0L) != 0L);
+        ftpConn.setShardSize(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "shardSize", 0L).intValue());
+        ftpConn.setVirtualThreads(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "virtualThreads", 0L) != 0L);
+        ftpConn.setAdaptive(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "adaptive", 1L) != 0L);
+        ftpConn.setMaxRate(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "maxBytesPerSecond", 0L));
+        ftpConn.setPersistent(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "watchSeconds", 0L) > 0L);
+
+        if (JSONBuilder.readOption(JSONBuilder.JSON_PROPERTIES, "journal",
+                1L) != 0L) {
+            ftpConn.setJournal(new CrawlJournal(new File(
+                    CrawlJournal.JOURNAL_FILE), address + path));
+        }
+
+        if (JSONBuilder.readOption(JSONBuilder.JSON_PROPERTIES, "cache",
+                1L) != 0L) {
+            ftpConn.setCache(new MetadataCache(new File(
+                    MetadataCache.CACHE_FILE), address));
+        }
+
+        return ftpConn;
     }
 
     /**
-     * This method sets up configuration for loggers.
+     * This method initialize source of audio files. The server address
+     * starting with "file:" selects directory on local disk, otherwise files
+     * are retrieved from FTP server.
+     * 
+     * @param address
+     * @param login
+     * @param password
+     * @param path
+     * @return The source of audio files.
      */
-    private static void loggerSetup() {
-        // BasicConfigurator.configure();
-        mp3LoggerSetup();
+    private static AudioSource initSource(String address, String login,
+            String password, String path) {
+        if (!address.startsWith(LocalSource.SCHEME)) {
+            return initConnection(address, login, password, path);
+        }
+
+        LocalSource source = new LocalSource(path);
+        source.setConnections(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "connections",
+                (long) Runtime.getRuntime().availableProcessors()).intValue());
+        source.setCompressed(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "gzip", 1L) != 0L);
+        source.setBinary(JSONBuilder.readOption(
+                JSONBuilder.JSON_PROPERTIES, "binary", 0L) != 0L);
+
+        return source;
     }
 
     /**
@@ -200,19 +270,6 @@ public class Main {
         }
     }
 
-    /**
-     * This method deletes logger properties for AudioFile.
-     */
-    private static void mp3LoggerSetup() {
-        AudioFile.logger.setUseParentHandlers(false);
-        java.util.logging.Logger globalLogger = java.util.logging.Logger
-                .getLogger("");
-        Handler[] handlers = globalLogger.getHandlers();
-        for (Handler handler : handlers) {
-            globalLogger.removeHandler(handler);
-        }
-    }
-
     /**
      * This method prints useful information for user. Shows basic instruction
      * how lunch application.
@@ -229,5 +286,6 @@ public class Main {
                 + " się najwyżej w fierarchi folderowej\n");
         System.out.println("Przykład użycia:");
         System.out.println("\t ftp.serwer.pl admin admin1 /public/muzyka");
+        System.out.println("\t file: - - /mnt/archiwum/muzyka");
     }
 }
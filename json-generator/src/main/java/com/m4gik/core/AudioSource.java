@@ -0,0 +1,43 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import com.m4gik.util.Library;
+import com.m4gik.util.Metrics;
+
+/**
+ * This interface represents location of audio files, which are crawled to
+ * build JSON library. The library is published next to the crawled files.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public interface AudioSource {
+
+    /**
+     * This method releases connections and other resources of source.
+     */
+    void disconnect();
+
+    /**
+     * @return The JSON library kept in memory.
+     */
+    Library getLibrary();
+
+    /**
+     * @return The metrics of stages, transfers and files of crawl.
+     */
+    Metrics getMetrics();
+
+    /**
+     * This method retrieves files from given directory and its subdirectories
+     * and publishes JSON library once all files are processed.
+     * 
+     * @param path
+     *            The path for audio files location.
+     */
+    void retrieveFiles(String path);
+}
@@ -5,32 +5,56 @@
  */
 package com.m4gik.core;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
 
+import com.m4gik.util.AudioData;
+import com.m4gik.util.BinaryLibraryWriter;
+import com.m4gik.util.CrawlJournal;
 import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+import com.m4gik.util.LibraryShards;
+import com.m4gik.util.MetadataCache;
+import com.m4gik.util.Metrics;
+import com.m4gik.util.TrackEntry;
 
 /**
  * This class is responsible for operation on FTP server, provides connection
- * and files operations.
+ * and files operations. It is the source of audio files stored on FTP server.
  * 
  * @author m4gik <michal.szczygiel@wp.pl>
  * 
  */
-public class FTPConnection {
+public class FTPConnection implements AudioSource {
 
     /**
      * This logger is responsible for the registration of events.
@@ -39,20 +63,93 @@ public class FTPConnection {
             .getName());
 
     /**
-     * The variable store amount of audio files.
+     * The variable store amount of audio files discovered so far.
      */
-    private Integer audioAmount = 0;
+    private final AtomicInteger audioAmount = new AtomicInteger(0);
 
     /**
-     * The variable store counted amount of audio files.
+     * The amount of processed files after which the library is published as a
+     * checkpoint. Zero disables checkpoints by count.
      */
-    private Integer currentAmount = 0;
+    private Integer checkpointFiles = 0;
+
+    /**
+     * The time in milliseconds after which the library is published as a
+     * checkpoint. Zero disables checkpoints by time.
+     */
+    private Long checkpointInterval = 0L;
+
+    /**
+     * True while checkpoint publishes library, so next checkpoint is skipped.
+     */
+    private final AtomicBoolean checkpointRunning = new AtomicBoolean(false);
+
+    /**
+     * The executor of checkpoints, which publishes library in background, so
+     * workers do not wait for upload.
+     */
+    private ExecutorService checkpoints = null;
+
+    /**
+     * The variable store amount of processed audio files.
+     */
+    private final AtomicInteger currentAmount = new AtomicInteger(0);
+
+    /**
+     * The amount of files added to library since last publish.
+     */
+    private final AtomicInteger filesSinceCheckpoint = new AtomicInteger(0);
 
     /**
      * The object for FTP connection, based on {@link FTPClient}.
      */
     private FTPClient ftp = null;
 
+    /**
+     * The amount of bytes transferred by header retrievers.
+     */
+    private final AtomicLong bytesTransferred = new AtomicLong(0L);
+
+    /**
+     * This boolean value keeps information if amount of concurrent transfers
+     * is adjusted to load of server.
+     */
+    private Boolean adaptive = true;
+
+    /**
+     * This boolean value keeps information if library is also published in
+     * binary format.
+     */
+    private Boolean binary = false;
+
+    /**
+     * This boolean value keeps information if library is also published as
+     * gzip-compressed JSON.
+     */
+    private Boolean compressed = true;
+
+    /**
+     * The local cache of entries read from files, null if entries are not
+     * cached.
+     */
+    private MetadataCache cache = null;
+
+    /**
+     * The amount of connections used by workers.
+     */
+    private Integer connections = 4;
+
+    /**
+     * The controller of transfers with server, created on first use.
+     */
+    private TransferController controller = null;
+
+    /**
+     * This boolean value keeps information if only header and trailer of
+     * audio files are retrieved, instead of whole files.
+     */
+    private Boolean headerOnly = true;
+
     /**
      * This boolean value keep information about proper configuration of library
      * on server side.
@@ -60,27 +157,153 @@ public class FTPConnection {
     private Boolean isLibraryChecked = false;
 
     /**
-     * The outputStream, for keep JSON library
+     * The local journal of processed files, null if crawl is not journaled.
+     */
+    private CrawlJournal journal = null;
+
+    /**
+     * The JSON library kept in memory.
+     */
+    private Library library;
+
+    /**
+     * The locations of files which are processed by workers at the moment.
+     */
+    private final Set<String> inProgress = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The time of last publish of library on server.
      */
-    private OutputStream jsonLib;
+    private final AtomicLong lastCheckpoint = new AtomicLong(
+            System.currentTimeMillis());
 
     /**
      * This variable store information about location of library on server side.
      */
     private String libraryPath;
 
+    /**
+     * The password for FTP connections.
+     */
+    private final String password;
+
+    /**
+     * The directories, which contain files that could not be processed.
+     */
+    private final Set<String> incompleteDirectories = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * This boolean value keeps information if all directories are listed,
+     * even if their modification time is unchanged.
+     */
+    private Boolean fullRescan = false;
+
+    /**
+     * The directories listed during crawl.
+     */
+    private final Set<String> listedDirectories = new HashSet<String>();
+
+    /**
+     * The limit of bytes per second of all transfers, zero for no limit.
+     */
+    private Long maxRate = 0L;
+
+    /**
+     * The metrics of stages, transfers and files of run.
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * The pool of FTP connections used by workers.
+     */
+    private FTPConnectionPool pool = null;
+
+    /**
+     * This boolean value keeps information if connections with server are
+     * kept open between crawls.
+     */
+    private Boolean persistent = false;
+
+    /**
+     * The amount of changes of library, when it was published last time, null
+     * if it was not published yet.
+     */
+    private Long publishedChanges = null;
+
+    /**
+     * The lock, which lets only one publish of library run at a time.
+     */
+    private final Object publishLock = new Object();
+
+    /**
+     * The names of shards published on server, null before manifest is read.
+     */
+    private Set<String> publishedShards = null;
+
+    /**
+     * The address of FTP server.
+     */
+    private final String server;
+
+    /**
+     * This boolean value keeps information if library is also published as
+     * shards with manifest.
+     */
+    private Boolean sharded = false;
+
+    /**
+     * The amount of entries in shard, zero for shard per directory.
+     */
+    private Integer shardSize = 0;
+
     /**
      * The variable for timeout connection.
      */
     private Long timeout;
 
+    /**
+     * This boolean value keeps information if server supports MLSD command.
+     */
+    private Boolean useMlsd = true;
+
+    /**
+     * The user name for FTP connections.
+     */
+    private final String username;
+
+    /**
+     * The locations of audio files found during crawl.
+     */
+    private final Set<String> visitedFiles = new HashSet<String>();
+
+    /**
+     * The modification times of directories visited during crawl.
+     */
+    private final Map<String, Long> visitedDirectories = new HashMap<String, Long>();
+
+    /**
+     * This boolean value keeps information if each file is processed by own
+     * virtual thread, instead of fixed pool of threads.
+     */
+    private Boolean virtualThreads = false;
+
+    /**
+     * The executor of workers, which retrieve and parse audio files.
+     */
+    private ExecutorService workers = null;
+
     /**
      * The constructor for {@link FTPConnection}. This constructor connects with
-     * FTP server, counts amount of all files in given directory and checks JSON
-     * library on server, if library does not existing create one.
+     * FTP server and checks JSON library on server, if library does not
+     * existing create one.
      */
     public FTPConnection(String server, String username, String password,
             Boolean keepConnectionAlive, Long timeout, String path) {
+        this.server = server;
+        this.username = username;
+        this.password = password;
         setTimeout(timeout);
         setLibraryPath(path + JSONBuilder.JSON_FILE);
 
@@ -89,10 +312,6 @@ public class FTPConnection {
                 keepConnectionAlive);
         logger.debug("Connected to " + server);
 
-        logger.debug("Counting audio files in directory " + path);
-        this.audioAmount = countAudio(path);
-        logger.debug("Audio files counted - " + this.audioAmount + " files");
-
         logger.debug("Checking library");
         if (checkJsonFile(path)) {
             logger.debug("Library checked");
@@ -103,6 +322,109 @@ public class FTPConnection {
         }
     }
 
+    /**
+     * This method starts storing file on server.
+     * 
+     * @param ftp
+     *            The FTP connection used for storing.
+     * @param path
+     *            The location of file.
+     * @return The stream for content of file.
+     * @throws IOException
+     *             If server refuses to store file.
+     */
+    private OutputStream beginStore(FTPClient ftp, String path)
+            throws IOException {
+        OutputStream outputStream = ftp.storeFileStream(path);
+
+        if (outputStream == null) {
+            throw new IOException("Storing " + path + " failed, because "
+                    + ftp.getReplyString());
+        }
+
+        return getController().limit(outputStream);
+    }
+
+    /**
+     * This method stores entry of unchanged file in local cache, unless cache
+     * already contains it, so entries of library read from server are also
+     * cached.
+     * 
+     * @param file
+     *            The unchanged file.
+     * @param path
+     *            The location of file on server side.
+     */
+    private void cacheEntry(FTPFile file, String path) {
+        if (getCache() != null
+                && getCache().get(path + file.getName(), file.getSize(),
+                        getTimestamp(file)) == null) {
+            getCache().put(path + file.getName(),
+                    getLibrary().get(path + file.getName()));
+        }
+    }
+
+    /**
+     * This method publishes library on server if the amount of files or time
+     * given for checkpoint has been exceeded. The library is published in
+     * background, so worker continues with next file. If previous checkpoint
+     * is still running, this one is skipped.
+     */
+    private void checkpoint() {
+        Integer files = filesSinceCheckpoint.incrementAndGet();
+        Boolean isFilesExceeded = getCheckpointFiles() > 0
+                && files >= getCheckpointFiles();
+        Boolean isTimeExceeded = getCheckpointInterval() > 0
+                && System.currentTimeMillis() - lastCheckpoint.get() >= getCheckpointInterval();
+
+        if ((isFilesExceeded || isTimeExceeded)
+                && checkpointRunning.compareAndSet(false, true)) {
+            logger.debug("Checkpoint after " + files + " files");
+            filesSinceCheckpoint.set(0);
+            lastCheckpoint.set(System.currentTimeMillis());
+
+            try {
+                checkpoints.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            publishLibrary();
+                        } finally {
+                            checkpointRunning.set(false);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException ree) {
+                // Crawl was interrupted, library is published at its end.
+                logger.debug(ree);
+                checkpointRunning.set(false);
+            }
+        }
+    }
+
+    /**
+     * This method checks if connection used for listing is still open, and
+     * connects again if server closed it, e.g. after idle time between
+     * crawls.
+     * 
+     * @return True if connection is open, false if connecting failed.
+     */
+    private Boolean checkConnection() {
+        try {
+            if (ftp != null && ftp.isConnected() && ftp.sendNoOp()) {
+                return true;
+            }
+        } catch (IOException ioe) {
+            logger.debug(ioe);
+        }
+
+        logger.debug("Connecting again to " + server);
+        ftp = getFtpConnection(server, username, password, true);
+
+        return ftp != null;
+    }
+
     /**
      * This method checks if file contain given extension.
      * 
@@ -133,78 +455,184 @@ public class FTPConnection {
      * @return If true if library is checked.
      */
     private Boolean checkJsonFile(String path) {
-        OutputStream jsonLib = null;
+        InputStream jsonLib = null;
 
         try {
-            jsonLib = new ByteArrayOutputStream();
-            // FileOutputStream(JSONBuilder.TEMP
-            // + JSONBuilder.JSON_FILE);
-
-            if (ftp.retrieveFile(path + JSONBuilder.JSON_FILE, jsonLib) == true) {
-                isLibraryChecked = true;
-                jsonLib.flush();
-                setJsonLib(jsonLib);
-            } else {
-                new JSONBuilder();
-                storeFile(JSONBuilder.initLibrary(), path
+            jsonLib = ftp.retrieveFileStream(path + JSONBuilder.JSON_FILE);
+
+            if (jsonLib != null) {
+                Metrics.Timer timer = metrics.start(Metrics.Stage.JSON, path
                         + JSONBuilder.JSON_FILE);
-                checkJsonFile(path);
-            }
+                setLibrary(Library.readFrom(jsonLib));
+                timer.stop(null);
+                Integer rekeyed = getLibrary().rekeyByLocation();
 
-            jsonLib.close();
+                if (rekeyed > 0) {
+                    logger.debug("Entries keyed by location - " + rekeyed);
+                }
+            } else {
+                setLibrary(JSONBuilder.initLibrary());
+            }
 
-        } catch (FileNotFoundException e) {
-            logger.error(e);
-            logger.debug(e);
+            isLibraryChecked = true;
         } catch (IOException ioe) {
             logger.error(ioe);
             logger.debug(ioe);
+        } finally {
+            if (jsonLib != null) {
+                IOUtils.closeQuietly(jsonLib);
+                completePendingCommand(ftp);
+            }
         }
 
         return isLibraryChecked;
     }
 
     /**
-     * This method checks JSON library if contains given key(name of file).
+     * This method finishes transfer on given connection. If reply of transfer
+     * cannot be read, the connection is closed, so pool does not reuse it.
      * 
-     * @param name
-     *            The name of file to check in JSON library.
-     * @return True if in JSON library contains key, false if not.
+     * @param ftp
+     *            The FTP connection.
+     * @return True if transfer was successful, false if not.
      */
-    private Boolean checkLibrary(String FileName) {
-        Boolean isExisting = false;
-
-        if (JSONBuilder.checkExistingKey(getJsonLib(), FileName)) {
-            isExisting = true;
+    private Boolean completePendingCommand(FTPClient ftp) {
+        try {
+            return ftp.completePendingCommand();
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            FTPConnectionPool.abandon(ftp);
         }
 
-        return isExisting;
+        return false;
     }
 
     /**
-     * This method counts amount of audio file in given directory.
+     * This method creates executor of workers. In virtual threads mode each
+     * file is processed by own virtual thread, so waiting for data connection
+     * costs only small stack. Otherwise fixed pool of threads with bounded
+     * queue is used, which is also fallback for JVM without virtual threads.
      * 
-     * @param path
-     *            The path of directory.
-     * @return Amount of audio files.
+     * @return The executor of workers.
+     */
+    private ExecutorService createWorkers() {
+        if (isVirtualThreads()) {
+            try {
+                // Virtual threads are available since Java 21.
+                return (ExecutorService) Executors.class.getMethod(
+                        "newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException nsme) {
+                logger.error("Virtual threads are not supported by JVM");
+                logger.debug(nsme);
+            } catch (IllegalAccessException iae) {
+                logger.error(iae);
+                logger.debug(iae);
+            } catch (InvocationTargetException ite) {
+                logger.error(ite);
+                logger.debug(ite);
+            }
+        }
+
+        return new ThreadPoolExecutor(getConnections(), getConnections(), 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                        getConnections() * 2), new RejectedExecutionHandler() {
+
+                    @Override
+                    public void rejectedExecution(Runnable task,
+                            ThreadPoolExecutor executor) {
+                        try {
+                            // Walker waits until workers free the queue.
+                            executor.getQueue().put(task);
+                        } catch (InterruptedException ie) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(ie);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * This method closes all connections with server.
      */
-    private Integer countAudio(String path) {
-        Integer amount = 0;
+    @Override
+    public void disconnect() {
+        getPool().close();
 
         try {
-            for (FTPFile file : ftp.listFiles(path)) {
-                if (file.isFile() && checkExtension(file.getName(), "mp3")) {
-                    amount++;
-                } else if (isFolder(file)) {
-                    amount += countAudio(path + file.getName() + "/");
-                }
+            if (ftp != null && ftp.isConnected()) {
+                ftp.logout();
+                ftp.disconnect();
             }
         } catch (IOException ioe) {
             logger.error(ioe);
             logger.debug(ioe);
         }
+    }
+
+    /**
+     * This method finishes storing file on server. The stream of file has to
+     * be closed.
+     * 
+     * @param ftp
+     *            The FTP connection used for storing.
+     * @param path
+     *            The location of file.
+     * @throws IOException
+     *             If file was not stored.
+     */
+    private void endStore(FTPClient ftp, String path) throws IOException {
+        if (!completePendingCommand(ftp)) {
+            throw new IOException("Storing " + path + " failed, because "
+                    + ftp.getReplyString());
+        }
+    }
+
+    /**
+     * This method computes fingerprint of file, if library contains other file
+     * of the same size. The missing fingerprints of files of the same size are
+     * computed too, so copy of file is found by fingerprint.
+     * 
+     * @param headerRetriever
+     *            The retriever of blocks of files.
+     * @param file
+     *            The remote file.
+     * @param path
+     *            The location of file on server side.
+     * @return The fingerprint or null if library does not contain file of the
+     *         same size or fingerprint cannot be computed.
+     */
+    private String findFingerprint(HeaderRetriever headerRetriever,
+            FTPFile file, String path) {
+        Set<String> keys = getLibrary().getKeysBySize(
+                String.valueOf(file.getSize()));
+        keys.remove(path + file.getName());
+
+        if (keys.isEmpty()) {
+            return null;
+        }
+
+        String fingerprint = headerRetriever.fingerprint(file.getSize(), path
+                + file.getName());
+
+        if (fingerprint == null) {
+            return null;
+        }
+
+        for (String key : keys) {
+            TrackEntry entry = getLibrary().get(key);
+
+            if (entry != null && entry.getFingerprint().equals("")) {
+                String known = headerRetriever.fingerprint(file.getSize(),
+                        entry.getLocation());
+
+                if (known != null) {
+                    getLibrary().putFingerprint(key, known);
+                }
+            }
+        }
 
-        return amount;
+        return fingerprint;
     }
 
     /**
@@ -221,20 +649,8 @@ public class FTPConnection {
         FTPClient ftp = null;
 
         try {
-            ftp = new FTPClient();
-            ftp.connect(server);
-            ftp.enterLocalPassiveMode();
-            ftp.setFileType(FTP.ASCII_FILE_TYPE);
-            ftp.setCharset(Charset.forName("utf8"));
-            ftp.setAutodetectUTF8(true);
-
-            if (!ftp.login(username, password)) {
-                return null;
-            }
-
-            if (getTimeout() != null) {
-                ftp.setDefaultTimeout(getTimeout().intValue());
-            }
+            ftp = FTPConnectionPool.connect(server, username, password,
+                    getTimeout());
 
             if (!keepConnectionAlive) {
                 ftp.logout();
@@ -246,7 +662,7 @@ public class FTPConnection {
             return null;
         } finally {
             try {
-                if (!keepConnectionAlive && ftp.isConnected()) {
+                if (!keepConnectionAlive && ftp != null && ftp.isConnected()) {
                     ftp.disconnect();
                 }
             } catch (IOException ioe) {
@@ -259,139 +675,668 @@ public class FTPConnection {
     }
 
     /**
-     * @return the jsonLib
+     * This method gets amount of files after which library is published.
+     * 
+     * @return the checkpointFiles
      */
-    public OutputStream getJsonLib() {
-        return jsonLib;
+    public Integer getCheckpointFiles() {
+        return checkpointFiles;
     }
 
     /**
-     * @return the libraryPath
+     * This method gets time in milliseconds after which library is published.
+     * 
+     * @return the checkpointInterval
      */
-    public String getLibraryPath() {
-        return libraryPath;
+    public Long getCheckpointInterval() {
+        return checkpointInterval;
     }
 
     /**
-     * This method gets timeout for FTP connection.
-     * 
-     * @return the timeout
+     * @return the cache
      */
-    public Long getTimeout() {
-        return timeout;
+    public MetadataCache getCache() {
+        return cache;
     }
 
     /**
-     * This method checks if given file is folder.
+     * This method gets amount of connections used by workers.
      * 
-     * @param file
-     * 
-     * @return True if given file is folder, false if not.
+     * @return the connections
      */
-    private Boolean isFolder(FTPFile file) {
-        Boolean isFolder = false;
-
-        if (file.isDirectory()) {
-            if (!file.getName().equals(".") && !file.getName().equals("..")) {
-                isFolder = true;
-            }
-        }
+    public Integer getConnections() {
+        return connections;
+    }
 
-        return isFolder;
+    /**
+     * @return the journal
+     */
+    public CrawlJournal getJournal() {
+        return journal;
     }
 
     /**
-     * This method lists and displays all files from current path.
-     * 
-     * @param path
+     * @return the library
      */
-    public void listFiles(String path) {
-        try {
-            for (FTPFile file : ftp.listFiles(path)) {
-                logger.debug(file.getName());
-            }
-        } catch (IOException ioe) {
-            logger.error(ioe);
-            logger.debug(ioe);
-        }
+    @Override
+    public Library getLibrary() {
+        return library;
     }
 
     /**
-     * This method
-     * 
-     * @param currentAmount
-     * @return
+     * @return the libraryPath
      */
-    private Double progressPercentage(Integer currentAmount) {
-        return ((100.0 * currentAmount) / audioAmount) / 100.0;
+    public String getLibraryPath() {
+        return libraryPath;
     }
 
     /**
-     * This method retrieves file from current path.
-     * 
-     * @param file
-     *            The file to download.
-     * @param path
-     *            The location of file on server side.
-     * @return The retrieved file.
+     * @return the metrics
      */
-    @SuppressWarnings("unused")
-    private void retrieveFile(FTPFile file, String path) {
-        if (!checkLibrary(file.getName())) {
-            FileOutputStream outStream = null;
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
 
-            try {
-                outStream = new FileOutputStream(JSONBuilder.TEMP
-                        + file.getName());
-
-                if (ftp.retrieveFile(path + file.getName(), outStream)) {
-                    logger.debug(file.getName() + " retrive succesfull");
-                } else {
-                    logger.debug(file.getName() + " retrive failed, because "
-                            + ftp.getReplyString());
+    /**
+     * @return The directory of library on server side.
+     */
+    private String getLibraryDirectory() {
+        return getLibraryPath().substring(0, getLibraryPath().length()
+                - JSONBuilder.JSON_FILE.length());
+    }
+
+    /**
+     * This method gets controller of transfers with server. The controller is
+     * created on first use.
+     * 
+     * @return the controller
+     */
+    private synchronized TransferController getController() {
+        if (controller == null) {
+            controller = new TransferController(getConnections(),
+                    isAdaptive(), getMaxRate());
+        }
+
+        return controller;
+    }
+
+    /**
+     * This method gets pool of FTP connections used by workers. The pool is
+     * created on first use.
+     * 
+     * @return the pool
+     */
+    private synchronized FTPConnectionPool getPool() {
+        if (pool == null) {
+            pool = new FTPConnectionPool(server, username, password,
+                    getTimeout(), getConnections());
+        }
+
+        return pool;
+    }
+
+    /**
+     * @return the maxRate
+     */
+    public Long getMaxRate() {
+        return maxRate;
+    }
+
+    /**
+     * This method gets modification time of remote file.
+     * 
+     * @param file
+     *            The remote file.
+     * @return The modification time in milliseconds, or null if unknown.
+     */
+    private Long getTimestamp(FTPFile file) {
+        Calendar timestamp = file.getTimestamp();
+
+        return timestamp == null ? null : timestamp.getTimeInMillis();
+    }
+
+    /**
+     * @return the shardSize
+     */
+    public Integer getShardSize() {
+        return shardSize;
+    }
+
+    /**
+     * This method gets timeout for FTP connection.
+     * 
+     * @return the timeout
+     */
+    public Long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * This method checks if amount of concurrent transfers is adjusted to load
+     * of server.
+     * 
+     * @return the adaptive
+     */
+    public Boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * This method checks if library is also published in binary format.
+     * 
+     * @return the binary
+     */
+    public Boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * This method checks if library is also published as gzip-compressed
+     * JSON.
+     * 
+     * @return the compressed
+     */
+    public Boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * This method checks if only header and trailer of audio files are
+     * retrieved.
+     * 
+     * @return the headerOnly
+     */
+    public Boolean isHeaderOnly() {
+        return headerOnly;
+    }
+
+    /**
+     * This method checks if all directories are listed, even if their
+     * modification time is unchanged.
+     * 
+     * @return the fullRescan
+     */
+    public Boolean isFullRescan() {
+        return fullRescan;
+    }
+
+    /**
+     * This method checks if connections with server are kept open between
+     * crawls.
+     * 
+     * @return the persistent
+     */
+    public Boolean isPersistent() {
+        return persistent;
+    }
+
+    /**
+     * This method checks if library is also published as shards with
+     * manifest.
+     * 
+     * @return the sharded
+     */
+    public Boolean isSharded() {
+        return sharded;
+    }
+
+    /**
+     * @return the virtualThreads
+     */
+    public Boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * This method checks if given file is folder.
+     * 
+     * @param file
+     * 
+     * @return True if given file is folder, false if not.
+     */
+    private Boolean isFolder(FTPFile file) {
+        Boolean isFolder = false;
+
+        if (file.isDirectory()) {
+            if (!file.getName().equals(".") && !file.getName().equals("..")
+                    && !isParentOrCurrent(file)) {
+                isFolder = true;
+            }
+        }
+
+        return isFolder;
+    }
+
+    /**
+     * This method checks if given file is entry of MLSD listing for current
+     * or parent directory.
+     * 
+     * @param file
+     * 
+     * @return True if given file is current or parent directory.
+     */
+    private Boolean isParentOrCurrent(FTPFile file) {
+        String rawListing = file.getRawListing() == null ? "" : file
+                .getRawListing().toLowerCase();
+
+        return rawListing.contains("type=cdir")
+                || rawListing.contains("type=pdir");
+    }
+
+    /**
+     * This method lists files in given directory. The MLSD command is used if
+     * server supports it, because it gives precise modification times.
+     * 
+     * @param path
+     *            The path of directory.
+     * @return The files in directory.
+     * @throws IOException
+     */
+    private FTPFile[] listDirectory(String path) throws IOException {
+        Metrics.Timer timer = metrics.start(Metrics.Stage.LIST, path);
+
+        try {
+            if (useMlsd) {
+                FTPFile[] files = ftp.mlistDir(path);
+
+                if (FTPReply.isPositiveCompletion(ftp.getReplyCode())) {
+                    return files;
                 }
 
-                outStream.close();
-                storeFile(
-                        new ByteArrayInputStream(updateMemory(JSONBuilder
-                                .getMP3FileInformation(file.getName(), path,
-                                        getJsonLib()).toString().getBytes())),
-                        getLibraryPath());
-            } catch (FileNotFoundException e) {
-                logger.error(e);
-                logger.debug(e);
-            } catch (IOException ioe) {
-                logger.error(ioe);
-                logger.debug(ioe);
-            }
+                logger.debug("MLSD is not supported, because "
+                        + ftp.getReplyString());
+                useMlsd = false;
+            }
+
+            return ftp.listFiles(path);
+        } finally {
+            timer.stop(null);
+        }
+    }
+
+    /**
+     * This method lists and displays all files from current path.
+     * 
+     * @param path
+     */
+    public void listFiles(String path) {
+        try {
+            for (FTPFile file : ftp.listFiles(path)) {
+                logger.debug(file.getName());
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method checks if given file is new or changed since it was stored
+     * in JSON library.
+     * 
+     * @param file
+     *            The remote file.
+     * @param path
+     *            The location of file on server side.
+     * @return True if file needs to be processed, false if not.
+     */
+    private Boolean needsUpdate(FTPFile file, String path) {
+        TrackEntry entry = getLibrary().get(path + file.getName());
+
+        if (entry == null) {
+            return true;
+        }
+
+        Long modified = getTimestamp(file);
+
+        if (modified != null && entry.getModified().equals("")) {
+            // The entry stored before modification times were kept.
+            getLibrary().putModified(path + file.getName(),
+                    modified.toString());
+
+            return !entry.getSize().equals(String.valueOf(file.getSize()));
+        }
+
+        return !entry.getSize().equals(String.valueOf(file.getSize()))
+                || (modified != null && !entry.getModified().equals(
+                        modified.toString()));
+    }
+
+    /**
+     * This method counts file as processed and shows progress against amount
+     * of files discovered so far.
+     */
+    private void fileProcessed() {
+        updateProgress(currentAmount.incrementAndGet(), audioAmount.get());
+    }
+
+    /**
+     * This method publishes file on server. The file is stored under temporary
+     * name first and then renamed over the live file.
+     * 
+     * @param ftp
+     *            The FTP connection used for storing.
+     * @param path
+     *            The location of file.
+     * @param content
+     *            The content of file.
+     * @throws IOException
+     */
+    private void publishFile(FTPClient ftp, String path, byte[] content)
+            throws IOException {
+        String temporaryPath = path + JSONBuilder.TEMP_EXTENSION;
+        Metrics.Timer timer = metrics.start(Metrics.Stage.STOR, path);
+        OutputStream outputStream = beginStore(ftp, temporaryPath);
+
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+
+        endStore(ftp, temporaryPath);
+        replaceFile(ftp, temporaryPath, path);
+        timer.stop((long) content.length);
+        metrics.add(Metrics.Counter.BYTES_OUT, (long) content.length);
+        logger.debug("Published " + path + ", " + content.length + " bytes");
+    }
+
+    /**
+     * This method publishes JSON library from memory on server. The library is
+     * stored under temporary name first and then renamed over the live library,
+     * so clients never read half-written file. The compressed and binary
+     * copies are built in the same pass over library and published next, and
+     * if library is sharded, the shards and manifest are published last. Only
+     * one publish runs at a time, but it does not hold lock of this object, so
+     * workers may return their connections while library is uploaded.
+     * 
+     * @return True if library was published, false if not.
+     */
+    public Boolean publishLibrary() {
+        synchronized (publishLock) {
+            return uploadLibrary();
+        }
+    }
+
+    /**
+     * This method publishes shards of library and their manifest. Only shards,
+     * which are not listed in previous manifest, are uploaded. The manifest
+     * replaces previous one at once, and shards no longer listed are deleted
+     * afterwards.
+     * 
+     * @param ftp
+     *            The FTP connection used for storing.
+     * @throws IOException
+     */
+    private void publishShards(FTPClient ftp) throws IOException {
+        String directory = getLibraryDirectory();
+        String manifestPath = directory + LibraryShards.MANIFEST_FILE;
+
+        if (publishedShards == null) {
+            publishedShards = readShardNames(ftp, manifestPath);
+        }
+
+        List<LibraryShards.Shard> shards = LibraryShards.split(getLibrary(),
+                getShardSize());
+        Set<String> names = new HashSet<String>();
+        Integer uploaded = 0;
+
+        for (LibraryShards.Shard shard : shards) {
+            String path = directory + shard.getName();
+            Metrics.Timer timer = metrics.start(Metrics.Stage.JSON, path);
+            byte[] content = shard.encode();
+            timer.stop((long) content.length);
+            names.add(shard.getName());
+
+            if (publishedShards.contains(shard.getName())) {
+                continue;
+            }
+
+            timer = metrics.start(Metrics.Stage.STOR, path);
+            OutputStream outputStream = beginStore(ftp, path);
+
+            try {
+                outputStream.write(content);
+            } finally {
+                outputStream.close();
+            }
+
+            endStore(ftp, path);
+            timer.stop((long) content.length);
+            metrics.add(Metrics.Counter.BYTES_OUT, (long) content.length);
+            uploaded++;
+        }
+
+        String temporaryPath = manifestPath + JSONBuilder.TEMP_EXTENSION;
+        Metrics.Timer timer = metrics.start(Metrics.Stage.STOR, manifestPath);
+        OutputStream outputStream = beginStore(ftp, temporaryPath);
+
+        try {
+            LibraryShards.writeManifest(new HashMap<String, String>(
+                    getLibrary().getComment()), shards, outputStream);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+        }
+
+        endStore(ftp, temporaryPath);
+        replaceFile(ftp, temporaryPath, manifestPath);
+        timer.stop(null);
+
+        for (String name : publishedShards) {
+            if (!names.contains(name) && !ftp.deleteFile(directory + name)) {
+                logger.debug("Deleting shard failed, because "
+                        + ftp.getReplyString());
+            }
+        }
+
+        publishedShards = names;
+        logger.debug("Published " + shards.size() + " shards, uploaded "
+                + uploaded);
+    }
+
+    /**
+     * This method reads names of shards from manifest on server.
+     * 
+     * @param ftp
+     *            The FTP connection used for reading.
+     * @param path
+     *            The location of manifest.
+     * @return The names of shards, empty if manifest cannot be read.
+     */
+    private Set<String> readShardNames(FTPClient ftp, String path) {
+        InputStream manifest = null;
+
+        try {
+            manifest = ftp.retrieveFileStream(path);
+
+            if (manifest != null) {
+                return LibraryShards.readShardNames(manifest);
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } finally {
+            if (manifest != null) {
+                IOUtils.closeQuietly(manifest);
+                completePendingCommand(ftp);
+            }
+        }
+
+        return new HashSet<String>();
+    }
+
+    /**
+     * This method replaces file on server with file stored under temporary
+     * name.
+     * 
+     * @param ftp
+     *            The FTP connection used for renaming.
+     * @param temporaryPath
+     *            The location of new file.
+     * @param path
+     *            The location of replaced file.
+     * @throws IOException
+     *             If file cannot be renamed.
+     */
+    private void replaceFile(FTPClient ftp, String temporaryPath, String path)
+            throws IOException {
+        if (!ftp.rename(temporaryPath, path)) {
+            // Some servers refuse to rename over existing file.
+            logger.debug("Rename failed, because " + ftp.getReplyString());
+            ftp.deleteFile(path);
+
+            if (!ftp.rename(temporaryPath, path)) {
+                throw new IOException("Publishing " + path
+                        + " failed, because " + ftp.getReplyString());
+            }
+        }
+    }
+
+    /**
+     * This method restores entry of file from local cache, if file has not
+     * changed since it was cached.
+     * 
+     * @param file
+     *            The file to restore.
+     * @param path
+     *            The location of file on server side.
+     * @return True if entry was restored, false if file needs to be retrieved.
+     */
+    private Boolean restoreCached(FTPFile file, String path) {
+        if (getCache() == null) {
+            return false;
+        }
+
+        TrackEntry entry = getCache().get(path + file.getName(),
+                file.getSize(), getTimestamp(file));
+
+        if (entry == null) {
+            return false;
+        }
+
+        getLibrary().put(path + file.getName(), entry);
+
+        return true;
+    }
+
+    /**
+     * This method retrieves files from given directory and publishes JSON
+     * library on server once all files are processed. The directories are
+     * walked once, and each discovered file is passed to workers, so
+     * processing begins at the first file found. The amount of workers, which
+     * retrieve files at the same time, is limited by controller of transfers.
+     * 
+     * @param path
+     *            The path for audio files location.
+     */
+    @Override
+    public void retrieveFiles(String path) {
+        if (!checkConnection()) {
+            logger.error("Connecting to " + server + " failed");
+            return;
+        }
+
+        JSONBuilder.updateJsonHeader(getLibrary());
+
+        if (getJournal() != null) {
+            logger.debug("Files resumed from journal - "
+                    + getJournal().replay(getLibrary()));
+            getJournal().open();
+        }
+
+        if (getCache() != null) {
+            getCache().open();
+        }
+
+        workers = createWorkers();
+        checkpoints = Executors.newSingleThreadExecutor();
+        audioAmount.set(0);
+        currentAmount.set(0);
+        visitedFiles.clear();
+        listedDirectories.clear();
+        visitedDirectories.clear();
+        incompleteDirectories.clear();
+        visitedDirectories.put(path, null);
+        Boolean isListed = retrieveDirectory(path);
+
+        if (isListed) {
+            listedDirectories.add(path);
+        }
+
+        logger.debug("Audio files discovered - " + audioAmount.get()
+                + " files");
+        workers.shutdown();
+
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            // The last checkpoint finishes before library is published.
+            checkpoints.shutdown();
+            checkpoints.awaitTermination(Long.MAX_VALUE,
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            logger.debug(ie);
+            Thread.currentThread().interrupt();
+        } finally {
+            checkpoints.shutdown();
+        }
+
+        if (isListed) {
+            removeMissing();
+        }
+
+        if (getCache() != null) {
+            getCache().close();
+        }
+
+        Boolean isPublished = true;
+
+        if (getLibrary().getChanges().equals(publishedChanges)) {
+            logger.debug("Library unchanged since last publish");
+        } else {
+            isPublished = publishLibrary();
+        }
+
+        if (getJournal() != null && isPublished) {
+            getJournal().delete();
+        } else if (getJournal() != null) {
+            // The next crawl resumes from journal.
+            getJournal().close();
+        }
+
+        if (!isPersistent()) {
+            getPool().close();
         }
     }
 
     /**
-     * This method retrieves files from given directory.
+     * This method retrieves files from given directory and its subdirectories.
      * 
      * @param path
      *            The path for audio files location.
+     * @return True if directory was listed, false if listing failed.
      */
-    public void retrieveFiles(String path) {
-        storeFile(new ByteArrayInputStream(updateMemory(JSONBuilder
-                .updateJsonHeader(getJsonLib()).toString().getBytes())),
-                getLibraryPath());
-
+    private Boolean retrieveDirectory(String path) {
         try {
-            for (FTPFile file : ftp.listFiles(path)) {
+            for (FTPFile file : listDirectory(path)) {
                 if (file.isFile() && checkExtension(file.getName(), "mp3")) {
-                    updateProgress(progressPercentage(++currentAmount));
+                    audioAmount.incrementAndGet();
+                    visitedFiles.add(path + file.getName());
                     // retrieveFile(file, path);
-                    retrieveInputStream(file, path);
+                    submitFile(file, path);
                 } else if (isFolder(file)) {
-                    retrieveFiles(path + file.getName() + "/");
+                    visitDirectory(path + file.getName() + "/",
+                            getTimestamp(file));
                 }
             }
         } catch (IOException ioe) {
             logger.error(ioe);
             logger.debug(ioe);
+            return false;
         }
+
+        return true;
     }
 
     /**
@@ -403,53 +1348,312 @@ public class FTPConnection {
      *            The location of file on server side.
      */
     private void retrieveInputStream(FTPFile file, String path) {
-        if (!checkLibrary(file.getName())) {
-            InputStream inputStream = null;
+        if (needsUpdate(file, path)) {
+            Boolean isRetrieved = false;
+            Boolean isDuplicate = false;
+            String fingerprint = null;
+            FTPClient ftp = null;
+            AudioData data = null;
 
             try {
-                // Create an InputStream to the File Data and use
-                // FileOutputStream to write it.
-                inputStream = ftp.retrieveFileStream(path + file.getName());
-                FileOutputStream fileOutputStream = new FileOutputStream(
-                        JSONBuilder.TEMP + file.getName());
-
-                // Using org.apache.commons.io.IOUtils
-                IOUtils.copy(inputStream, fileOutputStream);
-                fileOutputStream.flush();
-                IOUtils.closeQuietly(fileOutputStream);
-                IOUtils.closeQuietly(inputStream);
-                Boolean downloadStatus = ftp.completePendingCommand();
+                ftp = getPool().borrow();
+                HeaderRetriever headerRetriever = new HeaderRetriever(ftp,
+                        metrics, getController());
+                fingerprint = findFingerprint(headerRetriever, file, path);
+                TrackEntry duplicate = fingerprint == null ? null
+                        : getLibrary().getByFingerprint(fingerprint);
+
+                if (duplicate != null) {
+                    logger.debug(file.getName() + " is copy of "
+                            + duplicate.getLocation());
+                    JSONBuilder.copyMP3FileInformation(duplicate,
+                            file.getName(), path, getTimestamp(file),
+                            getLibrary());
+                    isDuplicate = true;
+                    isRetrieved = true;
+                }
+
+                if (!isRetrieved && isHeaderOnly()) {
+                    data = headerRetriever.retrieve(file, path);
+                }
+
+                if (data != null) {
+                    Long fetched = headerRetriever.getTransferNanos();
+                    Metrics.Timer timer = metrics.start(Metrics.Stage.PARSE,
+                            path + file.getName());
+                    isRetrieved = JSONBuilder.getMP3FileInformation(
+                            file.getName(), path, getTimestamp(file), data,
+                            getLibrary()) != null;
+                    // Ranges are retrieved while tags are parsed.
+                    timer.exclude(headerRetriever.getTransferNanos() - fetched);
+                    timer.stop(headerRetriever.getBytesTransferred());
+                    bytesTransferred.addAndGet(headerRetriever
+                            .getBytesTransferred());
+                    data.close();
+
+                    if (!isRetrieved) {
+                        logger.debug(file.getName() + " needs full download");
+                    }
+                }
+
+                if (!isRetrieved && !ftp.isConnected()) {
+                    // Failed range transfer closed the connection.
+                    getPool().invalidate(ftp);
+                    ftp = null;
+                    ftp = getPool().borrow();
+                }
 
-                if (downloadStatus) {
-                    logger.debug(file.getName() + " retrive succesfull");
-                } else {
-                    logger.debug(file.getName() + " retrive failed, because "
-                            + ftp.getReplyString());
+                if (!isRetrieved) {
+                    data = retrieveWholeFile(ftp, file, path);
                 }
 
-                storeFile(
-                        new ByteArrayInputStream(updateMemory(JSONBuilder
-                                .getMP3FileInformation(file.getName(), path,
-                                        getJsonLib()).toString().getBytes())),
-                        getLibraryPath());
-            } catch (FileNotFoundException e) {
-                logger.error(e);
-                logger.debug(e);
+                if (!isRetrieved && data != null) {
+                    Metrics.Timer timer = metrics.start(Metrics.Stage.PARSE,
+                            path + file.getName());
+                    isRetrieved = JSONBuilder.getMP3FileInformation(
+                            file.getName(), path, getTimestamp(file), data,
+                            getLibrary()) != null;
+                    timer.stop(file.getSize());
+                }
+            } catch (InterruptedException ie) {
+                logger.error(ie);
+                logger.debug(ie);
+                Thread.currentThread().interrupt();
             } catch (IOException ioe) {
                 logger.error(ioe);
                 logger.debug(ioe);
+            } finally {
+                getPool().release(ftp);
+
+                if (data != null) {
+                    data.close();
+                }
+            }
+
+            if (isRetrieved && fingerprint != null) {
+                getLibrary().putFingerprint(path + file.getName(), fingerprint);
+            }
+
+            if (isRetrieved && getJournal() != null) {
+                getJournal().append(path + file.getName(),
+                        getLibrary().get(path + file.getName()));
+            }
+
+            if (isRetrieved && getCache() != null) {
+                getCache().put(path + file.getName(),
+                        getLibrary().get(path + file.getName()));
+            }
+
+            if (isDuplicate) {
+                metrics.add(Metrics.Counter.FILES_DUPLICATE, 1L);
+                checkpoint();
+            } else if (isRetrieved) {
+                metrics.add(Metrics.Counter.FILES_PROCESSED, 1L);
+                checkpoint();
+            } else {
+                metrics.add(Metrics.Counter.FILES_FAILED, 1L);
+                incompleteDirectories.add(path);
+            }
+        }
+    }
+
+    /**
+     * This method retrieves whole file as InputStream from current path into
+     * memory.
+     * 
+     * @param ftp
+     *            The FTP connection used for download.
+     * @param file
+     *            The file to download.
+     * @param path
+     *            The location of file on server side.
+     * @return The content of file, or null if retrieve failed or file is
+     *         larger than {@link AudioData#MAX_SIZE}.
+     */
+    private AudioData retrieveWholeFile(FTPClient ftp, FTPFile file,
+            String path) {
+        if (file.getSize() > AudioData.MAX_SIZE) {
+            // Such file cannot be mapped, so it is not transferred at all.
+            logger.error(file.getName() + " is too large to retrieve whole");
+            return null;
+        }
+
+        InputStream inputStream = null;
+        AudioData data = null;
+        Boolean isPending = false;
+        Metrics.Timer timer = metrics.start(Metrics.Stage.RETR, path
+                + file.getName());
+
+        try {
+            Long opened = System.nanoTime();
+            inputStream = ftp.retrieveFileStream(path + file.getName());
+
+            if (inputStream == null) {
+                logger.debug(file.getName() + " retrive failed, because "
+                        + ftp.getReplyString());
+                getController().onFailure(ftp.getReplyCode());
+                return null;
+            }
+
+            isPending = true;
+            Long started = System.nanoTime();
+            data = AudioData.fromStream(getController().limit(inputStream),
+                    file.getSize());
+            IOUtils.closeQuietly(inputStream);
+            Boolean isComplete = ftp.completePendingCommand();
+            isPending = false;
+
+            if (isComplete) {
+                logger.debug(file.getName() + " retrive succesfull");
+                getController().onSuccess(started - opened, file.getSize());
+            } else {
+                logger.debug(file.getName() + " retrive failed, because "
+                        + ftp.getReplyString());
+                getController().onFailure(ftp.getReplyCode());
+                FTPConnectionPool.abandon(ftp);
+                data.close();
+                data = null;
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            getController().onFailure(null);
+
+            if (data != null) {
+                data.close();
+                data = null;
+            }
+        } finally {
+            if (isPending) {
+                // The reply of interrupted transfer cannot be trusted.
+                IOUtils.closeQuietly(inputStream);
+                FTPConnectionPool.abandon(ftp);
             }
+
+            Long transferred = data == null ? 0L : file.getSize();
+            timer.stop(transferred);
+            metrics.add(Metrics.Counter.BYTES_IN, transferred);
         }
+
+        return data;
+    }
+
+    /**
+     * This method sets if amount of concurrent transfers is adjusted to load
+     * of server, from single transfer up to amount of connections. It must
+     * be set before first file is retrieved.
+     * 
+     * @param adaptive
+     *            the adaptive to set
+     */
+    public void setAdaptive(Boolean adaptive) {
+        this.adaptive = adaptive;
     }
 
     /**
-     * This method sets OutputStream for JSON library.
+     * This method sets local cache of entries read from files, so entries of
+     * unchanged files are restored without retrieving them, even if library
+     * is lost. It must be set before files are retrieved.
      * 
-     * @param jsonLib
-     *            the jsonLib to set
+     * @param cache
+     *            the cache to set, null if entries are not cached
      */
-    public void setJsonLib(OutputStream jsonLib) {
-        this.jsonLib = jsonLib;
+    public void setCache(MetadataCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * This method sets if library is also published in binary format.
+     * 
+     * @param binary
+     *            the binary to set
+     */
+    public void setBinary(Boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * This method sets amount of files after which library is published.
+     * 
+     * @param checkpointFiles
+     *            the checkpointFiles to set, zero disables checkpoints
+     */
+    public void setCheckpointFiles(Integer checkpointFiles) {
+        this.checkpointFiles = checkpointFiles;
+    }
+
+    /**
+     * This method sets time in milliseconds after which library is published.
+     * 
+     * @param checkpointInterval
+     *            the checkpointInterval to set, zero disables checkpoints
+     */
+    public void setCheckpointInterval(Long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * This method sets if library is also published as gzip-compressed JSON.
+     * 
+     * @param compressed
+     *            the compressed to set
+     */
+    public void setCompressed(Boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * This method sets if all directories are listed, even if their
+     * modification time is unchanged.
+     * 
+     * @param fullRescan
+     *            the fullRescan to set
+     */
+    public void setFullRescan(Boolean fullRescan) {
+        this.fullRescan = fullRescan;
+    }
+
+    /**
+     * This method sets amount of connections used by workers. It must be set
+     * before first file is retrieved.
+     * 
+     * @param connections
+     *            the connections to set
+     */
+    public void setConnections(Integer connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * This method sets if only header and trailer of audio files are
+     * retrieved, instead of whole files.
+     * 
+     * @param headerOnly
+     *            the headerOnly to set
+     */
+    public void setHeaderOnly(Boolean headerOnly) {
+        this.headerOnly = headerOnly;
+    }
+
+    /**
+     * This method sets local journal of processed files, so interrupted crawl
+     * may be resumed. It must be set before files are retrieved.
+     * 
+     * @param journal
+     *            the journal to set, null if crawl is not journaled
+     */
+    public void setJournal(CrawlJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * This method sets JSON library kept in memory.
+     * 
+     * @param library
+     *            the library to set
+     */
+    public void setLibrary(Library library) {
+        this.library = library;
     }
 
     /**
@@ -462,6 +1666,44 @@ public class FTPConnection {
         this.libraryPath = libraryPath;
     }
 
+    /**
+     * This method sets limit of bytes per second of all transfers with
+     * server. It must be set before first file is retrieved.
+     * 
+     * @param maxRate
+     *            the maxRate to set, zero for no limit
+     */
+    public void setMaxRate(Long maxRate) {
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * This method sets if connections with server are kept open between
+     * crawls, so next crawl starts without connecting and logging in.
+     * 
+     * @param persistent
+     *            the persistent to set
+     */
+    public void setPersistent(Boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * @param sharded
+     *            the sharded to set
+     */
+    public void setSharded(Boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    /**
+     * @param shardSize
+     *            the shardSize to set, zero for shard per directory
+     */
+    public void setShardSize(Integer shardSize) {
+        this.shardSize = shardSize;
+    }
+
     /**
      * This method sets timeout for FTP connection.
      * 
@@ -472,59 +1714,258 @@ public class FTPConnection {
         this.timeout = timeout;
     }
 
+    /**
+     * This method sets if each file is processed by own virtual thread. The
+     * fixed pool of threads is used, if JVM does not support virtual threads.
+     * 
+     * @param virtualThreads
+     *            the virtualThreads to set
+     */
+    public void setVirtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * This method gets the nearest directory visited during crawl, which
+     * contains given directory.
+     * 
+     * @param path
+     *            The path of directory.
+     * @return The path of given directory or of its nearest visited parent,
+     *         null if none of them was visited.
+     */
+    private String getNearestVisited(String path) {
+        String directory = path;
+
+        while (directory != null
+                && !visitedDirectories.containsKey(directory)) {
+            directory = getParent(directory);
+        }
+
+        return directory;
+    }
+
+    /**
+     * This method gets parent of given directory.
+     * 
+     * @param path
+     *            The path of directory, ending with slash.
+     * @return The path of parent directory, or null for root.
+     */
+    private static String getParent(String path) {
+        Integer separator = path.lastIndexOf('/', path.length() - 2);
+
+        return separator < 0 ? null : path.substring(0, separator + 1);
+    }
+
+    /**
+     * This method removes from JSON library entries of files, which no longer
+     * exist on server, and stores modification times of directories, which
+     * were processed completely. Entry is removed only when directory, which
+     * should contain it, was listed successfully: either its own directory
+     * without the file, or the nearest visited parent without the directory.
+     * The modification time of directory is not stored, while any directory
+     * below it is incomplete or has unknown time, so the next crawl lists it
+     * again instead of skipping whole subtree.
+     */
+    private void removeMissing() {
+        Integer removed = getLibrary().retainEntries(new Library.EntryFilter() {
+
+            @Override
+            public Boolean accept(String key, TrackEntry entry) {
+                String directory = getNearestVisited(entry.getDirectory());
+
+                if (directory == null
+                        || !listedDirectories.contains(directory)) {
+                    return true;
+                }
+
+                return directory.equals(entry.getDirectory())
+                        && visitedFiles.contains(key);
+            }
+        });
+        logger.debug("Removed " + removed + " missing files from library");
+
+        Map<String, Long> directories = new HashMap<String, Long>(
+                visitedDirectories);
+
+        for (Map.Entry<String, Long> directory : visitedDirectories.entrySet()) {
+            if (directory.getValue() != null
+                    && !incompleteDirectories.contains(directory.getKey())) {
+                continue;
+            }
+
+            // The parents of incomplete directory are not complete either.
+            String parent = directory.getKey();
+
+            while (parent != null) {
+                directories.remove(parent);
+                parent = getParent(parent);
+            }
+        }
+
+        getLibrary().setDirectories(directories);
+    }
+
     /**
      * This method stores file on server.
      * 
+     * @param ftp
+     *            The FTP connection used for storing.
      * @param inputStream
      *            The stream to storing as file on server.
      * @param path
      *            The location for storing stream as file.
+     * @return True if file was stored, false if not.
      */
-    public void storeFile(InputStream inputStream, String path) {
+    private Boolean storeFile(FTPClient ftp, InputStream inputStream,
+            String path) {
+        Boolean isStored = false;
+
         try {
-            logger.debug("Creating JSON library on server");
-            ftp.storeFile(path, inputStream);
+            logger.debug("Storing " + path + " on server");
+            isStored = ftp.storeFile(path, inputStream);
 
-            if (!(ftp.getReplyCode() == 226)) {
-                inputStream.close();
-                System.out.println(ftp.getReplyString());
-                System.exit(1);
+            if (!isStored) {
+                logger.error("Storing " + path + " failed, because "
+                        + ftp.getReplyString());
             }
-
-            inputStream.close();
-
         } catch (IOException ioe) {
             logger.error(ioe);
             logger.debug(ioe);
+        } finally {
+            IOUtils.closeQuietly(inputStream);
         }
+
+        return isStored;
+    }
+
+    /**
+     * This method stores file on server.
+     * 
+     * @param inputStream
+     *            The stream to storing as file on server.
+     * @param path
+     *            The location for storing stream as file.
+     * @return True if file was stored, false if not.
+     */
+    public Boolean storeFile(InputStream inputStream, String path) {
+        return storeFile(ftp, inputStream, path);
     }
 
     /**
-     * This method updates cache memory (Input Stream).
+     * This method submits file to workers, unless the file is already in
+     * library or is processed by other worker.
      * 
-     * @param bytes
-     * @return The updated memory.
+     * @param file
+     *            The file to retrieve.
+     * @param path
+     *            The location of file on server side.
      */
-    private byte[] updateMemory(byte[] bytes) {
-        try {
-            OutputStream outputStream = new ByteArrayOutputStream();
-            outputStream.write(bytes);
-            getJsonLib().close();
-            setJsonLib(outputStream);
-        } catch (IOException ioe) {
-            logger.error(ioe);
-            logger.debug(ioe);
+    private void submitFile(final FTPFile file, final String path) {
+        Boolean isUpdated = needsUpdate(file, path);
+
+        if (!isUpdated) {
+            metrics.add(Metrics.Counter.FILES_SKIPPED, 1L);
+            cacheEntry(file, path);
+        }
+
+        if (isUpdated && restoreCached(file, path)) {
+            metrics.add(Metrics.Counter.FILES_CACHED, 1L);
+            checkpoint();
+            isUpdated = false;
         }
 
-        return bytes;
+        if (!isUpdated || !inProgress.add(path + file.getName())) {
+            fileProcessed();
+            return;
+        }
+
+        workers.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    getController().acquire();
+
+                    try {
+                        retrieveInputStream(file, path);
+                    } finally {
+                        getController().release();
+                    }
+                } finally {
+                    inProgress.remove(path + file.getName());
+                    fileProcessed();
+                }
+            }
+        });
+
+        if (workers instanceof ThreadPoolExecutor) {
+            metrics.observeQueueDepth(((ThreadPoolExecutor) workers)
+                    .getQueue().size());
+        } else {
+            // Virtual threads wait for permits instead of queue.
+            metrics.observeQueueDepth(getController().getWaiting());
+        }
+    }
+
+    /**
+     * This method visits subdirectory. If modification time of directory is
+     * the same as during last crawl, the set of its files has not changed, so
+     * the directory is not listed again. Only its known subdirectories are
+     * checked with MLST command, which does not need data connection.
+     * 
+     * @param path
+     *            The path of directory.
+     * @param modified
+     *            The modification time of directory, may be null.
+     */
+    private void visitDirectory(String path, Long modified) {
+        visitedDirectories.put(path, modified);
+
+        if (isFullRescan() || modified == null
+                || !modified.equals(getLibrary().getDirectoryModified(path))) {
+            if (retrieveDirectory(path)) {
+                listedDirectories.add(path);
+            } else {
+                incompleteDirectories.add(path);
+            }
+
+            return;
+        }
+
+        logger.debug(path + " unchanged since last crawl");
+
+        for (String subdirectory : getLibrary().getSubdirectories(path)) {
+            FTPFile directory = null;
+
+            Metrics.Timer timer = metrics.start(Metrics.Stage.LIST,
+                    subdirectory);
+
+            try {
+                directory = ftp.mlistFile(subdirectory);
+            } catch (IOException ioe) {
+                logger.error(ioe);
+                logger.debug(ioe);
+            } finally {
+                timer.stop(null);
+            }
+
+            visitDirectory(subdirectory, directory == null ? null
+                    : getTimestamp(directory));
+        }
     }
 
     /**
      * This method shows the progress of retrieve file from server.
      * 
-     * @param progressPercentage
+     * @param current
+     *            The amount of processed files.
+     * @param total
+     *            The amount of files discovered so far.
      */
-    private void updateProgress(Double progressPercentage) {
+    private synchronized void updateProgress(Integer current, Integer total) {
+        Double progressPercentage = total > 0 ? (double) current / total : 0.0;
         // Progress bar width in chars.
         final Integer width = 50;
         System.out.print("\r[");
@@ -538,6 +1979,92 @@ public class FTPConnection {
             System.out.print(" ");
         }
 
-        System.out.print("] " + (int) (progressPercentage * 100) + "% ");
+        System.out.print("] " + (int) (progressPercentage * 100) + "% ("
+                + current + "/" + total + ") ");
+    }
+
+    /**
+     * This method publishes JSON library from memory on server. The lock of
+     * publishing must be held.
+     * 
+     * @return True if library was published, false if not.
+     */
+    private Boolean uploadLibrary() {
+        String temporaryPath = getLibraryPath() + JSONBuilder.TEMP_EXTENSION;
+        Long changes = getLibrary().getChanges();
+        Boolean isPublished = false;
+        FTPClient ftp = null;
+
+        try {
+            ftp = getPool().borrow();
+            ByteArrayOutputStream compressedLibrary = null;
+            ByteArrayOutputStream binaryLibrary = null;
+
+            if (isCompressed()) {
+                compressedLibrary = new ByteArrayOutputStream();
+            }
+
+            if (isBinary()) {
+                binaryLibrary = new ByteArrayOutputStream();
+            }
+
+            logger.debug("Creating JSON library on server");
+            Metrics.Timer timer = metrics.start(Metrics.Stage.STOR,
+                    getLibraryPath());
+            CountingOutputStream outputStream = new CountingOutputStream(
+                    beginStore(ftp, temporaryPath));
+
+            try {
+                getLibrary().writeTo(outputStream, compressedLibrary,
+                        binaryLibrary);
+            } finally {
+                IOUtils.closeQuietly(outputStream);
+            }
+
+            endStore(ftp, temporaryPath);
+            replaceFile(ftp, temporaryPath, getLibraryPath());
+            timer.stop(outputStream.getByteCount());
+            metrics.add(Metrics.Counter.BYTES_OUT,
+                    outputStream.getByteCount());
+
+            if (compressedLibrary != null) {
+                publishFile(ftp, getLibraryPath() + JSONBuilder.GZIP_EXTENSION,
+                        compressedLibrary.toByteArray());
+            }
+
+            if (binaryLibrary != null) {
+                publishFile(ftp, getLibraryDirectory()
+                        + BinaryLibraryWriter.BINARY_FILE,
+                        binaryLibrary.toByteArray());
+            }
+
+            if (isSharded()) {
+                publishShards(ftp);
+            }
+
+            isPublished = true;
+            publishedChanges = changes;
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } catch (InterruptedException ie) {
+            logger.error(ie);
+            logger.debug(ie);
+            Thread.currentThread().interrupt();
+        } finally {
+            if (isPublished) {
+                getPool().release(ftp);
+            } else {
+                // Upload may be still pending after failed write.
+                getPool().invalidate(ftp);
+            }
+        }
+
+        filesSinceCheckpoint.set(0);
+        lastCheckpoint.set(System.currentTimeMillis());
+        logger.debug("Library published, header retrievers transferred "
+                + bytesTransferred.get() + " bytes");
+
+        return isPublished;
     }
 }
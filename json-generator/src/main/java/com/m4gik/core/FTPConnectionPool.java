@@ -0,0 +1,366 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPReply;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class keeps pool of logged FTP connections with the same server. The
+ * connections are created lazily up to size of pool. The amount of connections
+ * with single host is also limited across all pools. The connection idle for
+ * long time is checked before it is borrowed, because server may close it.
+ * The connection returned with transfer still pending is closed, so reply of
+ * that transfer is never read as reply of next command.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class FTPConnectionPool {
+
+    /**
+     * The default limit of connections with single host.
+     */
+    public final static Integer DEFAULT_HOST_LIMIT = 8;
+
+    /**
+     * The time in milliseconds, after which idle connection is checked before
+     * it is borrowed.
+     */
+    private final static Long CHECK_IDLE_TIME = 15000L;
+
+    /**
+     * The time in milliseconds, after which borrower waiting for limit of
+     * host checks again for released connection.
+     */
+    private final static Long HOST_WAIT_TIME = 100L;
+
+    /**
+     * The limits of connections per host, shared by all pools.
+     */
+    private final static ConcurrentMap<String, Semaphore> hostLimits = new ConcurrentHashMap<String, Semaphore>();
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(FTPConnectionPool.class
+            .getName());
+
+    /**
+     * This method closes connection, which transfer could not be completed,
+     * so reply of that transfer is never read as reply of next command. The
+     * closed connection is invalidated, when it is released to pool.
+     * 
+     * @param ftp
+     *            The connection with failed transfer.
+     */
+    public static void abandon(FTPClient ftp) {
+        try {
+            ftp.disconnect();
+        } catch (IOException ioe) {
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method makes logged FTP connection with server.
+     * 
+     * @param server
+     *            The address of server, optionally with port after colon.
+     * @param username
+     * @param password
+     * @param timeout
+     *            The timeout for connection, may be null.
+     * @return The logged FTPClient connection.
+     * @throws IOException
+     *             If connection or login failed.
+     */
+    public static FTPClient connect(String server, String username,
+            String password, Long timeout) throws IOException {
+        FTPClient ftp = new FTPClient();
+        Integer colon = server.lastIndexOf(':');
+
+        if (colon > 0 && server.indexOf(':') == colon) {
+            ftp.connect(server.substring(0, colon),
+                    Integer.valueOf(server.substring(colon + 1)));
+        } else {
+            ftp.connect(server);
+        }
+
+        ftp.enterLocalPassiveMode();
+        ftp.setCharset(Charset.forName("utf8"));
+        ftp.setAutodetectUTF8(true);
+
+        if (!ftp.login(username, password)) {
+            String reply = ftp.getReplyString();
+            ftp.disconnect();
+            throw new IOException("Login to " + server + " failed, because "
+                    + reply);
+        }
+
+        ftp.setFileType(FTP.BINARY_FILE_TYPE);
+
+        if (timeout != null) {
+            ftp.setDefaultTimeout(timeout.intValue());
+        }
+
+        return ftp;
+    }
+
+    /**
+     * This method sets limit of connections with given host. The limit must be
+     * set before first pool for this host is created.
+     * 
+     * @param server
+     *            The address of host.
+     * @param limit
+     *            The maximum amount of connections.
+     */
+    public static void setHostLimit(String server, Integer limit) {
+        hostLimits.putIfAbsent(server, new Semaphore(limit, true));
+    }
+
+    /**
+     * The times of release of idle connections.
+     */
+    private final ConcurrentMap<FTPClient, Long> idleSince = new ConcurrentHashMap<FTPClient, Long>();
+
+    /**
+     * The idle connections ready to borrow.
+     */
+    private final BlockingQueue<FTPClient> idle = new LinkedBlockingQueue<FTPClient>();
+
+    /**
+     * The password for connections.
+     */
+    private final String password;
+
+    /**
+     * The permits for borrowed connections, one per connection of pool.
+     */
+    private final Semaphore permits;
+
+    /**
+     * The address of server.
+     */
+    private final String server;
+
+    /**
+     * The maximum amount of connections in this pool.
+     */
+    private final Integer size;
+
+    /**
+     * The timeout for connections, may be null.
+     */
+    private final Long timeout;
+
+    /**
+     * The user name for connections.
+     */
+    private final String username;
+
+    /**
+     * The constructor for {@link FTPConnectionPool}.
+     * 
+     * @param server
+     * @param username
+     * @param password
+     * @param timeout
+     * @param size
+     *            The maximum amount of connections in pool.
+     */
+    public FTPConnectionPool(String server, String username, String password,
+            Long timeout, Integer size) {
+        this.server = server;
+        this.username = username;
+        this.password = password;
+        this.timeout = timeout;
+        this.size = size;
+        this.permits = new Semaphore(size, true);
+        setHostLimit(server, DEFAULT_HOST_LIMIT);
+    }
+
+    /**
+     * This method borrows connection from pool. If there is no idle connection
+     * and pool is not full, new connection is created, otherwise this method
+     * waits for released connection. While limit of host is reached, idle
+     * connections are checked again, until connection is released or closed.
+     * 
+     * @return The logged FTP connection.
+     * @throws IOException
+     *             If new connection cannot be created.
+     * @throws InterruptedException
+     */
+    public FTPClient borrow() throws IOException, InterruptedException {
+        permits.acquire();
+        Boolean isBorrowed = false;
+
+        try {
+            FTPClient ftp = null;
+            Semaphore hostLimit = hostLimits.get(server);
+
+            while (true) {
+                while ((ftp = idle.poll()) != null) {
+                    if (isOpen(ftp)) {
+                        isBorrowed = true;
+                        return ftp;
+                    }
+
+                    logger.debug("Idle connection to " + server
+                            + " was closed");
+                    discard(ftp);
+                }
+
+                if (hostLimit.tryAcquire(HOST_WAIT_TIME,
+                        TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+
+            try {
+                logger.debug("Opening connection to " + server);
+                ftp = connect(server, username, password, timeout);
+                isBorrowed = true;
+                return ftp;
+            } catch (IOException ioe) {
+                hostLimit.release();
+                throw ioe;
+            }
+        } finally {
+            if (!isBorrowed) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * This method closes all idle connections of this pool.
+     */
+    public void close() {
+        FTPClient ftp = null;
+
+        while ((ftp = idle.poll()) != null) {
+            discard(ftp);
+        }
+    }
+
+    /**
+     * This method closes connection, which is not borrowed, and releases its
+     * place in limit of host.
+     * 
+     * @param ftp
+     *            The connection to close.
+     */
+    private void discard(FTPClient ftp) {
+        idleSince.remove(ftp);
+
+        try {
+            // Logout would read reply of pending transfer instead of its own.
+            if (ftp.isConnected()
+                    && !FTPReply.isPositivePreliminary(ftp.getReplyCode())) {
+                ftp.logout();
+            }
+        } catch (IOException ioe) {
+            logger.debug(ioe);
+        } finally {
+            try {
+                ftp.disconnect();
+            } catch (IOException ioe) {
+                logger.debug(ioe);
+            }
+
+            hostLimits.get(server).release();
+        }
+    }
+
+    /**
+     * @return the size
+     */
+    public Integer getSize() {
+        return size;
+    }
+
+    /**
+     * This method checks if idle connection is still open. The connection
+     * idle for long time is checked with NOOP command.
+     * 
+     * @param ftp
+     *            The idle connection.
+     * @return True if connection may be borrowed.
+     */
+    private Boolean isOpen(FTPClient ftp) {
+        Long since = idleSince.remove(ftp);
+
+        if (since != null
+                && System.currentTimeMillis() - since < CHECK_IDLE_TIME) {
+            return ftp.isConnected();
+        }
+
+        try {
+            return ftp.isConnected() && ftp.sendNoOp();
+        } catch (IOException ioe) {
+            logger.debug(ioe);
+            return false;
+        }
+    }
+
+    /**
+     * This method closes borrowed connection and removes it from pool, so
+     * waiting borrower may open new one.
+     * 
+     * @param ftp
+     *            The broken or unnecessary connection, may be null.
+     */
+    public void invalidate(FTPClient ftp) {
+        if (ftp == null) {
+            return;
+        }
+
+        try {
+            discard(ftp);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * This method returns borrowed connection to pool. Disconnected connection,
+     * or connection which still waits for reply of transfer, is removed from
+     * pool.
+     * 
+     * @param ftp
+     *            The borrowed connection, may be null.
+     */
+    public void release(FTPClient ftp) {
+        if (ftp == null) {
+            return;
+        }
+
+        if (!ftp.isConnected()
+                || FTPReply.isPositivePreliminary(ftp.getReplyCode())) {
+            logger.debug("Connection to " + server + " is not reusable");
+            invalidate(ftp);
+            return;
+        }
+
+        idleSince.put(ftp, System.currentTimeMillis());
+        idle.offer(ftp);
+        permits.release();
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.m4gik.util.AudioData;
+import com.m4gik.util.AudioFingerprint;
+import com.m4gik.util.Metrics;
+
+/**
+ * This class retrieves only parts of audio file, which are needed to read tags
+ * and audio header. The parts are fetched with REST offsets when the parser
+ * reads them, so large frames like attached pictures, which are skipped by
+ * parser, are never transferred. Each fetch reads ahead a block of file, which
+ * usually covers several frames of tag. The retriever also fetches first and
+ * last block of files to compute their fingerprints.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class HeaderRetriever implements AudioData.RangeLoader {
+
+    /**
+     * The files up to this size are downloaded whole.
+     */
+    private final static Integer MIN_SIZE = 64 * 1024;
+
+    /**
+     * The minimal amount of bytes fetched in single request.
+     */
+    private final static Integer READ_AHEAD_SIZE = 16 * 1024;
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(HeaderRetriever.class
+            .getName());
+
+    /**
+     * The amount of bytes transferred by this retriever.
+     */
+    private Long bytesTransferred = 0L;
+
+    /**
+     * The controller of transfers with server.
+     */
+    private final TransferController controller;
+
+    /**
+     * True if range could not be retrieved. The connection may be closed
+     * then, so no more ranges are requested.
+     */
+    private Boolean failed = false;
+
+    /**
+     * The file, which is retrieved.
+     */
+    private FTPFile file;
+
+    /**
+     * The FTP connection used to fetch parts of files.
+     */
+    private final FTPClient ftp;
+
+    /**
+     * The metrics, which record each retrieved range.
+     */
+    private final Metrics metrics;
+
+    /**
+     * The location of retrieved file on server side.
+     */
+    private String remote;
+
+    /**
+     * The time spent on retrieving ranges in nanoseconds.
+     */
+    private Long transferNanos = 0L;
+
+    /**
+     * The constructor for {@link HeaderRetriever}.
+     * 
+     * @param ftp
+     *            The logged FTP connection.
+     * @param metrics
+     *            The metrics of run.
+     * @param controller
+     *            The controller of transfers with server.
+     */
+    public HeaderRetriever(FTPClient ftp, Metrics metrics,
+            TransferController controller) {
+        this.ftp = ftp;
+        this.metrics = metrics;
+        this.controller = controller;
+    }
+
+    /**
+     * This method computes fingerprint of remote file. Only first and last
+     * block of file are retrieved.
+     * 
+     * @param size
+     *            The size of file.
+     * @param remote
+     *            The location of file on server side.
+     * @return The fingerprint or null if blocks of file cannot be retrieved.
+     */
+    public String fingerprint(Long size, String remote) {
+        Integer headLength = AudioFingerprint.getHeadLength(size);
+        Integer tailLength = AudioFingerprint.getTailLength(size);
+        byte[] head = retrieveTimed(remote, 0L, headLength);
+        byte[] tail = tailLength > 0 ? retrieveTimed(remote, size
+                - tailLength, tailLength) : new byte[0];
+
+        if (head == null || tail == null || head.length < headLength
+                || tail.length < tailLength) {
+            return null;
+        }
+
+        return AudioFingerprint.compute(size, head, tail);
+    }
+
+    /**
+     * @return the bytesTransferred
+     */
+    public Long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * @return the transferNanos
+     */
+    public Long getTransferNanos() {
+        return transferNanos;
+    }
+
+    /**
+     * This method loads given range of remote file, with read ahead.
+     * 
+     * @see com.m4gik.util.AudioData.RangeLoader#load(java.lang.Long,
+     *      java.lang.Integer)
+     */
+    @Override
+    public byte[] load(Long offset, Integer length) throws IOException {
+        Long size = file.getSize();
+        Integer amount = (int) Math.min(Math.max(length, READ_AHEAD_SIZE),
+                size - offset);
+
+        return retrieveTimed(remote, offset, amount);
+    }
+
+    /**
+     * This method prepares partial content of given file. The content is
+     * retrieved, when it is read.
+     * 
+     * @param file
+     *            The file to retrieve.
+     * @param path
+     *            The location of file on server side.
+     * @return The partial content of file, or null if file needs full
+     *         download.
+     */
+    public AudioData retrieve(FTPFile file, String path) {
+        if (file.getSize() <= MIN_SIZE) {
+            return null;
+        }
+
+        this.file = file;
+        this.remote = path + file.getName();
+
+        return AudioData.fromLoader(file.getSize(), this);
+    }
+
+    /**
+     * This method retrieves given range of remote file. The transfer is
+     * aborted as soon as needed amount of bytes is read.
+     * 
+     * @param remote
+     *            The location of file on server side.
+     * @param offset
+     *            The offset of range.
+     * @param length
+     *            The length of range.
+     * @return The retrieved bytes or null if server does not support range
+     *         retrieval.
+     */
+    private byte[] retrieveRange(String remote, Long offset, Integer length) {
+        byte[] buffer = new byte[length];
+        InputStream inputStream = null;
+        Integer read = 0;
+        Boolean isPending = false;
+
+        try {
+            ftp.setRestartOffset(offset);
+            Long opened = System.nanoTime();
+            inputStream = ftp.retrieveFileStream(remote);
+
+            if (inputStream == null) {
+                logger.debug(remote + " range retrieve failed, because "
+                        + ftp.getReplyString());
+                controller.onFailure(ftp.getReplyCode());
+                return null;
+            }
+
+            isPending = true;
+            Long started = System.nanoTime();
+            read = IOUtils.read(controller.limit(inputStream), buffer, 0,
+                    length);
+            IOUtils.closeQuietly(inputStream);
+            Boolean isComplete = ftp.completePendingCommand();
+            isPending = false;
+
+            // Reply is negative, when transfer was aborted before end of file,
+            // which is expected only if the whole range was read.
+            if (!isComplete && read < length) {
+                logger.debug(remote + " range retrieve aborted, because "
+                        + ftp.getReplyString());
+                controller.onFailure(ftp.getReplyCode());
+                FTPConnectionPool.abandon(ftp);
+                return null;
+            }
+
+            controller.onSuccess(started - opened, (long) read);
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            controller.onFailure(null);
+            return null;
+        } finally {
+            if (isPending) {
+                // The reply of interrupted transfer cannot be trusted.
+                IOUtils.closeQuietly(inputStream);
+                FTPConnectionPool.abandon(ftp);
+            }
+
+            ftp.setRestartOffset(0L);
+        }
+
+        bytesTransferred += read;
+        metrics.add(Metrics.Counter.BYTES_IN, (long) read);
+
+        if (read < length) {
+            byte[] bytes = new byte[read];
+            System.arraycopy(buffer, 0, bytes, 0, read);
+            return bytes;
+        }
+
+        return buffer;
+    }
+
+    /**
+     * This method retrieves given range of remote file and records time of
+     * transfer. After the first failed range, no more ranges are retrieved.
+     * 
+     * @param remote
+     *            The location of file on server side.
+     * @param offset
+     *            The offset of range.
+     * @param length
+     *            The length of range.
+     * @return The retrieved bytes or null if server does not support range
+     *         retrieval.
+     */
+    private byte[] retrieveTimed(String remote, Long offset, Integer length) {
+        if (failed) {
+            return null;
+        }
+
+        Metrics.Timer timer = metrics.start(Metrics.Stage.RETR, remote);
+        byte[] bytes = retrieveRange(remote, offset, length);
+        timer.stop(bytes == null ? 0L : bytes.length);
+        transferNanos += timer.getNanos();
+        failed = bytes == null;
+
+        return bytes;
+    }
+}
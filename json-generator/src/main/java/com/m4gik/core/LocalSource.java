@@ -0,0 +1,508 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.m4gik.util.AudioData;
+import com.m4gik.util.BinaryLibraryWriter;
+import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+import com.m4gik.util.Metrics;
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class is the source of audio files stored on local disk, for example
+ * archive mounted next to web server. The directories are walked in parallel
+ * by fork-join pool, each directory is single task, which forks tasks for its
+ * subdirectories. The files are memory-mapped and parsed in place, without
+ * copying. The JSON library is written to the root directory of crawl.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class LocalSource implements AudioSource {
+
+    /**
+     * The prefix of server address, which selects local source.
+     */
+    public final static String SCHEME = "file:";
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(LocalSource.class
+            .getName());
+
+    /**
+     * This method converts path of directory to path used in library, with
+     * forward slashes and trailing slash.
+     * 
+     * @param directory
+     *            The path of directory.
+     * @return The path of directory in library.
+     */
+    private static String toLibraryPath(Path directory) {
+        String path = directory.toString().replace(File.separatorChar, '/');
+
+        return path.endsWith("/") ? path : path + "/";
+    }
+
+    /**
+     * True if library is also written in binary format.
+     */
+    private Boolean binary = false;
+
+    /**
+     * True if library is also written compressed with gzip.
+     */
+    private Boolean compressed = true;
+
+    /**
+     * The amount of threads, which walk directories and parse files.
+     */
+    private Integer connections = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The directories, which could not be listed during crawl.
+     */
+    private final Set<String> incompleteDirectories = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The JSON library kept in memory.
+     */
+    private Library library;
+
+    /**
+     * The metrics of stages, transfers and files of run.
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * The amount of changes of library, when it was published last time, null
+     * if it was not published yet.
+     */
+    private Long publishedChanges = null;
+
+    /**
+     * The locations of audio files found during crawl.
+     */
+    private final Set<String> visitedFiles = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The constructor for {@link LocalSource}. This constructor reads JSON
+     * library from given directory, if library does not exist, it creates one.
+     * 
+     * @param path
+     *            The root directory of audio files.
+     */
+    public LocalSource(String path) {
+        File libraryFile = getLibraryFile(path);
+        InputStream inputStream = null;
+
+        if (libraryFile.exists()) {
+            try {
+                inputStream = new FileInputStream(libraryFile);
+                Metrics.Timer timer = metrics.start(Metrics.Stage.JSON,
+                        libraryFile.getPath());
+                library = Library.readFrom(inputStream);
+                timer.stop(libraryFile.length());
+                library.rekeyByLocation();
+            } catch (IOException ioe) {
+                logger.error(ioe);
+                logger.debug(ioe);
+            } finally {
+                IOUtils.closeQuietly(inputStream);
+            }
+        }
+
+        if (library == null) {
+            library = JSONBuilder.initLibrary();
+        }
+    }
+
+    /**
+     * This method does nothing, local source keeps no connections.
+     * 
+     * @see com.m4gik.core.AudioSource#disconnect()
+     */
+    @Override
+    public void disconnect() {
+    }
+
+    /**
+     * @return the connections
+     */
+    public Integer getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return the library
+     */
+    @Override
+    public Library getLibrary() {
+        return library;
+    }
+
+    /**
+     * This method gets JSON library file in given directory.
+     * 
+     * @param path
+     *            The root directory of audio files.
+     * @return The library file.
+     */
+    private File getLibraryFile(String path) {
+        return new File(path, JSONBuilder.JSON_FILE);
+    }
+
+    /**
+     * @return the metrics
+     */
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return True if library is also written in binary format.
+     */
+    public Boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * @return True if library is also written compressed with gzip.
+     */
+    public Boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * This method checks if local file is new or changed since it was stored
+     * in JSON library.
+     * 
+     * @param location
+     *            The location of file in library.
+     * @param attributes
+     *            The attributes of file.
+     * @return True if file needs to be processed, false if not.
+     */
+    private Boolean needsUpdate(String location,
+            BasicFileAttributes attributes) {
+        TrackEntry entry = getLibrary().get(location);
+
+        return entry == null
+                || !entry.getSize().equals(String.valueOf(attributes.size()))
+                || !entry.getModified().equals(
+                        String.valueOf(attributes.lastModifiedTime()
+                                .toMillis()));
+    }
+
+    /**
+     * This method writes JSON library to the root directory of crawl. The
+     * library is written under temporary name first and then moved over the
+     * live library, so web page never reads half-written file.
+     * 
+     * @param path
+     *            The root directory of audio files.
+     * @return True if library was written, false if not.
+     */
+    public Boolean publishLibrary(String path) {
+        Long changes = getLibrary().getChanges();
+        File libraryFile = getLibraryFile(path);
+        File compressedFile = new File(libraryFile.getPath()
+                + JSONBuilder.GZIP_EXTENSION);
+        File binaryFile = new File(path, BinaryLibraryWriter.BINARY_FILE);
+        List<File> files = new ArrayList<File>();
+        OutputStream outputStream = null;
+        OutputStream compressedStream = null;
+        OutputStream binaryStream = null;
+
+        try {
+            Metrics.Timer timer = metrics.start(Metrics.Stage.STOR,
+                    libraryFile.getPath());
+            files.add(libraryFile);
+            outputStream = new FileOutputStream(toTemporary(libraryFile));
+
+            if (isCompressed()) {
+                files.add(compressedFile);
+                compressedStream = new FileOutputStream(
+                        toTemporary(compressedFile));
+            }
+
+            if (isBinary()) {
+                files.add(binaryFile);
+                binaryStream = new FileOutputStream(toTemporary(binaryFile));
+            }
+
+            getLibrary().writeTo(outputStream, compressedStream, binaryStream);
+
+            for (File file : files) {
+                Files.move(toTemporary(file).toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            timer.stop(libraryFile.length());
+            metrics.add(Metrics.Counter.BYTES_OUT, libraryFile.length());
+            logger.debug("Library written to " + libraryFile);
+            publishedChanges = changes;
+
+            return true;
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+            IOUtils.closeQuietly(compressedStream);
+            IOUtils.closeQuietly(binaryStream);
+        }
+
+        return false;
+    }
+
+    /**
+     * This method retrieves information about single audio file.
+     * 
+     * @param file
+     *            The audio file.
+     * @param attributes
+     *            The attributes of file.
+     */
+    private void retrieveFile(Path file, BasicFileAttributes attributes) {
+        String path = toLibraryPath(file.getParent());
+        String name = file.getFileName().toString();
+        visitedFiles.add(path + name);
+
+        if (!needsUpdate(path + name, attributes)) {
+            metrics.add(Metrics.Counter.FILES_SKIPPED, 1L);
+            return;
+        }
+
+        AudioData data = null;
+        Boolean isRetrieved = false;
+
+        try {
+            Metrics.Timer timer = metrics.start(Metrics.Stage.RETR, path
+                    + name);
+            data = AudioData.fromFile(file.toFile());
+            timer.stop(attributes.size());
+            metrics.add(Metrics.Counter.BYTES_IN, attributes.size());
+            timer = metrics.start(Metrics.Stage.PARSE, path + name);
+            isRetrieved = JSONBuilder.getMP3FileInformation(name, path,
+                    attributes.lastModifiedTime().toMillis(), data,
+                    getLibrary()) != null;
+            timer.stop(attributes.size());
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } finally {
+            if (data != null) {
+                data.close();
+            }
+        }
+
+        metrics.add(isRetrieved ? Metrics.Counter.FILES_PROCESSED
+                : Metrics.Counter.FILES_FAILED, 1L);
+    }
+
+    /**
+     * This method retrieves files from given directory and its subdirectories
+     * in parallel, removes files, which no longer exist, from library and
+     * writes library to given directory.
+     * 
+     * @see com.m4gik.core.AudioSource#retrieveFiles(java.lang.String)
+     */
+    @Override
+    public void retrieveFiles(String path) {
+        final Path root = Paths.get(path).toAbsolutePath().normalize();
+        final String rootPath = toLibraryPath(root);
+        JSONBuilder.updateJsonHeader(getLibrary());
+        visitedFiles.clear();
+        incompleteDirectories.clear();
+        ForkJoinPool pool = new ForkJoinPool(getConnections());
+
+        try {
+            pool.invoke(new DirectoryTask(root));
+        } finally {
+            pool.shutdown();
+        }
+
+        Integer removed = getLibrary().retainEntries(new Library.EntryFilter() {
+
+            @Override
+            public Boolean accept(String key, TrackEntry entry) {
+                if (!entry.getDirectory().startsWith(rootPath)
+                        || visitedFiles.contains(key)) {
+                    return true;
+                }
+
+                for (String directory : incompleteDirectories) {
+                    if (entry.getDirectory().startsWith(directory)) {
+                        return true;
+                    }
+                }
+
+                return false;
+            }
+        });
+        logger.debug("Audio files found - " + visitedFiles.size()
+                + ", removed from library - " + removed);
+
+        if (getLibrary().getChanges().equals(publishedChanges)) {
+            logger.debug("Library unchanged since last publish");
+        } else {
+            publishLibrary(path);
+        }
+    }
+
+    /**
+     * @param binary
+     *            the binary to set
+     */
+    public void setBinary(Boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * @param compressed
+     *            the compressed to set
+     */
+    public void setCompressed(Boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * This method sets amount of threads, which walk directories and parse
+     * files. It must be set before files are retrieved.
+     * 
+     * @param connections
+     *            the connections to set
+     */
+    public void setConnections(Integer connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * This method gets temporary file, which is moved over given file when it
+     * is written.
+     * 
+     * @param file
+     * @return The temporary file.
+     */
+    private File toTemporary(File file) {
+        return new File(file.getPath() + JSONBuilder.TEMP_EXTENSION);
+    }
+
+    /**
+     * This class walks single directory. The subdirectories are forked as new
+     * tasks before audio files of directory are parsed, so idle threads of
+     * pool steal them.
+     */
+    private class DirectoryTask extends RecursiveAction {
+
+        /**
+         * The serial version of task.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The walked directory.
+         */
+        private final Path directory;
+
+        /**
+         * The constructor for {@link DirectoryTask}.
+         * 
+         * @param directory
+         */
+        private DirectoryTask(Path directory) {
+            this.directory = directory;
+        }
+
+        /**
+         * This method lists directory, forks tasks for subdirectories, parses
+         * audio files and waits for subdirectories.
+         * 
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<DirectoryTask>();
+            List<Path> files = new ArrayList<Path>();
+            List<BasicFileAttributes> attributes;
+            attributes = new ArrayList<BasicFileAttributes>();
+            DirectoryStream<Path> stream = null;
+            Metrics.Timer timer = metrics.start(Metrics.Stage.LIST,
+                    directory.toString());
+
+            try {
+                stream = Files.newDirectoryStream(directory);
+
+                for (Path child : stream) {
+                    // Links are not followed, so walk never loops.
+                    BasicFileAttributes childAttributes = Files
+                            .readAttributes(child, BasicFileAttributes.class,
+                                    LinkOption.NOFOLLOW_LINKS);
+
+                    if (childAttributes.isDirectory()) {
+                        subdirectories.add(new DirectoryTask(child));
+                    } else if (childAttributes.isRegularFile()
+                            && child.getFileName().toString().toLowerCase()
+                                    .endsWith(".mp3")) {
+                        files.add(child);
+                        attributes.add(childAttributes);
+                    }
+                }
+            } catch (IOException ioe) {
+                logger.error(ioe);
+                logger.debug(ioe);
+                incompleteDirectories.add(toLibraryPath(directory));
+            } finally {
+                IOUtils.closeQuietly(stream);
+                timer.stop(null);
+            }
+
+            for (DirectoryTask subdirectory : subdirectories) {
+                subdirectory.fork();
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                retrieveFile(files.get(i), attributes.get(i));
+            }
+
+            for (DirectoryTask subdirectory : subdirectories) {
+                subdirectory.join();
+            }
+        }
+    }
+}
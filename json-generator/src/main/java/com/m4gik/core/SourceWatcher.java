@@ -0,0 +1,195 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.m4gik.util.Metrics;
+
+/**
+ * This class keeps crawling source of audio files in long-running process.
+ * The source is crawled again after interval, or sooner when trigger file
+ * appears next to properties, so newly uploaded files are published without
+ * waiting for the next scheduled crawl. The library stays in memory and the
+ * connections of source stay open between crawls, so each crawl only lists
+ * changed directories and retrieves new files. The library is published only
+ * when crawl changed it.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SourceWatcher implements Runnable {
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(SourceWatcher.class
+            .getName());
+
+    /**
+     * The name of file, which starts crawl before interval elapses.
+     */
+    public final static String TRIGGER_FILE = "audio-search.trigger";
+
+    /**
+     * The time in milliseconds between checks of trigger file.
+     */
+    private final static Long TRIGGER_INTERVAL = 1000L;
+
+    /**
+     * The time in milliseconds between crawls.
+     */
+    private final Long interval;
+
+    /**
+     * The path for audio files location.
+     */
+    private final String path;
+
+    /**
+     * True while watcher runs, false once it is stopped.
+     */
+    private volatile Boolean running = true;
+
+    /**
+     * The source of audio files.
+     */
+    private final AudioSource source;
+
+    /**
+     * The latch released when watcher finishes its last crawl.
+     */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /**
+     * The file, which starts crawl before interval elapses.
+     */
+    private final File trigger;
+
+    /**
+     * The constructor for {@link SourceWatcher}.
+     * 
+     * @param source
+     *            The source of audio files.
+     * @param path
+     *            The path for audio files location.
+     * @param interval
+     *            The time in milliseconds between crawls.
+     * @param trigger
+     *            The file, which starts crawl before interval elapses.
+     */
+    public SourceWatcher(AudioSource source, String path, Long interval,
+            File trigger) {
+        this.source = source;
+        this.path = path;
+        this.interval = interval;
+        this.trigger = trigger;
+    }
+
+    /**
+     * This method adds hook, which stops watcher when process is terminated
+     * and waits until current crawl finishes.
+     * 
+     * @param timeout
+     *            The time in milliseconds to wait for current crawl.
+     */
+    public void addShutdownHook(final Long timeout) {
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+
+            @Override
+            public void run() {
+                SourceWatcher.this.stop();
+
+                try {
+                    stopped.await(timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    logger.debug(ie);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return True while watcher runs, false once it is stopped.
+     */
+    public Boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * This method crawls source, until watcher is stopped. Between crawls it
+     * waits for interval or for trigger file, which is deleted once noticed.
+     * Failed crawl does not stop watcher.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                try {
+                    source.retrieveFiles(path);
+                    // Metrics are written next to properties for node
+                    // exporter.
+                    source.getMetrics().writeFiles(
+                            new File(Metrics.PROMETHEUS_FILE),
+                            new File(Metrics.SUMMARY_FILE));
+                } catch (RuntimeException re) {
+                    // Failed crawl is repeated after interval.
+                    logger.error(re);
+                    logger.debug(re);
+                }
+
+                waitForCrawl();
+            }
+        } finally {
+            source.disconnect();
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * This method stops watcher after current crawl.
+     */
+    public synchronized void stop() {
+        running = false;
+        notifyAll();
+    }
+
+    /**
+     * This method waits until interval elapses, trigger file appears or
+     * watcher is stopped.
+     */
+    private synchronized void waitForCrawl() {
+        Long deadline = System.currentTimeMillis() + interval;
+        Long remaining = interval;
+
+        while (running && remaining > 0) {
+            if (trigger.exists()) {
+                logger.debug("Crawl triggered by " + trigger);
+
+                if (!trigger.delete()) {
+                    logger.error("Deleting trigger " + trigger + " failed");
+                }
+
+                return;
+            }
+
+            try {
+                wait(Math.min(remaining, TRIGGER_INTERVAL));
+            } catch (InterruptedException ie) {
+                logger.debug(ie);
+                running = false;
+                Thread.currentThread().interrupt();
+            }
+
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+}
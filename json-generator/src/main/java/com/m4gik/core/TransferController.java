@@ -0,0 +1,490 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class limits transfers of workers with FTP server. The amount of
+ * concurrent transfers is adjusted by additive increase and multiplicative
+ * decrease. Each successful transfer increases limit by one per limit of
+ * transfers, until maximum. The limit is halved, when server refuses or
+ * aborts transfer with reply 421, 425 or 426, when connection is lost, when
+ * opening of data connection takes much longer than at best, or when
+ * aggregate throughput of all transfers falls much below the best one. The
+ * aggregate throughput is measured over windows of time, when any transfer
+ * runs, so more transfers sharing the same bandwidth do not look congested.
+ * The best latency and throughput decay after each window, so lasting change
+ * of server or link becomes new baseline and limit may grow again. The bytes
+ * of all transfers may be also limited per second.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class TransferController {
+
+    /**
+     * The factor, by which the best throughput shrinks and the best latency
+     * grows after each window of throughput.
+     */
+    private final static Double BASELINE_DECAY = 0.95;
+
+    /**
+     * The factor of limit after congestion.
+     */
+    private final static Double DECREASE_FACTOR = 0.5;
+
+    /**
+     * The minimal time in nanoseconds between decreases of limit, so burst of
+     * failures caused by the same congestion halves limit once.
+     */
+    private final static Long DECREASE_INTERVAL = 1000000000L;
+
+    /**
+     * The ratio of smoothed latency to the best latency, above which server
+     * is congested.
+     */
+    private final static Double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(TransferController.class
+            .getName());
+
+    /**
+     * The minimal amount of bytes transferred in window, which throughput is
+     * observed. Fewer bytes are dominated by latency.
+     */
+    private final static Long MIN_THROUGHPUT_SIZE = 256 * 1024L;
+
+    /**
+     * The weight of new sample in smoothed latency.
+     */
+    private final static Double SMOOTHING = 0.2;
+
+    /**
+     * The ratio of aggregate throughput to the best throughput, below which
+     * server or link is congested.
+     */
+    private final static Double THROUGHPUT_TOLERANCE = 0.5;
+
+    /**
+     * The time in nanoseconds of running transfers, over which aggregate
+     * throughput is measured.
+     */
+    private final static Long THROUGHPUT_WINDOW = 1000000000L;
+
+    /**
+     * The replies of server, which refuse or abort transfer because of load.
+     */
+    private final static Set<Integer> THROTTLE_REPLIES = new HashSet<Integer>(
+            Arrays.asList(421, 425, 426));
+
+    /**
+     * True if limit is adjusted, false if it is fixed at maximum.
+     */
+    private final Boolean adaptive;
+
+    /**
+     * The shortest time of opening data connection in nanoseconds.
+     */
+    private Double bestLatency = Double.MAX_VALUE;
+
+    /**
+     * The best aggregate throughput of all transfers in bytes per nanosecond.
+     */
+    private Double bestThroughput = 0.0;
+
+    /**
+     * The time in nanoseconds, since which transfers run without break.
+     */
+    private Long busySince = 0L;
+
+    /**
+     * The time of last decrease of limit.
+     */
+    private Long lastDecrease = 0L;
+
+    /**
+     * The amount of concurrent transfers allowed at the moment.
+     */
+    private Double limit;
+
+    /**
+     * The lock guarding state of controller.
+     */
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    /**
+     * The maximum amount of concurrent transfers.
+     */
+    private final Integer maxTransfers;
+
+    /**
+     * The time in nanoseconds, when next bytes may be transferred.
+     */
+    private Long nextTransfer = 0L;
+
+    /**
+     * The limit of bytes per second of all transfers, zero for no limit.
+     */
+    private final Long rate;
+
+    /**
+     * The condition signalled when transfer ends or limit grows.
+     */
+    private final Condition released = lock.newCondition();
+
+    /**
+     * The smoothed time of opening data connection in nanoseconds.
+     */
+    private Double smoothedLatency = 0.0;
+
+    /**
+     * The amount of running transfers.
+     */
+    private Integer transfers = 0;
+
+    /**
+     * The amount of workers waiting for transfer.
+     */
+    private Integer waiting = 0;
+
+    /**
+     * The time in nanoseconds, when transfers ran in current window, without
+     * time since busy start.
+     */
+    private Long windowBusy = 0L;
+
+    /**
+     * The amount of bytes transferred in current window.
+     */
+    private Long windowBytes = 0L;
+
+    /**
+     * The constructor for {@link TransferController}.
+     * 
+     * @param maxTransfers
+     *            The maximum amount of concurrent transfers.
+     * @param adaptive
+     *            True if amount of transfers starts from one and is adjusted,
+     *            false if it is fixed at maximum.
+     * @param rate
+     *            The limit of bytes per second of all transfers, zero for no
+     *            limit.
+     */
+    public TransferController(Integer maxTransfers, Boolean adaptive,
+            Long rate) {
+        this.maxTransfers = maxTransfers;
+        this.adaptive = adaptive;
+        this.rate = rate;
+        this.limit = adaptive ? 1.0 : maxTransfers;
+    }
+
+    /**
+     * This method waits until transfer is allowed by limit.
+     */
+    public void acquire() {
+        lock.lock();
+
+        try {
+            waiting++;
+
+            while (transfers >= Math.floor(limit)) {
+                released.awaitUninterruptibly();
+            }
+
+            waiting--;
+
+            if (transfers++ == 0) {
+                busySince = nanoTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method decreases limit after congestion, unless it was decreased
+     * recently. The lock must be held.
+     * 
+     * @param reason
+     *            The reason of decrease for log.
+     */
+    private void decrease(String reason) {
+        Long now = nanoTime();
+
+        if (now - lastDecrease < DECREASE_INTERVAL) {
+            return;
+        }
+
+        lastDecrease = now;
+        limit = Math.max(1.0, limit * DECREASE_FACTOR);
+        logger.debug("Transfers limited to " + limit.intValue() + ", because "
+                + reason);
+    }
+
+    /**
+     * @return The amount of concurrent transfers allowed at the moment.
+     */
+    public Integer getLimit() {
+        lock.lock();
+
+        try {
+            return limit.intValue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The amount of workers waiting for transfer.
+     */
+    public Integer getWaiting() {
+        lock.lock();
+
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method wraps stream of transfer, so its bytes are limited by rate.
+     * 
+     * @param inputStream
+     *            The stream of retrieved file.
+     * @return The limited stream, or given stream if rate is not limited.
+     */
+    public InputStream limit(InputStream inputStream) {
+        if (rate <= 0) {
+            return inputStream;
+        }
+
+        return new FilterInputStream(inputStream) {
+
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+
+                if (read >= 0) {
+                    throttle(1);
+                }
+
+                return read;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length)
+                    throws IOException {
+                int read = super.read(buffer, offset, length);
+
+                if (read > 0) {
+                    throttle(read);
+                }
+
+                return read;
+            }
+        };
+    }
+
+    /**
+     * This method wraps stream of transfer, so its bytes are limited by rate.
+     * 
+     * @param outputStream
+     *            The stream of stored file.
+     * @return The limited stream, or given stream if rate is not limited.
+     */
+    public OutputStream limit(OutputStream outputStream) {
+        if (rate <= 0) {
+            return outputStream;
+        }
+
+        return new FilterOutputStream(outputStream) {
+
+            @Override
+            public void write(int b) throws IOException {
+                throttle(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length)
+                    throws IOException {
+                throttle(length);
+                out.write(buffer, offset, length);
+            }
+        };
+    }
+
+    /**
+     * This method closes window of throughput, when transfers ran long
+     * enough, and decays the best latency. The lock must be held.
+     * 
+     * @return The aggregate throughput of window in bytes per nanosecond, or
+     *         null if window is still open or too few bytes were transferred.
+     */
+    private Double measureThroughput() {
+        Long now = nanoTime();
+        Long busy = windowBusy + (transfers > 0 ? now - busySince : 0L);
+
+        if (busy < THROUGHPUT_WINDOW) {
+            return null;
+        }
+
+        Double throughput = null;
+
+        if (windowBytes >= MIN_THROUGHPUT_SIZE) {
+            throughput = (double) windowBytes / busy;
+        }
+
+        windowBusy = 0L;
+        windowBytes = 0L;
+        busySince = now;
+
+        if (bestLatency < Double.MAX_VALUE) {
+            bestLatency = bestLatency / BASELINE_DECAY;
+        }
+
+        return throughput;
+    }
+
+    /**
+     * This method returns current time, which may be replaced by tests.
+     * 
+     * @return The current time in nanoseconds.
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * This method records failed transfer.
+     * 
+     * @param replyCode
+     *            The reply of server, or null if connection was lost.
+     */
+    public void onFailure(Integer replyCode) {
+        if (!adaptive || replyCode != null
+                && !THROTTLE_REPLIES.contains(replyCode)) {
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            decrease(replyCode == null ? "connection was lost"
+                    : "server replied " + replyCode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method records successful transfer and adjusts limit.
+     * 
+     * @param latency
+     *            The time of opening data connection in nanoseconds.
+     * @param bytes
+     *            The amount of transferred bytes.
+     */
+    public void onSuccess(Long latency, Long bytes) {
+        if (!adaptive) {
+            return;
+        }
+
+        lock.lock();
+
+        try {
+            smoothedLatency = smoothedLatency == 0 ? latency : smoothedLatency
+                    + SMOOTHING * (latency - smoothedLatency);
+            bestLatency = Math.min(bestLatency, latency);
+            windowBytes += bytes;
+            Double throughput = measureThroughput();
+
+            if (smoothedLatency > bestLatency * LATENCY_TOLERANCE) {
+                decrease("data connections open slowly");
+            } else if (throughput != null
+                    && throughput < bestThroughput * THROUGHPUT_TOLERANCE) {
+                decrease("throughput of transfers dropped");
+            } else if (limit < maxTransfers) {
+                // One more transfer after limit of successful transfers.
+                limit = Math.min(maxTransfers,
+                        limit + 1.0 / Math.floor(limit));
+                released.signalAll();
+            }
+
+            if (throughput != null) {
+                bestThroughput = Math.max(bestThroughput * BASELINE_DECAY,
+                        throughput);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method ends transfer, so waiting worker may start.
+     */
+    public void release() {
+        lock.lock();
+
+        try {
+            if (--transfers == 0) {
+                windowBusy += nanoTime() - busySince;
+            }
+
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method waits until given amount of bytes may be transferred
+     * within rate.
+     * 
+     * @param bytes
+     *            The amount of bytes.
+     * @throws InterruptedIOException
+     *             If thread is interrupted while waiting.
+     */
+    private void throttle(Integer bytes) throws InterruptedIOException {
+        long wait = 0;
+        lock.lock();
+
+        try {
+            long now = System.nanoTime();
+            nextTransfer = Math.max(nextTransfer, now) + bytes * 1000000000L
+                    / rate;
+            wait = nextTransfer - now;
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            Thread.sleep(wait / 1000000L, (int) (wait % 1000000L));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
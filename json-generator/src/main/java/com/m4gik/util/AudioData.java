@@ -0,0 +1,373 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class keeps content of audio file retrieved from server. The content is
+ * kept in memory, or for large files in memory-mapped spool file. The content
+ * of file on local disk is memory-mapped directly. The content may be partial,
+ * then only some ranges of file are known and missing ranges are loaded on
+ * demand, but the size is always the size of whole remote file.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class AudioData {
+
+    /**
+     * The maximum size of file kept on heap, larger files are spooled.
+     */
+    public final static Integer MEMORY_LIMIT = 16 * 1024 * 1024;
+
+    /**
+     * The maximum size of file, which is mapped as single buffer.
+     */
+    public final static Long MAX_SIZE = (long) Integer.MAX_VALUE;
+
+    /**
+     * The prefix for names of spool files.
+     */
+    private final static String SPOOL_PREFIX = "audio-search";
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(AudioData.class
+            .getName());
+
+    /**
+     * This method checks if file of given size can be mapped as single buffer.
+     * 
+     * @param name
+     *            The name of file in message.
+     * @param size
+     *            The size of file.
+     * @throws IOException
+     *             If file is larger than {@link #MAX_SIZE}.
+     */
+    private static void checkSize(String name, Long size) throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException(name + " has " + size
+                    + " bytes, files larger than " + MAX_SIZE
+                    + " bytes are not supported");
+        }
+    }
+
+    /**
+     * This method maps whole file on local disk. The content is not copied, so
+     * the file is read only when its ranges are read.
+     * 
+     * @param file
+     *            The file on local disk.
+     * @return The complete audio data.
+     * @throws IOException
+     *             If file cannot be read or is larger than {@link #MAX_SIZE}.
+     */
+    public static AudioData fromFile(File file) throws IOException {
+        RandomAccessFile localFile = null;
+
+        try {
+            localFile = new RandomAccessFile(file, "r");
+            FileChannel channel = localFile.getChannel();
+            checkSize(file.getPath(), channel.size());
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+
+            return new AudioData(mapped, channel.size(), null, null, file);
+        } finally {
+            // The mapping stays valid after the file is closed.
+            IOUtils.closeQuietly(localFile);
+        }
+    }
+
+    /**
+     * This method creates partial audio data, which loads ranges of remote
+     * file when they are read.
+     * 
+     * @param size
+     *            The size of remote file.
+     * @param loader
+     *            The loader of missing ranges.
+     * @return The partial audio data.
+     */
+    public static AudioData fromLoader(Long size, RangeLoader loader) {
+        return new AudioData(null, size, null, loader, null);
+    }
+
+    /**
+     * This method reads whole file from given stream. Files up to
+     * {@link #MEMORY_LIMIT} are kept on heap, larger files are written to spool
+     * file and memory-mapped.
+     * 
+     * @param inputStream
+     *            The stream of file content.
+     * @param size
+     *            The expected size of file, may be unknown (negative).
+     * @return The complete audio data.
+     * @throws IOException
+     *             If stream cannot be read or file is larger than
+     *             {@link #MAX_SIZE}.
+     */
+    public static AudioData fromStream(InputStream inputStream, Long size)
+            throws IOException {
+        checkSize("Stream", size);
+
+        if (size >= 0 && size <= MEMORY_LIMIT) {
+            byte[] bytes = IOUtils.toByteArray(inputStream);
+
+            return new AudioData(ByteBuffer.wrap(bytes),
+                    (long) bytes.length, null, null, null);
+        }
+
+        File spool = File.createTempFile(SPOOL_PREFIX, ".mp3");
+        FileOutputStream outputStream = null;
+        RandomAccessFile spoolFile = null;
+
+        try {
+            outputStream = new FileOutputStream(spool);
+            IOUtils.copyLarge(inputStream, outputStream);
+            outputStream.close();
+
+            spoolFile = new RandomAccessFile(spool, "r");
+            FileChannel channel = spoolFile.getChannel();
+            // The size of stream may be unknown before it is read.
+            checkSize("Stream", channel.size());
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+
+            return new AudioData(mapped, channel.size(), spool, null, null);
+        } catch (IOException ioe) {
+            spool.delete();
+            throw ioe;
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+            // The mapping stays valid after the file is closed.
+            IOUtils.closeQuietly(spoolFile);
+        }
+    }
+
+    /**
+     * The loader of missing ranges, null if content cannot be loaded.
+     */
+    private final RangeLoader loader;
+
+    /**
+     * The known ranges of file, keyed by their offsets.
+     */
+    private final TreeMap<Long, ByteBuffer> parts = new TreeMap<Long, ByteBuffer>();
+
+    /**
+     * The size of remote file.
+     */
+    private final Long size;
+
+    /**
+     * The file on local disk, which is source of content and is never
+     * deleted, may be null.
+     */
+    private final File source;
+
+    /**
+     * The spool file on local disk, may be null.
+     */
+    private File spool;
+
+    /**
+     * The constructor for {@link AudioData}.
+     * 
+     * @param content
+     *            The whole content of file, may be null.
+     * @param size
+     * @param spool
+     * @param loader
+     * @param source
+     */
+    private AudioData(ByteBuffer content, Long size, File spool,
+            RangeLoader loader, File source) {
+        this.size = size;
+        this.spool = spool;
+        this.loader = loader;
+        this.source = source;
+
+        if (content != null) {
+            parts.put(0L, content);
+        }
+    }
+
+    /**
+     * This method releases local resources of audio data.
+     */
+    public void close() {
+        if (spool != null && !spool.delete()) {
+            spool.deleteOnExit();
+        }
+
+        spool = null;
+    }
+
+    /**
+     * @return the size
+     */
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * @return True if whole file is known, false if only some ranges.
+     */
+    public Boolean isComplete() {
+        Entry<Long, ByteBuffer> first = parts.firstEntry();
+
+        return first != null && first.getKey() == 0
+                && first.getValue().limit() >= size;
+    }
+
+    /**
+     * This method reads given range of file. Missing range is loaded, if audio
+     * data has loader.
+     * 
+     * @param offset
+     *            The offset of range.
+     * @param length
+     *            The length of range.
+     * @return The read-only view of range, which is shorter than requested if
+     *         file ends before, or if the rest is not known. The null is
+     *         returned if offset is not known.
+     */
+    public ByteBuffer read(Long offset, Integer length) {
+        if (offset < 0 || offset >= size) {
+            return null;
+        }
+
+        length = (int) Math.min(length, size - offset);
+        ByteBuffer buffer = find(offset);
+
+        if ((buffer == null || buffer.remaining() < length) && loader != null) {
+            byte[] bytes = null;
+
+            try {
+                bytes = loader.load(offset, length);
+            } catch (IOException ioe) {
+                logger.error(ioe);
+                logger.debug(ioe);
+            }
+
+            if (bytes != null && bytes.length > 0
+                    && (buffer == null || bytes.length > buffer.remaining())) {
+                parts.put(offset, ByteBuffer.wrap(bytes));
+                buffer = find(offset);
+            }
+        }
+
+        if (buffer != null && buffer.remaining() > length) {
+            ((Buffer) buffer).limit(buffer.position() + length);
+        }
+
+        return buffer == null ? null : buffer.slice();
+    }
+
+    /**
+     * This method finds known range, which contains given offset.
+     * 
+     * @param offset
+     * @return The read-only view of range from given offset, or null if
+     *         offset is not known.
+     */
+    private ByteBuffer find(Long offset) {
+        ByteBuffer found = null;
+
+        // Ranges may overlap, so the longest one is taken.
+        for (Entry<Long, ByteBuffer> part : parts.headMap(offset, true)
+                .entrySet()) {
+            long end = part.getKey() + part.getValue().limit();
+
+            if (end > offset
+                    && (found == null || end - offset > found.remaining())) {
+                found = part.getValue().asReadOnlyBuffer();
+                ((Buffer) found).position((int) (offset - part.getKey()));
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * This method gets file on local disk with content of audio data, for
+     * readers which cannot read from memory. Partial content is written to
+     * sparse file of the same size as remote file. The file is deleted by
+     * {@link #close()}, unless it is the source file on local disk.
+     * 
+     * @return The local file.
+     * @throws IOException
+     */
+    public File toFile() throws IOException {
+        if (source != null) {
+            return source;
+        }
+
+        if (spool != null) {
+            return spool;
+        }
+
+        File file = File.createTempFile(SPOOL_PREFIX, ".mp3");
+        RandomAccessFile sparseFile = null;
+
+        try {
+            sparseFile = new RandomAccessFile(file, "rw");
+            FileChannel channel = sparseFile.getChannel();
+            sparseFile.setLength(size);
+
+            for (Entry<Long, ByteBuffer> part : parts.entrySet()) {
+                channel.write(part.getValue().asReadOnlyBuffer(),
+                        part.getKey());
+            }
+        } catch (IOException ioe) {
+            file.delete();
+            throw ioe;
+        } finally {
+            IOUtils.closeQuietly(sparseFile);
+        }
+
+        logger.debug("Audio data spooled to " + file);
+        spool = file;
+
+        return spool;
+    }
+
+    /**
+     * This interface loads ranges of remote file, which are not known yet.
+     */
+    public interface RangeLoader {
+
+        /**
+         * This method loads given range of file.
+         * 
+         * @param offset
+         *            The offset of range.
+         * @param length
+         *            The length of range.
+         * @return The loaded bytes, at least the requested amount unless file
+         *         ends before, or null if range cannot be loaded.
+         * @throws IOException
+         */
+        byte[] load(Long offset, Integer length) throws IOException;
+    }
+}
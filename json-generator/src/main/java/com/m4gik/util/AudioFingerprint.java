@@ -0,0 +1,90 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * This class computes fingerprint of audio file from its size and from hash
+ * of its first and last block. The blocks cover tags and first and last audio
+ * frames, so copies of the same recording have the same fingerprint, wherever
+ * they are stored, and only two blocks of file are transferred to compute it.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class AudioFingerprint {
+
+    /**
+     * The size of first and last block of file.
+     */
+    public final static Integer BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The algorithm of hash.
+     */
+    private final static String HASH_ALGORITHM = "SHA-1";
+
+    /**
+     * The hexadecimal digits for hash.
+     */
+    private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * This method computes fingerprint from blocks of file.
+     * 
+     * @param size
+     *            The size of file.
+     * @param head
+     *            The first block of file.
+     * @param tail
+     *            The last block of file, without bytes of first block.
+     * @return The fingerprint as size and hexadecimal hash.
+     */
+    public static String compute(Long size, byte[] head, byte[] tail) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(head);
+            digest.update(tail);
+            byte[] hash = digest.digest();
+            char[] hex = new char[hash.length * 2];
+
+            for (int i = 0; i < hash.length; i++) {
+                hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0f];
+                hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0f];
+            }
+
+            return size + "-" + new String(hex);
+        } catch (NoSuchAlgorithmException nsae) {
+            // Each JVM supports SHA-1.
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * This method gets length of first block of file.
+     * 
+     * @param size
+     *            The size of file.
+     * @return The length of first block.
+     */
+    public static Integer getHeadLength(Long size) {
+        return (int) Math.min(size, BLOCK_SIZE);
+    }
+
+    /**
+     * This method gets length of last block of file. The last block does not
+     * overlap first block, so it is empty for small files.
+     * 
+     * @param size
+     *            The size of file.
+     * @return The length of last block.
+     */
+    public static Integer getTailLength(Long size) {
+        return (int) Math.min(size - getHeadLength(size), BLOCK_SIZE);
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+/**
+ * This class keeps information read from tags and audio header of single file,
+ * before it is stored in JSON library.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class AudioInformation {
+
+    /**
+     * The album from tag, null if tag does not contain it.
+     */
+    private String album = null;
+
+    /**
+     * The artist from tag, null if tag does not contain it.
+     */
+    private String artist = null;
+
+    /**
+     * The bit rate in kbps, prefixed with "~" for variable bit rate.
+     */
+    private String bitRate = "";
+
+    /**
+     * The title from tag, null if tag does not contain it.
+     */
+    private String title = null;
+
+    /**
+     * The length of track in seconds.
+     */
+    private Integer trackLength = 0;
+
+    /**
+     * The year from tag, null if tag does not contain it.
+     */
+    private String year = null;
+
+    /**
+     * @return the album
+     */
+    public String getAlbum() {
+        return album;
+    }
+
+    /**
+     * @return the artist
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return the bitRate
+     */
+    public String getBitRate() {
+        return bitRate;
+    }
+
+    /**
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the trackLength
+     */
+    public Integer getTrackLength() {
+        return trackLength;
+    }
+
+    /**
+     * @return the year
+     */
+    public String getYear() {
+        return year;
+    }
+
+    /**
+     * @param album
+     *            the album to set
+     */
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+
+    /**
+     * @param artist
+     *            the artist to set
+     */
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    /**
+     * @param bitRate
+     *            the bitRate to set
+     */
+    public void setBitRate(String bitRate) {
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * @param title
+     *            the title to set
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * @param trackLength
+     *            the trackLength to set
+     */
+    public void setTrackLength(Integer trackLength) {
+        this.trackLength = trackLength;
+    }
+
+    /**
+     * @param year
+     *            the year to set
+     */
+    public void setYear(String year) {
+        this.year = year;
+    }
+}
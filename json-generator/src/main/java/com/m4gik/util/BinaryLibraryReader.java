@@ -0,0 +1,223 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class reads library written by {@link BinaryLibraryWriter}. The format
+ * is described there.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class BinaryLibraryReader {
+
+    /**
+     * The size of buffer for read bytes.
+     */
+    private final static Integer BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The buffer for bytes of strings.
+     */
+    private byte[] buffer = new byte[256];
+
+    /**
+     * The stream with binary library.
+     */
+    private final InputStream inputStream;
+
+    /**
+     * The shared strings read so far, in order of numbers.
+     */
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * The constructor for {@link BinaryLibraryReader}.
+     * 
+     * @param inputStream
+     *            The stream with binary library.
+     */
+    public BinaryLibraryReader(InputStream inputStream) {
+        this.inputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+    }
+
+    /**
+     * This method closes the stream.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * This method reads single byte.
+     * 
+     * @return The byte.
+     * @throws IOException
+     *             If stream ends.
+     */
+    private int readByte() throws IOException {
+        int value = inputStream.read();
+
+        if (value < 0) {
+            throw new EOFException("Unexpected end of binary library");
+        }
+
+        return value;
+    }
+
+    /**
+     * This method reads whole library. The stream is not closed.
+     * 
+     * @return The library with all entries.
+     * @throws IOException
+     *             If stream cannot be read or is not valid binary library.
+     */
+    public Library readLibrary() throws IOException {
+        byte[] magic = new byte[BinaryLibraryWriter.MAGIC.length];
+
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) readByte();
+        }
+
+        if (!Arrays.equals(magic, BinaryLibraryWriter.MAGIC)) {
+            throw new IOException("Not a binary library");
+        }
+
+        Long version = readNumber();
+
+        // Version 1 differs only by missing fingerprints.
+        if (version < 1 || version > BinaryLibraryWriter.VERSION.longValue()) {
+            throw new IOException("Unsupported version " + version
+                    + " of binary library");
+        }
+
+        Library library = new Library();
+        Map<String, String> comment = new HashMap<String, String>();
+
+        for (long i = readNumber(); i > 0; i--) {
+            comment.put(readString(), readString());
+        }
+
+        library.setComment(comment);
+
+        for (long i = readNumber(); i > 0; i--) {
+            library.putDirectory(readString(), readNumber());
+        }
+
+        for (long i = readNumber(); i > 0; i--) {
+            String key = readString();
+            TrackEntry entry = new TrackEntry();
+            entry.setTitle(readString());
+            entry.setArtist(readShared());
+            entry.setYear(readShared());
+            entry.setAlbum(readShared());
+            entry.setLength(readString());
+            entry.setBitRate(readShared());
+            entry.setSize(readString());
+            entry.setOriginalName(readString());
+            entry.setDirectory(readShared());
+            entry.setWebDirectory(readShared());
+            entry.setLocation(readString());
+            entry.setModified(readString());
+
+            if (version > 1) {
+                entry.setFingerprint(readString());
+            }
+
+            library.put(key, entry);
+        }
+
+        return library;
+    }
+
+    /**
+     * This method reads number written in seven bits per byte.
+     * 
+     * @return The number.
+     * @throws IOException
+     */
+    private Long readNumber() throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            int part = readByte();
+            value |= (long) (part & 0x7f) << shift;
+
+            if ((part & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Invalid number in binary library");
+    }
+
+    /**
+     * This method reads string, which repeats across entries.
+     * 
+     * @return The string.
+     * @throws IOException
+     */
+    private String readShared() throws IOException {
+        Long number = readNumber();
+
+        if (number == 0) {
+            String value = readString();
+            strings.add(value);
+
+            return value;
+        }
+
+        if (number > strings.size()) {
+            throw new IOException("Invalid reference in binary library");
+        }
+
+        return strings.get(number.intValue() - 1);
+    }
+
+    /**
+     * This method reads string written as length and UTF-8 bytes.
+     * 
+     * @return The string.
+     * @throws IOException
+     */
+    private String readString() throws IOException {
+        Long length = readNumber();
+
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid string in binary library");
+        }
+
+        Integer size = length.intValue();
+
+        if (buffer.length < size) {
+            buffer = new byte[size];
+        }
+
+        for (int read = 0; read < size;) {
+            int count = inputStream.read(buffer, read, size - read);
+
+            if (count < 0) {
+                throw new EOFException("Unexpected end of binary library");
+            }
+
+            read += count;
+        }
+
+        return new String(buffer, 0, size, Library.CHARSET);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class writes library in compact binary format, entry by entry. The
+ * format starts with magic bytes "ASLB" and version, followed by comment,
+ * modification times of directories, amount of entries and the entries. Each
+ * entry is written as fixed sequence of fields without names: key, title,
+ * artist, year, album, length, bit rate, size, original name, directory, web
+ * directory, location, modification time and fingerprint. Numbers are written
+ * as unsigned variable-length integers, seven bits per byte. Strings are
+ * written as length in bytes followed by UTF-8 bytes. The fields, which repeat
+ * across entries (artist, year, album, bit rate, directory and web
+ * directory), are written once and then referenced by number.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class BinaryLibraryWriter {
+
+    /**
+     * The name of binary library on server.
+     */
+    public final static String BINARY_FILE = "lib.bin";
+
+    /**
+     * The size of buffer for written bytes.
+     */
+    private final static Integer BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The bytes, which start binary library.
+     */
+    final static byte[] MAGIC = { 'A', 'S', 'L', 'B' };
+
+    /**
+     * The version of binary format.
+     */
+    final static Integer VERSION = 2;
+
+    /**
+     * The stream for binary library.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * The numbers of shared strings written so far, counted from one.
+     */
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    /**
+     * The constructor for {@link BinaryLibraryWriter}.
+     * 
+     * @param outputStream
+     *            The stream for binary library.
+     */
+    public BinaryLibraryWriter(OutputStream outputStream) {
+        this.outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    }
+
+    /**
+     * This method flushes written content and closes the stream.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        outputStream.close();
+    }
+
+    /**
+     * This method writes single entry.
+     * 
+     * @param key
+     *            The key of entry in library.
+     * @param entry
+     *            The entry to write.
+     * @throws IOException
+     */
+    public void writeEntry(String key, TrackEntry entry) throws IOException {
+        writeString(key);
+        writeString(entry.getTitle());
+        writeShared(entry.getArtist());
+        writeShared(entry.getYear());
+        writeShared(entry.getAlbum());
+        writeString(entry.getLength());
+        writeShared(entry.getBitRate());
+        writeString(entry.getSize());
+        writeString(entry.getOriginalName());
+        writeShared(entry.getDirectory());
+        writeShared(entry.getWebDirectory());
+        writeString(entry.getLocation());
+        writeString(entry.getModified());
+        writeString(entry.getFingerprint());
+    }
+
+    /**
+     * This method writes beginning of library, which precedes entries.
+     * 
+     * @param comment
+     *            The comment information of library.
+     * @param directories
+     *            The modification times of directories indexed by path.
+     * @param count
+     *            The amount of entries written next.
+     * @throws IOException
+     */
+    public void writeHeader(Map<String, String> comment,
+            Map<String, Long> directories, Integer count) throws IOException {
+        outputStream.write(MAGIC);
+        writeNumber(VERSION);
+        writeNumber(comment.size());
+
+        for (Map.Entry<String, String> value : comment.entrySet()) {
+            writeString(value.getKey());
+            writeString(value.getValue());
+        }
+
+        writeNumber(directories.size());
+
+        for (Map.Entry<String, Long> directory : directories.entrySet()) {
+            writeString(directory.getKey());
+            writeNumber(directory.getValue());
+        }
+
+        writeNumber(count);
+    }
+
+    /**
+     * This method writes non-negative number in seven bits per byte, the
+     * highest bit is set if more bytes follow.
+     * 
+     * @param value
+     * @throws IOException
+     */
+    private void writeNumber(long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            outputStream.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        outputStream.write((int) value);
+    }
+
+    /**
+     * This method writes string, which repeats across entries. The string
+     * written first time is preceded by zero, later the number of string is
+     * written instead.
+     * 
+     * @param value
+     *            The string, null is written as empty string.
+     * @throws IOException
+     */
+    private void writeShared(String value) throws IOException {
+        String shared = value == null ? "" : value;
+        Integer number = strings.get(shared);
+
+        if (number != null) {
+            writeNumber(number);
+            return;
+        }
+
+        writeNumber(0);
+        writeString(shared);
+        strings.put(shared, strings.size() + 1);
+    }
+
+    /**
+     * This method writes string as length and UTF-8 bytes.
+     * 
+     * @param value
+     *            The string, null is written as empty string.
+     * @throws IOException
+     */
+    private void writeString(String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(Library.CHARSET);
+        writeNumber(bytes.length);
+        outputStream.write(bytes);
+    }
+}
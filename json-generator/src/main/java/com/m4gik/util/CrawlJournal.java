@@ -0,0 +1,303 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class keeps local journal of files processed during crawl, so crawl
+ * interrupted by lost connection or failed upload may be resumed. Each
+ * processed file is appended as single line with JSON object, which contains
+ * entry of file under its key, in the same format as JSON library. The first
+ * line identifies server and library of crawl. The journal is synchronized
+ * with disk in batches, so only the last batch may be lost when process dies.
+ * When crawl is started again, the entries from journal are put back to
+ * library, and the files are not retrieved again. The journal is deleted once
+ * library is published at the end of crawl.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class CrawlJournal {
+
+    /**
+     * The name of journal file.
+     */
+    public final static String JOURNAL_FILE = "audio-search.journal";
+
+    /**
+     * The key for server and library of crawl in first line of journal.
+     */
+    private final static String ORIGIN = "origin";
+
+    /**
+     * The time in milliseconds after which journal is synchronized with disk.
+     */
+    private final static Long SYNC_INTERVAL = 1000L;
+
+    /**
+     * The amount of records after which journal is synchronized with disk.
+     */
+    private final static Integer SYNC_RECORDS = 64;
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(CrawlJournal.class
+            .getName());
+
+    /**
+     * The journal file.
+     */
+    private final File file;
+
+    /**
+     * True if existing journal belongs to the same crawl and new records are
+     * appended to it.
+     */
+    private Boolean isResumed = false;
+
+    /**
+     * The time of last synchronization with disk.
+     */
+    private Long lastSync = System.currentTimeMillis();
+
+    /**
+     * The length of complete records of replayed journal.
+     */
+    private Long length = 0L;
+
+    /**
+     * The server and library of crawl.
+     */
+    private final String origin;
+
+    /**
+     * The stream of journal file, null if journal is not open.
+     */
+    private FileOutputStream outputStream = null;
+
+    /**
+     * The amount of records written since last synchronization with disk.
+     */
+    private Integer unsynced = 0;
+
+    /**
+     * The constructor for {@link CrawlJournal}.
+     * 
+     * @param file
+     *            The journal file.
+     * @param origin
+     *            The server and library of crawl. The journal of other crawl
+     *            is not replayed.
+     */
+    public CrawlJournal(File file, String origin) {
+        this.file = file;
+        this.origin = origin;
+    }
+
+    /**
+     * This method appends processed file to journal.
+     * 
+     * @param key
+     *            The key of entry in library.
+     * @param entry
+     *            The entry of processed file.
+     */
+    public synchronized void append(String key, TrackEntry entry) {
+        if (outputStream == null || entry == null) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            JSONLibraryWriter writer = new JSONLibraryWriter(record);
+            writer.beginObject(null);
+            entry.writeTo(key, writer);
+            writer.endObject();
+            writer.close();
+            record.write('\n');
+            outputStream.write(record.toByteArray());
+            unsynced++;
+
+            if (unsynced >= SYNC_RECORDS
+                    || System.currentTimeMillis() - lastSync >= SYNC_INTERVAL) {
+                sync();
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method synchronizes journal with disk and closes it.
+     */
+    public synchronized void close() {
+        if (outputStream == null) {
+            return;
+        }
+
+        try {
+            sync();
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } finally {
+            IOUtils.closeQuietly(outputStream);
+            outputStream = null;
+        }
+    }
+
+    /**
+     * This method closes and deletes journal, when crawl is finished.
+     */
+    public synchronized void delete() {
+        close();
+
+        if (file.exists() && !file.delete()) {
+            logger.error("Deleting journal " + file + " failed");
+        }
+    }
+
+    /**
+     * This method opens journal for new records. The journal of the same
+     * crawl is continued after its last complete record, otherwise new
+     * journal is started.
+     */
+    public synchronized void open() {
+        try {
+            outputStream = new FileOutputStream(file, isResumed);
+
+            if (isResumed) {
+                // The incomplete record is overwritten.
+                outputStream.getChannel().truncate(length);
+            } else {
+                Map<String, String> header = new HashMap<String, String>();
+                header.put(ORIGIN, origin);
+                ByteArrayOutputStream record = new ByteArrayOutputStream();
+                JSONLibraryWriter writer = new JSONLibraryWriter(record);
+                writer.beginObject(null);
+                writer.writeMap(JSONBuilder.COMMENT, header);
+                writer.endObject();
+                writer.close();
+                record.write('\n');
+                outputStream.write(record.toByteArray());
+                sync();
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            IOUtils.closeQuietly(outputStream);
+            outputStream = null;
+        }
+    }
+
+    /**
+     * This method puts entries recorded in journal to library. The journal is
+     * read until the first incomplete record, which may be left when process
+     * died while writing.
+     * 
+     * @param library
+     *            The library of crawl.
+     * @return The amount of entries put to library.
+     */
+    public synchronized Integer replay(Library library) {
+        Integer replayed = 0;
+        isResumed = false;
+        length = 0L;
+
+        if (!file.exists()) {
+            return replayed;
+        }
+
+        BufferedReader reader = null;
+
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), Library.CHARSET));
+            String line = reader.readLine();
+
+            if (line == null
+                    || !origin.equals(readRecord(line).getComment().get(
+                            ORIGIN))) {
+                logger.debug("Journal " + file + " belongs to other crawl");
+                return replayed;
+            }
+
+            isResumed = true;
+            length = getRecordLength(line);
+
+            while ((line = reader.readLine()) != null
+                    && length + getRecordLength(line) <= file.length()) {
+                for (Map.Entry<String, TrackEntry> entry : readRecord(line)
+                        .getEntriesByKey().entrySet()) {
+                    library.put(entry.getKey(), entry.getValue());
+                    replayed++;
+                }
+
+                length += getRecordLength(line);
+            }
+        } catch (IOException ioe) {
+            logger.debug("Journal " + file + " ends with incomplete record");
+            logger.debug(ioe);
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        return replayed;
+    }
+
+    /**
+     * This method gets length of record in journal file.
+     * 
+     * @param line
+     *            The line of journal.
+     * @return The length of line in bytes with line separator.
+     * @throws IOException
+     */
+    private Long getRecordLength(String line) throws IOException {
+        return line.getBytes(Library.CHARSET).length + 1L;
+    }
+
+    /**
+     * This method reads single record of journal.
+     * 
+     * @param line
+     *            The line of journal.
+     * @return The library with entries of record.
+     * @throws IOException
+     *             If record is incomplete.
+     */
+    private Library readRecord(String line) throws IOException {
+        return Library.readFrom(new ByteArrayInputStream(line
+                .getBytes(Library.CHARSET)));
+    }
+
+    /**
+     * This method synchronizes written records with disk.
+     * 
+     * @throws IOException
+     */
+    private void sync() throws IOException {
+        outputStream.getFD().sync();
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+}
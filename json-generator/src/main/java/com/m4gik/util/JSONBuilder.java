@@ -5,18 +5,10 @@
  */
 package com.m4gik.util;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -29,19 +21,10 @@ import java.util.TimeZone;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
-import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
-import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
-import org.jaudiotagger.audio.mp3.MP3File;
-import org.jaudiotagger.tag.TagException;
-import org.jaudiotagger.tag.TagField;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
-import com.mpatric.mp3agic.InvalidDataException;
-import com.mpatric.mp3agic.Mp3File;
-import com.mpatric.mp3agic.UnsupportedTagException;
-
 /**
  * This class is responsible for building JSON library. The basic operation of
  * this class provide: initialization of library, updating library, and build
@@ -57,6 +40,11 @@ public class JSONBuilder {
      */
     public final static String COMMENT = "_comment";
 
+    /**
+     * This constant value keeps extension for gzip-compressed copy of library.
+     */
+    public final static String GZIP_EXTENSION = ".gz";
+
     /**
      * Header for JSON library.
      */
@@ -79,39 +67,25 @@ public class JSONBuilder {
             .getName());
 
     /**
-     * Map to changing special letters to polish.
+     * This constant value keeps extension for library uploaded under temporary
+     * name before it replaces the live library.
      */
-    static Map<Character, Character> polishLettersMap;
+    public final static String TEMP_EXTENSION = ".tmp";
 
     /**
-     * This constant value keeps location for temporary folder.
+     * The properties file, which options are kept in memory.
      */
-    public final static String TEMP = "temp/";
+    private static File optionsFile = null;
 
     /**
-     * Map of polish letters
+     * The modification time of properties file, when its options were read.
      */
-    static {
-        polishLettersMap = new HashMap<Character, Character>();
-        polishLettersMap.put('¥', 'Ą');
-        polishLettersMap.put('¹', 'ą');
-        polishLettersMap.put('Æ', 'Ć');
-        polishLettersMap.put('æ', 'ć');
-        polishLettersMap.put('Ê', 'Ę');
-        polishLettersMap.put('ê', 'ę');
-        polishLettersMap.put('£', 'Ł');
-        polishLettersMap.put('³', 'ł');
-        polishLettersMap.put('Ñ', 'Ń');
-        polishLettersMap.put('ñ', 'ń');
-        polishLettersMap.put('Ó', 'Ó');
-        polishLettersMap.put('ó', 'ó');
-        polishLettersMap.put('', 'Ś');
-        polishLettersMap.put('', 'ś');
-        polishLettersMap.put('', 'Ź');
-        polishLettersMap.put('', 'ź');
-        polishLettersMap.put('¯', 'Ż');
-        polishLettersMap.put('¿', 'ż');
-    }
+    private static Long optionsModified = null;
+
+    /**
+     * The options read from properties file.
+     */
+    private static JSONObject options = null;
 
     /**
      * This method converts the array of String to single String.
@@ -155,55 +129,47 @@ public class JSONBuilder {
     /**
      * This method checks JSON library if contains given key.
      * 
+     * @param library
+     *            The JSON library.
      * @param key
      *            The key with name for current audio.
      * @return True if in JSON library contains key, false if not.
      */
-    public static Boolean checkExistingKey(OutputStream jsonLib, String key) {
-        Boolean isExistingKey = false;
-        net.sf.json.JSONObject jsonObject = net.sf.json.JSONObject
-                .fromObject(jsonLib.toString());
-
-        if (jsonObject.containsKey(key)) {
-            isExistingKey = true;
-        }
-
-        return isExistingKey;
+    public static Boolean checkExistingKey(Library library, String key) {
+        return library.containsKey(key);
     }
 
     /**
-     * Convert from internal Java String format -> UTF-8.
+     * This method stores information about copy of file, which is already in
+     * JSON library, so the copy does not need to be retrieved and parsed.
      * 
-     * @param pIncomingString
-     * @return Converted String.
-     * @throws CharacterCodingException
-     */
-    public static String convertStringToUTF8(String pIncomingString)
-            throws CharacterCodingException {
-        CharsetDecoder cd = Charset.availableCharsets().get("UTF-8")
-                .newDecoder();
-        CharBuffer buffer = cd.decode(ByteBuffer.wrap(pIncomingString
-                .getBytes()));
-
-        return convertToPolishLetters(buffer.toString());
-    }
-
-    /**
-     * This method converts special signs to polish letters.
-     * 
-     * @param convertedString
-     *            The string converted to UTF-8.
-     * @return Converted String with polish characters instead of special
-     *         characters.
+     * @param source
+     *            The entry of file with the same fingerprint.
+     * @param fileName
+     *            The name of copy.
+     * @param path
+     *            The path of copy on server side.
+     * @param modified
+     *            The modification time of copy on server side, may be null.
+     * @param library
+     *            The JSON library.
+     * @return The entry stored in JSON library.
      */
-    private static String convertToPolishLetters(String convertedString) {
-        StringBuilder sb = new StringBuilder();
-
-        for (char ch : convertedString.toCharArray()) {
-            sb.append(isNormalLetter(ch) ? ch : polishLettersMap.get(ch));
+    public static TrackEntry copyMP3FileInformation(TrackEntry source,
+            String fileName, String path, Long modified, Library library) {
+        TrackEntry entry = source.copy();
+
+        if (entry.getTitle().equals(removeMP3Extension(arrayToString(source
+                .getOriginalName().split("_"))))) {
+            // The title without tag comes from name of file.
+            entry.setTitle(removeMP3Extension(arrayToString(fileName
+                    .split("_"))));
         }
 
-        return sb.toString();
+        setLocation(entry, fileName, path, modified);
+        library.put(entry.getLocation(), entry);
+
+        return entry;
     }
 
     /**
@@ -211,7 +177,7 @@ public class JSONBuilder {
      * 
      * @return The basic information for JSON library.
      */
-    private static Object getCommentInformation() {
+    private static Map<String, String> getCommentInformation() {
         HashMap<String, String> information = new HashMap<String, String>();
 
         information.put("information", HEADER);
@@ -235,126 +201,60 @@ public class JSONBuilder {
         return dateFormat.format(cal.getTime()).toString();
     }
 
-    /**
-     * This method gathers all information from list and store in single string.
-     * 
-     * @param informationList
-     *            The list with information.
-     * @return The single string with information from the list.
-     */
-    @SuppressWarnings("unused")
-    private static String getInformationFromList(List<TagField> informationList) {
-        String information = "";
-
-        for (Object object : safe(informationList)) {
-            information += object.toString() + " ";
-        }
-
-        return information;
-    }
-
     /**
      * This method gets basic information about mp3 file and store all
-     * information in JSON library. After store operation, delete this file.
+     * information in JSON library. The file is read from memory, only files
+     * which cannot be read in this way are passed to tag libraries.
      * 
      * @param fileName
-     *            The name of file located in temporary folder.
+     *            The name of file.
      * @param path
      *            The path on server side.
-     * @param jsonLib
-     *            The OutputStream for JSON library.
-     * @return The InputStream for JSON library.
+     * @param modified
+     *            The modification time of file on server side, may be null.
+     * @param data
+     *            The content of file.
+     * @param library
+     *            The JSON library.
+     * @return The entry stored in JSON library, or null if audio header of
+     *         file cannot be read.
      */
-    public static net.sf.json.JSONObject getMP3FileInformation(String fileName,
-            String path, OutputStream jsonLib) {
-        net.sf.json.JSONObject jsonObject = net.sf.json.JSONObject
-                .fromObject(jsonLib.toString());
-
-        Mp3File mp3File = null;
-        MP3File fileInformation = null;
-        HashMap<String, String> information = new HashMap<String, String>();
-
-        try {
-
-            fileInformation = new MP3File(TEMP + "/" + fileName);
-            mp3File = new Mp3File(TEMP + "/" + fileName);
+    public static TrackEntry getMP3FileInformation(String fileName,
+            String path, Long modified, AudioData data, Library library) {
+        AudioInformation information = MP3HeaderParser.parse(data);
 
-            if (mp3File.hasId3v2Tag()) {
-
-                mp3File.getId3v2Tag().setEncoder("UTF-8");
-
-                if (mp3File.getId3v2Tag().getTitle() != null) {
-                    information.put("title", convertStringToUTF8(mp3File
-                            .getId3v2Tag().getTitle()));
-                }
-
-                if (mp3File.getId3v2Tag().getArtist() != null) {
-                    information.put("artist", convertStringToUTF8(mp3File
-                            .getId3v2Tag().getArtist()));
-                }
-
-                if (mp3File.getId3v2Tag().getYear() != null) {
-                    information.put("year", convertStringToUTF8(mp3File
-                            .getId3v2Tag().getYear()));
-                }
-
-                if (mp3File.getId3v2Tag().getAlbum() != null) {
-                    information.put("album", convertStringToUTF8(mp3File
-                            .getId3v2Tag().getAlbum()));
-                }
-            }
-        } catch (UnsupportedTagException e1) {
-            logger.error(e1);
-            logger.debug(e1);
-        } catch (InvalidDataException e1) {
-            logger.error(e1);
-            logger.debug(e1);
-        } catch (IOException ioe) {
-            logger.error(ioe);
-            logger.debug(ioe);
-        } catch (TagException e) {
-            logger.error(e);
-            logger.debug(e);
-        } catch (ReadOnlyFileException e) {
-            logger.error(e);
-            logger.debug(e);
-        } catch (InvalidAudioFrameException e) {
-            logger.error(e);
-            logger.debug(e);
+        if (information == null && !data.isComplete()) {
+            // Tag libraries need whole file.
+            return null;
         }
 
-        if (!information.containsKey("title")
-                || information.get("title").equals("")) {
-            information.put("title",
-                    removeMP3Extension(arrayToString(fileName.split("_"))));
+        if (information == null) {
+            logger.debug(fileName + " is read with tag libraries");
+            information = TagLibraryReader.read(data);
         }
 
-        if (!information.containsKey("artist")) {
-            information.put("artist", "");
+        if (information == null) {
+            return null;
         }
 
-        if (!information.containsKey("year")) {
-            information.put("year", "");
-        }
+        TrackEntry entry = new TrackEntry();
+        entry.setTitle(TextRepair.repair(information.getTitle()));
+        entry.setArtist(TextRepair.repair(information.getArtist()));
+        entry.setYear(TextRepair.repair(information.getYear()));
+        entry.setAlbum(TextRepair.repair(information.getAlbum()));
 
-        if (!information.containsKey("album")) {
-            information.put("album", "");
+        if (entry.getTitle().equals("")) {
+            entry.setTitle(removeMP3Extension(arrayToString(fileName
+                    .split("_"))));
         }
 
-        information.put("length", getTime(fileInformation.getAudioHeader()
-                .getTrackLength() * 1000));
-        information.put("bit rate", fileInformation.getAudioHeader()
-                .getBitRate());
-        information.put("size",
-                new Long(fileInformation.getFile().length()).toString());
-        information.put("orginal name", fileName);
-        information.put("directory", path);
-        information.put("web-directory", getWebDirectory(path + fileName));
-        information.put("location", path + fileName);
-        jsonObject.put(fileName, information);
-        fileInformation.getFile().delete();
+        entry.setLength(getTime(information.getTrackLength() * 1000L));
+        entry.setBitRate(information.getBitRate());
+        entry.setSize(data.getSize().toString());
+        setLocation(entry, fileName, path, modified);
+        library.put(entry.getLocation(), entry);
 
-        return jsonObject;
+        return entry;
     }
 
     /**
@@ -389,30 +289,14 @@ public class JSONBuilder {
 
     /**
      * This method initialize the JSON library.
-     */
-    public static InputStream initLibrary() {
-        net.sf.json.JSONObject library = new net.sf.json.JSONObject();
-        library.put(COMMENT, getCommentInformation());
-
-        return new ByteArrayInputStream(library.toString().getBytes());
-
-    }
-
-    /**
-     * This method checks if given character is inside map of polish letters.
      * 
-     * @param ch
-     *            The character to check.
-     * @return True if char is different from polish map.
+     * @return The empty JSON library.
      */
-    private static Boolean isNormalLetter(char ch) {
-        Boolean isNormal = false;
+    public static Library initLibrary() {
+        Library library = new Library();
+        library.setComment(getCommentInformation());
 
-        if (!polishLettersMap.containsKey(ch)) {
-            isNormal = true;
-        }
-
-        return isNormal;
+        return library;
     }
 
     /**
@@ -450,6 +334,72 @@ public class JSONBuilder {
         return properties;
     }
 
+    /**
+     * This method reads optional numeric value from properties file.
+     * 
+     * @param jsonProperties
+     *            The file name for properties file.
+     * @param key
+     *            The key of optional value.
+     * @param defaultValue
+     *            The value returned if properties file does not contain key.
+     * @return The value from properties file or default value.
+     */
+    public static Long readOption(String jsonProperties, String key,
+            Long defaultValue) {
+        Long value = defaultValue;
+
+        try {
+            JSONObject jsonObject = readOptions(new File(jsonProperties));
+
+            if (jsonObject.get(key) instanceof Number) {
+                value = ((Number) jsonObject.get(key)).longValue();
+            }
+        } catch (FileNotFoundException e) {
+            logger.debug(e);
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } catch (ParseException e) {
+            logger.error(e);
+            logger.debug(e);
+        }
+
+        return value;
+    }
+
+    /**
+     * This method reads options from properties file. The options are parsed
+     * once and kept in memory until properties file is modified, because all
+     * options are read one by one at start of application.
+     * 
+     * @param file
+     *            The properties file.
+     * @return The options from properties file.
+     * @throws IOException
+     * @throws ParseException
+     */
+    private static synchronized JSONObject readOptions(File file)
+            throws IOException, ParseException {
+        Long modified = file.lastModified();
+
+        if (file.equals(optionsFile) && modified.equals(optionsModified)) {
+            return options;
+        }
+
+        FileReader reader = new FileReader(file);
+
+        try {
+            options = (JSONObject) new JSONParser().parse(reader);
+            optionsFile = file;
+            optionsModified = modified;
+        } finally {
+            reader.close();
+        }
+
+        return options;
+    }
+
     /**
      * This method removes mp3 extension from given string.
      * 
@@ -481,22 +431,37 @@ public class JSONBuilder {
     }
 
     /**
-     * This method updates header in JSON library.
+     * This method sets name and location of file in entry.
      * 
-     * @param jsonLib
-     * 
-     * @return The InputStream of updated JSON library.
+     * @param entry
+     *            The entry of file.
+     * @param fileName
+     *            The name of file.
+     * @param path
+     *            The path on server side.
+     * @param modified
+     *            The modification time of file on server side, may be null.
      */
-    public static net.sf.json.JSONObject updateJsonHeader(OutputStream jsonLib) {
-        net.sf.json.JSONObject jsonObject = net.sf.json.JSONObject
-                .fromObject(jsonLib.toString());
+    private static void setLocation(TrackEntry entry, String fileName,
+            String path, Long modified) {
+        entry.setOriginalName(fileName);
+        entry.setDirectory(path);
+        entry.setWebDirectory(getWebDirectory(path + fileName));
+        entry.setLocation(path + fileName);
+        entry.setModified(modified == null ? "" : modified.toString());
+    }
 
-        if (jsonObject.containsKey(COMMENT)) {
-            jsonObject.discard(COMMENT);
-            jsonObject.put(COMMENT, getCommentInformation());
-        }
+    /**
+     * This method updates header in JSON library.
+     * 
+     * @param library
+     *            The JSON library.
+     * @return The updated JSON library.
+     */
+    public static Library updateJsonHeader(Library library) {
+        library.setComment(getCommentInformation());
 
-        return jsonObject;
+        return library;
     }
 
     /**
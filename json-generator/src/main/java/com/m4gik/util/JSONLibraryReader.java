@@ -0,0 +1,351 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class reads JSON library from input stream token by token, so only
+ * single entry is kept in memory at once. Objects are read as pairs of names
+ * and values, arrays are read element by element and scalar values are
+ * returned as strings.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class JSONLibraryReader {
+
+    /**
+     * The size of buffer for read characters.
+     */
+    private final static Integer BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The next character not consumed yet, -2 if it is not read yet.
+     */
+    private int peeked = -2;
+
+    /**
+     * The reader of characters.
+     */
+    private final Reader reader;
+
+    /**
+     * The buffer for read strings.
+     */
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * The constructor for {@link JSONLibraryReader}.
+     * 
+     * @param inputStream
+     *            The stream with JSON library in UTF-8.
+     * @throws IOException
+     */
+    public JSONLibraryReader(InputStream inputStream) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream,
+                Library.CHARSET), BUFFER_SIZE);
+    }
+
+    /**
+     * This method starts reading array.
+     * 
+     * @throws IOException
+     *             If next value is not array.
+     */
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    /**
+     * This method starts reading object.
+     * 
+     * @throws IOException
+     *             If next value is not object.
+     */
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    /**
+     * This method closes the stream.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * This method ends reading array.
+     * 
+     * @throws IOException
+     *             If array has more values.
+     */
+    public void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * This method ends reading object.
+     * 
+     * @throws IOException
+     *             If object has more values.
+     */
+    public void endObject() throws IOException {
+        expect('}');
+    }
+
+    /**
+     * This method consumes given character after whitespaces.
+     * 
+     * @param character
+     * @throws IOException
+     *             If other character is found.
+     */
+    private void expect(char character) throws IOException {
+        int found = next();
+
+        if (found != character) {
+            throw new IOException("Expected '" + character + "' but found "
+                    + (found < 0 ? "end of stream" : "'" + (char) found + "'"));
+        }
+    }
+
+    /**
+     * This method checks if current object or array has more values. The
+     * separator between values is consumed.
+     * 
+     * @return True if there is next value, false if object or array ends.
+     * @throws IOException
+     */
+    public Boolean hasNext() throws IOException {
+        int character = peek();
+
+        if (character == ',') {
+            next();
+            character = peek();
+        }
+
+        return character != '}' && character != ']' && character >= 0;
+    }
+
+    /**
+     * @return True if next value is object.
+     * @throws IOException
+     */
+    public Boolean isObject() throws IOException {
+        return peek() == '{';
+    }
+
+    /**
+     * This method reads next character after whitespaces.
+     * 
+     * @return The character, or -1 at end of stream.
+     * @throws IOException
+     */
+    private int next() throws IOException {
+        int character = peek();
+        peeked = -2;
+
+        return character;
+    }
+
+    /**
+     * This method reads name of next value in object.
+     * 
+     * @return The name.
+     * @throws IOException
+     */
+    public String nextName() throws IOException {
+        String name = readString();
+        expect(':');
+
+        return name;
+    }
+
+    /**
+     * This method reads next scalar value as string.
+     * 
+     * @return The value, null for JSON null.
+     * @throws IOException
+     *             If next value is not scalar.
+     */
+    public String nextString() throws IOException {
+        int character = peek();
+
+        if (character == '"') {
+            return readString();
+        }
+
+        if (character == '{' || character == '[' || character < 0) {
+            throw new IOException("Expected scalar value");
+        }
+
+        text.setLength(0);
+
+        while (character >= 0 && character != ',' && character != '}'
+                && character != ']' && !Character.isWhitespace(character)) {
+            text.append((char) character);
+            peeked = reader.read();
+            character = peeked;
+        }
+
+        String value = text.toString();
+
+        return "null".equals(value) ? null : value;
+    }
+
+    /**
+     * This method gets next character after whitespaces without consuming
+     * it.
+     * 
+     * @return The character, or -1 at end of stream.
+     * @throws IOException
+     */
+    private int peek() throws IOException {
+        if (peeked == -2 || (peeked >= 0 && Character.isWhitespace(peeked))) {
+            do {
+                peeked = reader.read();
+            } while (peeked >= 0 && Character.isWhitespace(peeked));
+        }
+
+        return peeked;
+    }
+
+    /**
+     * This method reads object with scalar values as map. Nested objects and
+     * arrays are skipped.
+     * 
+     * @return The values of object.
+     * @throws IOException
+     */
+    public Map<String, String> readMap() throws IOException {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        beginObject();
+
+        while (hasNext()) {
+            String name = nextName();
+            int character = peek();
+
+            if (character == '{' || character == '[') {
+                skipValue();
+            } else {
+                values.put(name, nextString());
+            }
+        }
+
+        endObject();
+
+        return values;
+    }
+
+    /**
+     * This method reads quoted string and decodes escaped characters.
+     * 
+     * @return The string.
+     * @throws IOException
+     */
+    private String readString() throws IOException {
+        expect('"');
+        text.setLength(0);
+
+        while (true) {
+            int character = reader.read();
+
+            if (character < 0) {
+                throw new IOException("Unterminated string");
+            }
+
+            if (character == '"') {
+                return text.toString();
+            }
+
+            if (character == '\\') {
+                character = reader.read();
+
+                switch (character) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    char[] digits = new char[4];
+
+                    for (int i = 0; i < digits.length; i++) {
+                        digits[i] = (char) reader.read();
+                    }
+
+                    try {
+                        text.append((char) Integer.parseInt(
+                                new String(digits), 16));
+                    } catch (NumberFormatException nfe) {
+                        throw new IOException("Invalid escape \\u"
+                                + new String(digits));
+                    }
+                    break;
+                default:
+                    if (character < 0) {
+                        throw new IOException("Unterminated string");
+                    }
+
+                    text.append((char) character);
+                }
+            } else {
+                text.append((char) character);
+            }
+        }
+    }
+
+    /**
+     * This method skips next value with all nested values.
+     * 
+     * @throws IOException
+     */
+    public void skipValue() throws IOException {
+        int character = peek();
+
+        if (character == '"') {
+            readString();
+        } else if (character == '{' || character == '[') {
+            int depth = 0;
+
+            do {
+                character = next();
+
+                if (character == '"') {
+                    peeked = character;
+                    readString();
+                } else if (character == '{' || character == '[') {
+                    depth++;
+                } else if (character == '}' || character == ']') {
+                    depth--;
+                } else if (character < 0) {
+                    throw new IOException("Unterminated value");
+                }
+            } while (depth > 0);
+        } else {
+            nextString();
+        }
+    }
+}
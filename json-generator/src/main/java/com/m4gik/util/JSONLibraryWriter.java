@@ -0,0 +1,227 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * This class writes JSON library directly to output stream as UTF-8. Values
+ * are written one by one, so the library is never kept as JSON document or
+ * string in memory. Only objects, arrays of objects, strings and numbers are
+ * supported, which is all JSON library and search results need.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class JSONLibraryWriter {
+
+    /**
+     * The size of buffer for written characters.
+     */
+    private final static Integer BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The hexadecimal digits for escaped characters.
+     */
+    private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * True if value written next is the first value of current object.
+     */
+    private Boolean isFirst = true;
+
+    /**
+     * The writer of characters.
+     */
+    private final Writer writer;
+
+    /**
+     * The constructor for {@link JSONLibraryWriter}.
+     * 
+     * @param outputStream
+     *            The stream for JSON library.
+     * @throws IOException
+     */
+    public JSONLibraryWriter(OutputStream outputStream) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream,
+                Library.CHARSET), BUFFER_SIZE);
+    }
+
+    /**
+     * This method starts new array of objects.
+     * 
+     * @param name
+     *            The name of array in current object.
+     * @throws IOException
+     */
+    public void beginArray(String name) throws IOException {
+        writeName(name);
+        writer.write('[');
+        isFirst = true;
+    }
+
+    /**
+     * This method starts new object. The object is written as value of given
+     * name, or as top object or element of array if name is null.
+     * 
+     * @param name
+     *            The name of object in current object, may be null.
+     * @throws IOException
+     */
+    public void beginObject(String name) throws IOException {
+        if (name != null) {
+            writeName(name);
+        } else if (!isFirst) {
+            writer.write(',');
+        }
+
+        writer.write('{');
+        isFirst = true;
+    }
+
+    /**
+     * This method flushes written content and closes the stream.
+     * 
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * This method ends current array.
+     * 
+     * @throws IOException
+     */
+    public void endArray() throws IOException {
+        writer.write(']');
+        isFirst = false;
+    }
+
+    /**
+     * This method ends current object.
+     * 
+     * @throws IOException
+     */
+    public void endObject() throws IOException {
+        writer.write('}');
+        isFirst = false;
+    }
+
+    /**
+     * This method writes pair of name and value to current object.
+     * 
+     * @param name
+     * @param value
+     *            The value, null is written as empty string.
+     * @throws IOException
+     */
+    public void value(String name, String value) throws IOException {
+        writeName(name);
+        writeString(value == null ? "" : value);
+        isFirst = false;
+    }
+
+    /**
+     * This method writes pair of name and number to current object.
+     * 
+     * @param name
+     * @param value
+     * @throws IOException
+     */
+    public void value(String name, Long value) throws IOException {
+        writeName(name);
+        writer.write(value.toString());
+        isFirst = false;
+    }
+
+    /**
+     * This method writes given map as object.
+     * 
+     * @param name
+     *            The name of object in current object.
+     * @param values
+     *            The values of object.
+     * @throws IOException
+     */
+    public void writeMap(String name, Map<String, String> values)
+            throws IOException {
+        beginObject(name);
+
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            value(value.getKey(), value.getValue());
+        }
+
+        endObject();
+    }
+
+    /**
+     * This method writes name of value with separator from previous value.
+     * 
+     * @param name
+     * @throws IOException
+     */
+    private void writeName(String name) throws IOException {
+        if (!isFirst) {
+            writer.write(',');
+        }
+
+        writeString(name);
+        writer.write(':');
+    }
+
+    /**
+     * This method writes quoted and escaped string.
+     * 
+     * @param value
+     * @throws IOException
+     */
+    private void writeString(String value) throws IOException {
+        writer.write('"');
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+
+            if (character >= 0x20 && character != '"' && character != '\\') {
+                continue;
+            }
+
+            writer.write(value, start, i - start);
+            start = i + 1;
+
+            switch (character) {
+            case '"':
+                writer.write("\\\"");
+                break;
+            case '\\':
+                writer.write("\\\\");
+                break;
+            case '\n':
+                writer.write("\\n");
+                break;
+            case '\r':
+                writer.write("\\r");
+                break;
+            case '\t':
+                writer.write("\\t");
+                break;
+            default:
+                writer.write("\\u00");
+                writer.write(HEX_DIGITS[character >> 4]);
+                writer.write(HEX_DIGITS[character & 0x0f]);
+            }
+        }
+
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,563 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.output.TeeOutputStream;
+
+/**
+ * This class keeps JSON library in memory. The entries are indexed by key (full
+ * path of file on server side), so lookups do not need to parse the library
+ * again. The entries are also indexed by size and by fingerprint, so copies of
+ * the same file in other directories are found without downloading them. The
+ * library is read and written as JSON stream, entry by entry, only when it is
+ * loaded and published. All methods are synchronized, so the library may be
+ * updated by many workers. The entry put to library is not changed anymore,
+ * its values are changed by replacing it with changed copy under lock of
+ * library, so the library may be written from copied references to entries.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class Library {
+
+    /**
+     * The size of buffer for compressed library.
+     */
+    private final static Integer BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The charset for serialized library.
+     */
+    public final static String CHARSET = "UTF-8";
+
+    /**
+     * The key for modification times of directories in JSON library.
+     */
+    public final static String DIRECTORIES = "_directories";
+
+    /**
+     * This method reads library from JSON stream. The stream is not closed.
+     * 
+     * @param inputStream
+     *            The JSON library in UTF-8.
+     * @return The library with all entries from JSON.
+     * @throws IOException
+     *             If stream cannot be read or is not valid JSON library.
+     */
+    public static Library readFrom(InputStream inputStream) throws IOException {
+        Library library = new Library();
+        JSONLibraryReader reader = new JSONLibraryReader(inputStream);
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+
+            if (JSONBuilder.COMMENT.equals(key) && reader.isObject()) {
+                library.setComment(reader.readMap());
+            } else if (DIRECTORIES.equals(key) && reader.isObject()) {
+                for (Map.Entry<String, String> directory : reader.readMap()
+                        .entrySet()) {
+                    try {
+                        library.putDirectory(directory.getKey(),
+                                Long.valueOf(directory.getValue()));
+                    } catch (NumberFormatException nfe) {
+                        // The directory without valid time is listed again.
+                    }
+                }
+            } else if (reader.isObject()) {
+                library.put(key, TrackEntry.fromMap(reader.readMap()));
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        return library;
+    }
+
+    /**
+     * The amount of changes of entries and directories since library was
+     * created.
+     */
+    private Long changes = 0L;
+
+    /**
+     * The comment information of library.
+     */
+    private Map<String, String> comment = new HashMap<String, String>();
+
+    /**
+     * The modification times of directories indexed by path.
+     */
+    private Map<String, Long> directories = new HashMap<String, Long>();
+
+    /**
+     * The entries of library indexed by key.
+     */
+    private Map<String, TrackEntry> entries = new LinkedHashMap<String, TrackEntry>();
+
+    /**
+     * The keys of entries indexed by fingerprint.
+     */
+    private final Map<String, String> keysByFingerprint = new HashMap<String, String>();
+
+    /**
+     * The keys of entries indexed by size of file.
+     */
+    private final Map<String, Set<String>> keysBySize = new HashMap<String, Set<String>>();
+
+    /**
+     * This method checks if library contains entry for given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @return True if library contains entry, false if not.
+     */
+    public synchronized Boolean containsKey(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * This method gets entry for given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @return The entry or null if library does not contain key.
+     */
+    public synchronized TrackEntry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * This method gets amount of changes of library, so library changed
+     * since given moment may be detected. The comment is not counted.
+     * 
+     * @return The amount of changes since library was created.
+     */
+    public synchronized Long getChanges() {
+        return changes;
+    }
+
+    /**
+     * This method gets entry with given fingerprint.
+     * 
+     * @param fingerprint
+     *            The fingerprint of file.
+     * @return The entry or null if no entry has given fingerprint.
+     */
+    public synchronized TrackEntry getByFingerprint(String fingerprint) {
+        String key = keysByFingerprint.get(fingerprint);
+
+        return key == null ? null : entries.get(key);
+    }
+
+    /**
+     * @return the comment
+     */
+    public synchronized Map<String, String> getComment() {
+        return comment;
+    }
+
+    /**
+     * This method gets modification time of given directory, stored during
+     * last crawl.
+     * 
+     * @param path
+     *            The path of directory.
+     * @return The modification time or null if it is unknown.
+     */
+    public synchronized Long getDirectoryModified(String path) {
+        return directories.get(path);
+    }
+
+    /**
+     * @return The copy of entries.
+     */
+    public synchronized Collection<TrackEntry> getEntries() {
+        return new ArrayList<TrackEntry>(entries.values());
+    }
+
+    /**
+     * @return The copy of entries indexed by key.
+     */
+    public synchronized Map<String, TrackEntry> getEntriesByKey() {
+        return new LinkedHashMap<String, TrackEntry>(entries);
+    }
+
+    /**
+     * This method gets keys of entries of files with given size.
+     * 
+     * @param size
+     *            The size of file.
+     * @return The copy of keys, empty if no entry has given size.
+     */
+    public synchronized Set<String> getKeysBySize(String size) {
+        Set<String> keys = keysBySize.get(size);
+
+        return keys == null ? new HashSet<String>() : new HashSet<String>(
+                keys);
+    }
+
+    /**
+     * This method gets known subdirectories of given directory.
+     * 
+     * @param path
+     *            The path of directory.
+     * @return The paths of direct subdirectories.
+     */
+    public synchronized List<String> getSubdirectories(String path) {
+        List<String> subdirectories = new ArrayList<String>();
+
+        for (String directory : directories.keySet()) {
+            if (directory.length() > path.length()
+                    && directory.startsWith(path)
+                    && directory.indexOf('/', path.length()) == directory
+                            .length() - 1) {
+                subdirectories.add(directory);
+            }
+        }
+
+        return subdirectories;
+    }
+
+    /**
+     * This method adds entry to indexes by size and fingerprint.
+     * 
+     * @param key
+     *            The key of entry.
+     * @param entry
+     *            The entry.
+     */
+    private void index(String key, TrackEntry entry) {
+        Set<String> keys = keysBySize.get(entry.getSize());
+
+        if (keys == null) {
+            keys = new HashSet<String>();
+            keysBySize.put(entry.getSize(), keys);
+        }
+
+        keys.add(key);
+
+        if (!entry.getFingerprint().equals("")) {
+            keysByFingerprint.put(entry.getFingerprint(), key);
+        }
+    }
+
+    /**
+     * This method puts modification time of directory.
+     * 
+     * @param path
+     *            The path of directory.
+     * @param modified
+     *            The modification time of directory.
+     */
+    public synchronized void putDirectory(String path, Long modified) {
+        Long previous = directories.put(path, modified);
+
+        if (previous == null ? modified != null : !previous.equals(modified)) {
+            changes++;
+        }
+    }
+
+    /**
+     * This method puts entry to library under given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @param entry
+     *            The entry to put.
+     */
+    public synchronized void put(String key, TrackEntry entry) {
+        TrackEntry previous = entries.put(key, entry);
+
+        if (previous != null) {
+            unindex(key, previous);
+        }
+
+        index(key, entry);
+        changes++;
+    }
+
+    /**
+     * This method sets fingerprint of entry for given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @param fingerprint
+     *            The fingerprint of file.
+     */
+    public synchronized void putFingerprint(String key, String fingerprint) {
+        TrackEntry entry = entries.get(key);
+
+        if (entry != null) {
+            TrackEntry changed = entry.copy();
+            changed.setFingerprint(fingerprint);
+            put(key, changed);
+        }
+    }
+
+    /**
+     * This method sets modification time of entry for given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @param modified
+     *            The modification time of file.
+     */
+    public synchronized void putModified(String key, String modified) {
+        TrackEntry entry = entries.get(key);
+
+        if (entry != null) {
+            TrackEntry changed = entry.copy();
+            changed.setModified(modified);
+            put(key, changed);
+        }
+    }
+
+    /**
+     * This method changes keys of entries to their locations. The libraries
+     * written before entries were keyed by location used names of files as
+     * keys, so files with the same name in different directories replaced
+     * each other.
+     * 
+     * @return The amount of entries with changed key.
+     */
+    public synchronized Integer rekeyByLocation() {
+        Map<String, TrackEntry> rekeyed = new LinkedHashMap<String, TrackEntry>();
+        Integer changed = 0;
+
+        for (Map.Entry<String, TrackEntry> entry : entries.entrySet()) {
+            String key = entry.getValue().getLocation();
+
+            if (key.equals("")) {
+                key = entry.getKey();
+            } else if (!key.equals(entry.getKey())) {
+                changed++;
+            }
+
+            rekeyed.put(key, entry.getValue());
+        }
+
+        entries = new LinkedHashMap<String, TrackEntry>();
+        keysByFingerprint.clear();
+        keysBySize.clear();
+
+        for (Map.Entry<String, TrackEntry> entry : rekeyed.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+
+        return changed;
+    }
+
+    /**
+     * This method removes entry for given key.
+     * 
+     * @param key
+     *            The key of entry.
+     * @return The removed entry or null if library does not contain key.
+     */
+    public synchronized TrackEntry remove(String key) {
+        TrackEntry entry = entries.remove(key);
+
+        if (entry != null) {
+            unindex(key, entry);
+            changes++;
+        }
+
+        return entry;
+    }
+
+    /**
+     * This method removes entries, which keys are not accepted by given
+     * filter.
+     * 
+     * @param filter
+     *            The filter of keys to keep.
+     * @return The amount of removed entries.
+     */
+    public synchronized Integer retainEntries(EntryFilter filter) {
+        Integer removed = 0;
+        Iterator<Map.Entry<String, TrackEntry>> iterator = entries.entrySet()
+                .iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<String, TrackEntry> entry = iterator.next();
+
+            if (!filter.accept(entry.getKey(), entry.getValue())) {
+                iterator.remove();
+                unindex(entry.getKey(), entry.getValue());
+                removed++;
+            }
+        }
+
+        changes += removed;
+
+        return removed;
+    }
+
+    /**
+     * @param comment
+     *            the comment to set
+     */
+    public synchronized void setComment(Map<String, String> comment) {
+        this.comment = comment;
+    }
+
+    /**
+     * This method replaces all modification times of directories.
+     * 
+     * @param directories
+     *            The modification times of directories indexed by path.
+     */
+    public synchronized void setDirectories(Map<String, Long> directories) {
+        if (!this.directories.equals(directories)) {
+            changes++;
+        }
+
+        this.directories = new HashMap<String, Long>(directories);
+    }
+
+    /**
+     * @return The amount of entries in library.
+     */
+    public synchronized Integer size() {
+        return entries.size();
+    }
+
+    /**
+     * This method removes entry from indexes by size and fingerprint.
+     * 
+     * @param key
+     *            The key of entry.
+     * @param entry
+     *            The entry.
+     */
+    private void unindex(String key, TrackEntry entry) {
+        Set<String> keys = keysBySize.get(entry.getSize());
+
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysBySize.remove(entry.getSize());
+        }
+
+        if (key.equals(keysByFingerprint.get(entry.getFingerprint()))) {
+            keysByFingerprint.remove(entry.getFingerprint());
+        }
+    }
+
+    /**
+     * This method writes library to given stream as JSON in UTF-8, entry by
+     * entry. The library is locked only to copy references to entries, which
+     * are never changed in place, so workers are not blocked while library is
+     * uploaded. The stream is closed.
+     * 
+     * @param outputStream
+     *            The stream for JSON library.
+     * @throws IOException
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(outputStream, null, null);
+    }
+
+    /**
+     * This method writes library to given stream as JSON in UTF-8 and, in the
+     * same pass over entries, to optional streams as gzip-compressed JSON and
+     * as binary library. All given streams are closed.
+     * 
+     * @param outputStream
+     *            The stream for JSON library.
+     * @param compressedStream
+     *            The stream for compressed JSON library, may be null.
+     * @param binaryStream
+     *            The stream for binary library, may be null.
+     * @throws IOException
+     */
+    public void writeTo(OutputStream outputStream,
+            OutputStream compressedStream, OutputStream binaryStream)
+            throws IOException {
+        Map<String, String> comment = null;
+        Map<String, Long> directories = null;
+        Map<String, TrackEntry> entries = null;
+
+        synchronized (this) {
+            comment = new HashMap<String, String>(this.comment);
+            directories = new HashMap<String, Long>(this.directories);
+            // Nodes of live map would show entries replaced meanwhile.
+            entries = new LinkedHashMap<String, TrackEntry>(this.entries);
+        }
+
+        JSONLibraryWriter writer = new JSONLibraryWriter(
+                compressedStream == null ? outputStream : new TeeOutputStream(
+                        outputStream, new GZIPOutputStream(compressedStream,
+                                BUFFER_SIZE)));
+        BinaryLibraryWriter binary = binaryStream == null ? null
+                : new BinaryLibraryWriter(binaryStream);
+
+        try {
+            writer.beginObject(null);
+            writer.writeMap(JSONBuilder.COMMENT, comment);
+            writer.beginObject(DIRECTORIES);
+
+            for (Map.Entry<String, Long> directory : directories.entrySet()) {
+                writer.value(directory.getKey(), directory.getValue()
+                        .toString());
+            }
+
+            writer.endObject();
+
+            if (binary != null) {
+                binary.writeHeader(comment, directories, entries.size());
+            }
+
+            for (Map.Entry<String, TrackEntry> entry : entries.entrySet()) {
+                entry.getValue().writeTo(entry.getKey(), writer);
+
+                if (binary != null) {
+                    binary.writeEntry(entry.getKey(), entry.getValue());
+                }
+            }
+
+            writer.endObject();
+        } finally {
+            writer.close();
+
+            if (binary != null) {
+                binary.close();
+            }
+        }
+    }
+
+    /**
+     * This interface filters entries of library.
+     */
+    public interface EntryFilter {
+
+        /**
+         * This method checks if entry should be kept in library.
+         * 
+         * @param key
+         *            The key of entry.
+         * @param entry
+         *            The entry to check.
+         * @return True if entry is kept, false if entry is removed.
+         */
+        Boolean accept(String key, TrackEntry entry);
+    }
+}
@@ -0,0 +1,321 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * This class splits JSON library into shards, which may be loaded by search
+ * page one by one, and writes manifest of shards. The shard contains entries
+ * of single directory, or fixed amount of entries ordered by directory. Each
+ * shard is named by checksum of its content, so shard, which content did not
+ * change, keeps its name and does not need to be uploaded again.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class LibraryShards {
+
+    /**
+     * The algorithm of checksums of shards.
+     */
+    private final static String CHECKSUM_ALGORITHM = "SHA-1";
+
+    /**
+     * The hexadecimal digits for checksums.
+     */
+    private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The name of manifest file on server.
+     */
+    public final static String MANIFEST_FILE = "lib.manifest.json";
+
+    /**
+     * The key for shards in manifest.
+     */
+    private final static String SHARDS = "shards";
+
+    /**
+     * The extension of shard files.
+     */
+    private final static String SHARD_EXTENSION = ".json";
+
+    /**
+     * The prefix of shard files.
+     */
+    private final static String SHARD_PREFIX = "lib.";
+
+    /**
+     * This method reads names of shards from manifest. The stream is not
+     * closed.
+     * 
+     * @param inputStream
+     *            The manifest in UTF-8.
+     * @return The names of shards.
+     * @throws IOException
+     *             If stream cannot be read or is not valid manifest.
+     */
+    public static Set<String> readShardNames(InputStream inputStream)
+            throws IOException {
+        Set<String> names = new HashSet<String>();
+        JSONLibraryReader reader = new JSONLibraryReader(inputStream);
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (!SHARDS.equals(reader.nextName())) {
+                reader.skipValue();
+                continue;
+            }
+
+            reader.beginArray();
+
+            while (reader.hasNext()) {
+                String name = reader.readMap().get(Shard.NAME);
+
+                if (name != null) {
+                    names.add(name);
+                }
+            }
+
+            reader.endArray();
+        }
+
+        reader.endObject();
+
+        return names;
+    }
+
+    /**
+     * This method splits entries of library into shards. The entries are
+     * ordered by directory and key, so shards do not depend on order in which
+     * files were found.
+     * 
+     * @param library
+     *            The library to split.
+     * @param shardSize
+     *            The amount of entries in shard, zero for shard per directory.
+     * @return The shards of library.
+     */
+    public static List<Shard> split(Library library, Integer shardSize) {
+        Map<String, Map<String, TrackEntry>> directories;
+        directories = new TreeMap<String, Map<String, TrackEntry>>();
+
+        for (Map.Entry<String, TrackEntry> entry : library.getEntriesByKey()
+                .entrySet()) {
+            String directory = entry.getValue().getDirectory();
+            Map<String, TrackEntry> entries = directories.get(directory);
+
+            if (entries == null) {
+                entries = new TreeMap<String, TrackEntry>();
+                directories.put(directory, entries);
+            }
+
+            entries.put(entry.getKey(), entry.getValue());
+        }
+
+        List<Shard> shards = new ArrayList<Shard>();
+        Shard shard = null;
+
+        for (Map.Entry<String, Map<String, TrackEntry>> directory : directories
+                .entrySet()) {
+            if (shardSize <= 0) {
+                shards.add(new Shard(directory.getKey(), directory.getValue()));
+                continue;
+            }
+
+            for (Map.Entry<String, TrackEntry> entry : directory.getValue()
+                    .entrySet()) {
+                if (shard == null || shard.getCount() >= shardSize) {
+                    shard = new Shard(null, new TreeMap<String, TrackEntry>());
+                    shards.add(shard);
+                }
+
+                shard.entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * This method writes manifest of encoded shards as JSON in UTF-8. The
+     * stream is closed.
+     * 
+     * @param comment
+     *            The comment information of library.
+     * @param shards
+     *            The encoded shards in order of loading.
+     * @param outputStream
+     *            The stream for manifest.
+     * @throws IOException
+     */
+    public static void writeManifest(Map<String, String> comment,
+            List<Shard> shards, OutputStream outputStream) throws IOException {
+        JSONLibraryWriter writer = new JSONLibraryWriter(outputStream);
+        Long total = 0L;
+
+        for (Shard shard : shards) {
+            total += shard.getCount();
+        }
+
+        try {
+            writer.beginObject(null);
+            writer.writeMap(JSONBuilder.COMMENT, comment);
+            writer.value("total", total);
+            writer.beginArray(SHARDS);
+
+            for (Shard shard : shards) {
+                writer.beginObject(null);
+                writer.value(Shard.NAME, shard.getName());
+
+                if (shard.getDirectory() != null) {
+                    writer.value(TrackEntry.DIRECTORY, shard.getDirectory());
+                }
+
+                writer.value("count", shard.getCount().longValue());
+                writer.value(TrackEntry.SIZE, shard.getSize().longValue());
+                writer.value("sha1", shard.getChecksum());
+                writer.endObject();
+            }
+
+            writer.endArray();
+            writer.endObject();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * This class keeps entries of single shard. The name, checksum and size of
+     * shard are known after shard is encoded.
+     */
+    public static class Shard {
+
+        /**
+         * The key for name of shard in manifest.
+         */
+        private final static String NAME = "name";
+
+        /**
+         * The checksum of encoded shard.
+         */
+        private String checksum;
+
+        /**
+         * The directory of entries, null if shard has fixed size.
+         */
+        private final String directory;
+
+        /**
+         * The entries of shard indexed by key.
+         */
+        private final Map<String, TrackEntry> entries;
+
+        /**
+         * The size of encoded shard in bytes.
+         */
+        private Integer size;
+
+        /**
+         * The constructor for {@link Shard}.
+         * 
+         * @param directory
+         * @param entries
+         */
+        private Shard(String directory, Map<String, TrackEntry> entries) {
+            this.directory = directory;
+            this.entries = entries;
+        }
+
+        /**
+         * This method writes entries of shard as JSON object, the same as JSON
+         * library without comment and directories.
+         * 
+         * @return The shard in UTF-8.
+         * @throws IOException
+         */
+        public byte[] encode() throws IOException {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            JSONLibraryWriter writer = new JSONLibraryWriter(outputStream);
+            writer.beginObject(null);
+
+            for (Map.Entry<String, TrackEntry> entry : entries.entrySet()) {
+                entry.getValue().writeTo(entry.getKey(), writer);
+            }
+
+            writer.endObject();
+            writer.close();
+            byte[] content = outputStream.toByteArray();
+
+            try {
+                byte[] digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM)
+                        .digest(content);
+                char[] hex = new char[digest.length * 2];
+
+                for (int i = 0; i < digest.length; i++) {
+                    hex[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0f];
+                    hex[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0f];
+                }
+
+                checksum = new String(hex);
+            } catch (NoSuchAlgorithmException nsae) {
+                throw new IOException(nsae.getMessage());
+            }
+
+            size = content.length;
+
+            return content;
+        }
+
+        /**
+         * @return the checksum, null before shard is encoded
+         */
+        public String getChecksum() {
+            return checksum;
+        }
+
+        /**
+         * @return The amount of entries in shard.
+         */
+        public Integer getCount() {
+            return entries.size();
+        }
+
+        /**
+         * @return the directory
+         */
+        public String getDirectory() {
+            return directory;
+        }
+
+        /**
+         * @return The name of shard file, null before shard is encoded.
+         */
+        public String getName() {
+            return checksum == null ? null : SHARD_PREFIX + checksum
+                    + SHARD_EXTENSION;
+        }
+
+        /**
+         * @return the size, null before shard is encoded
+         */
+        public Integer getSize() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,844 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class reads ID3v2 text frames and MPEG audio header directly from
+ * content of file. Only the title, artist, album and year frames are read,
+ * other frames like attached pictures are skipped by their size without
+ * reading their content. The track length is taken from Xing/Info or VBRI
+ * header, with encoder delay and padding from LAME tag. Without these headers
+ * the average bit rate is estimated from few samples of frames spread over
+ * file, so audio frames are never scanned and only sampled ranges are read.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class MP3HeaderParser {
+
+    /**
+     * The default accuracy of estimated bit rate in percent.
+     */
+    public final static Integer DEFAULT_ACCURACY = 2;
+
+    /**
+     * The bit rates in kbps for MPEG 1, indexed by layer and bit rate index.
+     */
+    private final static int[][] BIT_RATES_V1 = {
+            { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416,
+                    448 },
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320,
+                    384 },
+            { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256,
+                    320 } };
+
+    /**
+     * The bit rates in kbps for MPEG 2 and 2.5, indexed by layer and bit rate
+     * index.
+     */
+    private final static int[][] BIT_RATES_V2 = {
+            { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224,
+                    256 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 } };
+
+    /**
+     * The size of ID3v1 tag at the end of file.
+     */
+    private final static int ID3V1_SIZE = 128;
+
+    /**
+     * The size of ID3v2 header.
+     */
+    private final static int ID3V2_HEADER_SIZE = 10;
+
+    /**
+     * The amount of bytes after ID3v2 tag searched for first audio frame. It
+     * is enough for first frame with Xing/VBRI header and next frame header.
+     */
+    private final static int FRAME_SEARCH_SIZE = 4 * 1024;
+
+    /**
+     * The maximum amount of bytes searched for first audio frame, when it is
+     * preceded by garbage.
+     */
+    private final static int MAX_FRAME_SEARCH = 64 * 1024;
+
+    /**
+     * The offset of encoder delay and padding from start of LAME tag.
+     */
+    private final static int LAME_DELAY_OFFSET = 21;
+
+    /**
+     * The encoders, which write LAME tag after Xing/Info header.
+     */
+    private final static Set<String> LAME_ENCODERS = new HashSet<String>(
+            Arrays.asList("LAME", "Lavf", "Lavc"));
+
+    /**
+     * The maximum amount of samples of frames, which are read to estimate bit
+     * rate, with the first frames of file.
+     */
+    private final static int MAX_SAMPLES = 8;
+
+    /**
+     * The maximum size of text frame, larger frames are skipped.
+     */
+    private final static int MAX_TEXT_FRAME_SIZE = 64 * 1024;
+
+    /**
+     * The sample rates in Hz for MPEG 1, indexed by sample rate index.
+     */
+    private final static int[] SAMPLE_RATES_V1 = { 44100, 48000, 32000 };
+
+    /**
+     * The size of single sample of frames. It is the least amount of bytes
+     * fetched by single request of partial download.
+     */
+    private final static int SAMPLE_SIZE = 16 * 1024;
+
+    /**
+     * The identifiers of ID3v2 frames, which are read.
+     */
+    private final static Set<String> TEXT_FRAMES = new HashSet<String>(
+            Arrays.asList("TIT2", "TT2", "TPE1", "TP1", "TALB", "TAL", "TYER",
+                    "TYE", "TDRC"));
+
+    /**
+     * The offset of VBRI header from start of frame.
+     */
+    private final static int VBRI_OFFSET = 36;
+
+    /**
+     * The charsets of ID3v2 text frames, indexed by encoding byte.
+     */
+    private final static Charset[] TEXT_CHARSETS = {
+            Charset.forName("ISO-8859-1"), Charset.forName("UTF-16"),
+            Charset.forName("UTF-16BE"), Charset.forName("UTF-8") };
+
+    /**
+     * The accuracy of estimated bit rate in percent. Sampling stops, when the
+     * next sample changes estimate less than this.
+     */
+    private static volatile Integer accuracy = DEFAULT_ACCURACY;
+
+    /**
+     * This method decodes text frame.
+     * 
+     * @param frame
+     *            The content of frame with encoding byte.
+     * @return The decoded text up to first null character.
+     */
+    static String decodeText(ByteBuffer frame) {
+        if (!frame.hasRemaining()) {
+            return "";
+        }
+
+        int encoding = frame.get() & 0xff;
+
+        if (encoding >= TEXT_CHARSETS.length) {
+            return "";
+        }
+
+        String text = TEXT_CHARSETS[encoding].decode(frame).toString();
+        int end = text.indexOf('\u0000');
+
+        return (end < 0 ? text : text.substring(0, end)).trim();
+    }
+
+    /**
+     * This method finds first valid MPEG frame header in given buffer. The
+     * header is accepted, if it is followed by next frame header, or if the
+     * next frame is outside the buffer.
+     * 
+     * @param buffer
+     *            The audio part of file.
+     * @return The header of first frame, or null if it is not found.
+     */
+    static FrameHeader findFrame(ByteBuffer buffer) {
+        int end = buffer.limit() - 4;
+
+        for (int offset = 0; offset < end; offset++) {
+            FrameHeader header = FrameHeader.parse(buffer, offset);
+
+            if (header != null) {
+                int next = offset + header.frameLength;
+
+                if (next + 4 > buffer.limit()
+                        || FrameHeader.parse(buffer, next) != null) {
+                    return header;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * This method gets size of ID3v2 tag from its header.
+     * 
+     * @param buffer
+     *            The first bytes of file.
+     * @return The size of tag with header and footer, zero if there is no tag.
+     */
+    static int getId3v2Size(ByteBuffer buffer) {
+        if (buffer.limit() < ID3V2_HEADER_SIZE || buffer.get(0) != 'I'
+                || buffer.get(1) != 'D' || buffer.get(2) != '3') {
+            return 0;
+        }
+
+        int size = readSynchsafe(buffer, 6) + ID3V2_HEADER_SIZE;
+
+        if ((buffer.get(5) & 0x10) != 0) {
+            size += ID3V2_HEADER_SIZE;
+        }
+
+        return size;
+    }
+
+    /**
+     * This method reads information from given audio data. Only the ID3v2
+     * frame headers, the read text frames, the first audio frames and the
+     * ID3v1 tag are read from data.
+     * 
+     * @param data
+     *            The content of file.
+     * @return The information about file, or null if audio frame is not found
+     *         and file needs other reader.
+     */
+    public static AudioInformation parse(AudioData data) {
+        AudioInformation information = new AudioInformation();
+        ByteBuffer header = data.read(0L, ID3V2_HEADER_SIZE);
+
+        if (header == null) {
+            return null;
+        }
+
+        int tagSize = getId3v2Size(header);
+
+        if (tagSize > 0) {
+            readId3v2(data, header, tagSize, information);
+        }
+
+        ByteBuffer audio = data.read((long) tagSize, FRAME_SEARCH_SIZE);
+        FrameHeader frame = audio == null ? null : findFrame(audio);
+
+        if (frame == null && audio != null) {
+            audio = data.read((long) tagSize, MAX_FRAME_SEARCH);
+            frame = findFrame(audio);
+        }
+
+        if (frame == null) {
+            return null;
+        }
+
+        long audioSize = data.getSize() - tagSize - frame.offset;
+        ByteBuffer id3v1 = data.read(data.getSize() - ID3V1_SIZE, ID3V1_SIZE);
+
+        if (id3v1 != null && id3v1.remaining() == ID3V1_SIZE
+                && id3v1.get(0) == 'T' && id3v1.get(1) == 'A'
+                && id3v1.get(2) == 'G') {
+            audioSize -= ID3V1_SIZE;
+        }
+
+        if (!readAudioHeader(audio, frame, audioSize, information)) {
+            estimateAudioHeader(data, audio, frame, tagSize + frame.offset,
+                    audioSize, information);
+        }
+
+        return information;
+    }
+
+    /**
+     * This method sets accuracy of estimated bit rate of files without
+     * Xing/Info or VBRI header.
+     * 
+     * @param percent
+     *            The accuracy in percent. With zero all samples are read from
+     *            files with variable bit rate.
+     */
+    public static void setAccuracy(Integer percent) {
+        accuracy = percent;
+    }
+
+    /**
+     * This method counts frames of the same stream in sample, until first
+     * invalid frame or end of sample.
+     * 
+     * @param buffer
+     *            The sample of audio.
+     * @param offset
+     *            The offset of first frame in sample.
+     * @param stream
+     *            The first frame of file.
+     * @param counted
+     *            The amount of bytes and of samples of frames, which is
+     *            increased by counted frames.
+     * @return True if bit rate of any frame differs from first frame of file.
+     */
+    private static Boolean countFrames(ByteBuffer buffer, int offset,
+            FrameHeader stream, long[] counted) {
+        Boolean isVbr = false;
+        FrameHeader frame = FrameHeader.parse(buffer, offset);
+
+        while (frame != null && frame.isSameStream(stream)) {
+            counted[0] += frame.frameLength;
+            counted[1] += frame.getSamplesPerFrame();
+            isVbr = isVbr || frame.bitRate != stream.bitRate;
+            frame = FrameHeader.parse(buffer, frame.offset + frame.frameLength);
+        }
+
+        return isVbr;
+    }
+
+    /**
+     * This method estimates track length and bit rate from samples of frames,
+     * when file has no header with frame count. The first sample is taken
+     * from start of audio, the next ones from the middle, quarters and eighths
+     * of audio. Sampling stops, when the next sample changes average bit rate
+     * less than accuracy, so constant bit rate needs only two samples.
+     * 
+     * @param data
+     *            The content of file.
+     * @param buffer
+     *            The audio part of file.
+     * @param frame
+     *            The first audio frame.
+     * @param start
+     *            The offset of first audio frame in file.
+     * @param audioSize
+     *            The size of audio frames.
+     * @param information
+     *            The information to fill.
+     */
+    private static void estimateAudioHeader(AudioData data,
+            ByteBuffer buffer, FrameHeader frame, long start, long audioSize,
+            AudioInformation information) {
+        long[] counted = new long[2];
+        Boolean isVbr = countFrames(buffer, frame.offset, frame, counted);
+        double bytesPerSample = (double) counted[0] / counted[1];
+
+        for (int i = 1; i < MAX_SAMPLES && audioSize > SAMPLE_SIZE; i++) {
+            // The middle, then 1/4, 3/4, 1/8, 3/8, 5/8 and 7/8 of audio.
+            int part = Integer.highestOneBit(i);
+            long offset = start + audioSize * (2 * (i - part) + 1)
+                    / (2 * part);
+            ByteBuffer sample = data.read(offset, SAMPLE_SIZE);
+            FrameHeader first = sample == null ? null : findFrame(sample);
+
+            if (first == null || !first.isSameStream(frame)) {
+                continue;
+            }
+
+            isVbr = countFrames(sample, first.offset, frame, counted) || isVbr;
+            double previous = bytesPerSample;
+            bytesPerSample = (double) counted[0] / counted[1];
+
+            if (Math.abs(bytesPerSample - previous) <= previous * accuracy
+                    / 100.0) {
+                break;
+            }
+        }
+
+        if (isVbr) {
+            information.setTrackLength((int) Math.round(audioSize
+                    / bytesPerSample / frame.sampleRate));
+            information.setBitRate("~"
+                    + Math.round(bytesPerSample * 8 * frame.sampleRate / 1000));
+        } else {
+            information.setTrackLength((int) Math.round(audioSize * 8.0
+                    / (frame.bitRate * 1000)));
+            information.setBitRate(String.valueOf(frame.bitRate));
+        }
+    }
+
+    /**
+     * This method counts track length and bit rate from Xing/Info or VBRI
+     * header of first frame. The encoder delay and padding from LAME tag are
+     * not counted to track length, and the frame with header is not counted
+     * to audio size.
+     * 
+     * @param buffer
+     *            The audio part of file.
+     * @param frame
+     *            The first audio frame.
+     * @param audioSize
+     *            The size of audio frames.
+     * @param information
+     *            The information to fill.
+     * @return True if first frame contains header with frame count, false if
+     *         bit rate needs to be estimated.
+     */
+    private static Boolean readAudioHeader(ByteBuffer buffer,
+            FrameHeader frame, long audioSize, AudioInformation information) {
+        int xing = frame.offset + 4 + frame.getSideInfoSize();
+        int vbri = frame.offset + VBRI_OFFSET;
+        long frames = -1;
+        long bytes = -1;
+        int delay = 0;
+        Boolean isVbr = false;
+
+        if (xing + 12 <= buffer.limit()) {
+            String id = readId(buffer, xing, 4);
+            int flags = buffer.getInt(xing + 4);
+            int position = xing + 8;
+
+            if (("Xing".equals(id) || "Info".equals(id))
+                    && (flags & 0x01) != 0) {
+                frames = buffer.getInt(position) & 0xffffffffL;
+                isVbr = "Xing".equals(id);
+                position += 4;
+
+                if ((flags & 0x02) != 0 && position + 4 <= buffer.limit()) {
+                    bytes = buffer.getInt(position) & 0xffffffffL;
+                    position += 4;
+                }
+
+                // Seek table and quality.
+                position += ((flags & 0x04) != 0 ? 100 : 0)
+                        + ((flags & 0x08) != 0 ? 4 : 0);
+
+                int lame = position + LAME_DELAY_OFFSET;
+
+                if (lame + 3 <= buffer.limit()
+                        && LAME_ENCODERS.contains(readId(buffer, position,
+                                4))) {
+                    int delays = ((buffer.get(lame) & 0xff) << 16)
+                            | ((buffer.get(lame + 1) & 0xff) << 8)
+                            | (buffer.get(lame + 2) & 0xff);
+                    // Delay and padding have 12 bits each.
+                    delay = (delays >>> 12) + (delays & 0xfff);
+                }
+            }
+        }
+
+        if (frames < 0 && vbri + 18 <= buffer.limit()
+                && "VBRI".equals(readId(buffer, vbri, 4))) {
+            bytes = buffer.getInt(vbri + 10) & 0xffffffffL;
+            frames = buffer.getInt(vbri + 14) & 0xffffffffL;
+            isVbr = true;
+        }
+
+        if (frames <= 0) {
+            return false;
+        }
+
+        long samples = frames * frame.getSamplesPerFrame();
+
+        if (delay < samples) {
+            samples -= delay;
+        }
+
+        if (bytes <= 0 || bytes > audioSize) {
+            bytes = audioSize;
+        }
+
+        if (bytes > frame.frameLength) {
+            bytes -= frame.frameLength;
+        }
+
+        double length = (double) samples / frame.sampleRate;
+        information.setTrackLength((int) Math.round(length));
+        information.setBitRate(isVbr ? "~"
+                + Math.round(bytes * 8 / length / 1000) : String
+                .valueOf(frame.bitRate));
+
+        return true;
+    }
+
+    /**
+     * This method reads identifier of frame.
+     * 
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return The identifier as string.
+     */
+    private static String readId(ByteBuffer buffer, int offset, int length) {
+        StringBuilder id = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            id.append((char) (buffer.get(offset + i) & 0xff));
+        }
+
+        return id.toString();
+    }
+
+    /**
+     * This method reads part of ID3v2 tag.
+     * 
+     * @param data
+     *            The content of file.
+     * @param tag
+     *            The tag without unsynchronisation, or null if tag is read
+     *            from data.
+     * @param offset
+     *            The offset in file.
+     * @param length
+     *            The amount of bytes.
+     * @return The requested bytes, or null if they are not known.
+     */
+    private static ByteBuffer readTag(AudioData data, ByteBuffer tag,
+            long offset, int length) {
+        if (tag == null) {
+            ByteBuffer buffer = data.read(offset, length);
+
+            return buffer == null || buffer.remaining() < length ? null
+                    : buffer;
+        }
+
+        int start = (int) offset - ID3V2_HEADER_SIZE;
+
+        if (start + length > tag.limit()) {
+            return null;
+        }
+
+        ByteBuffer buffer = tag.duplicate();
+        ((Buffer) buffer).position(start);
+        ((Buffer) buffer).limit(start + length);
+
+        return buffer.slice();
+    }
+
+    /**
+     * This method reads text frames from ID3v2 tag in versions 2.2, 2.3 and
+     * 2.4. Headers of frames are read one by one, and content is read only
+     * for needed text frames. Reading stops, when all fields are known.
+     * 
+     * @param data
+     *            The content of file.
+     * @param header
+     *            The header of tag.
+     * @param tagSize
+     *            The size of tag.
+     * @param information
+     *            The information to fill.
+     */
+    private static void readId3v2(AudioData data, ByteBuffer header,
+            int tagSize, AudioInformation information) {
+        int version = header.get(3);
+        int flags = header.get(5);
+        long end = tagSize - ((flags & 0x10) != 0 ? ID3V2_HEADER_SIZE : 0);
+        long offset = ID3V2_HEADER_SIZE;
+        ByteBuffer tag = null;
+
+        if ((flags & 0x80) != 0 && version < 4) {
+            // Unsynchronisation moves frames, so whole tag is needed.
+            tag = readTag(data, null, offset, (int) (end - offset));
+
+            if (tag == null) {
+                return;
+            }
+
+            tag = removeUnsynchronisation(tag);
+            end = offset + tag.limit();
+        }
+
+        if ((flags & 0x40) != 0 && version > 2) {
+            ByteBuffer extended = readTag(data, tag, offset, 4);
+
+            if (extended == null) {
+                return;
+            }
+
+            offset += version == 3 ? extended.getInt(0) + 4 : readSynchsafe(
+                    extended, 0);
+        }
+
+        int idLength = version == 2 ? 3 : 4;
+        int headerLength = version == 2 ? 6 : 10;
+
+        while (offset + headerLength <= end && !isFilled(information)) {
+            ByteBuffer frameHeader = readTag(data, tag, offset, headerLength);
+
+            if (frameHeader == null || frameHeader.get(0) == 0) {
+                // Padding.
+                break;
+            }
+
+            String id = readId(frameHeader, 0, idLength);
+            int size = version == 2 ? ((frameHeader.get(3) & 0xff) << 16)
+                    | ((frameHeader.get(4) & 0xff) << 8)
+                    | (frameHeader.get(5) & 0xff) : version == 3 ? frameHeader
+                    .getInt(4) : readSynchsafe(frameHeader, 4);
+            long start = offset + headerLength;
+
+            if (size < 0 || start + size > end) {
+                break;
+            }
+
+            if (TEXT_FRAMES.contains(id) && size <= MAX_TEXT_FRAME_SIZE) {
+                int frameFlags = version == 2 ? 0 : frameHeader.get(9);
+                ByteBuffer frame = readTag(data, tag, start, size);
+
+                if (frame != null && isReadable(version, frameFlags, frame)) {
+                    setField(id, frame, information);
+                }
+            }
+
+            offset = start + size;
+        }
+    }
+
+    /**
+     * This method checks if all fields read from ID3v2 tag are known.
+     * 
+     * @param information
+     * @return True if title, artist, album and year are known.
+     */
+    private static Boolean isFilled(AudioInformation information) {
+        return information.getTitle() != null
+                && information.getArtist() != null
+                && information.getAlbum() != null
+                && information.getYear() != null;
+    }
+
+    /**
+     * This method checks flags of frame and skips additional data before
+     * content of frame.
+     * 
+     * @param version
+     *            The version of tag.
+     * @param flags
+     *            The format flags of frame.
+     * @param frame
+     *            The frame, its position is moved to content.
+     * @return True if frame may be decoded, false if it is compressed or
+     *         encrypted.
+     */
+    private static Boolean isReadable(int version, int flags, ByteBuffer frame) {
+        if (version == 3) {
+            if ((flags & 0xc0) != 0) {
+                return false;
+            }
+
+            if ((flags & 0x20) != 0 && frame.hasRemaining()) {
+                // Grouping identity.
+                frame.get();
+            }
+        } else if (version == 4) {
+            if ((flags & 0x0e) != 0) {
+                return false;
+            }
+
+            if ((flags & 0x40) != 0 && frame.hasRemaining()) {
+                frame.get();
+            }
+
+            if ((flags & 0x01) != 0 && frame.remaining() >= 4) {
+                // Data length indicator.
+                ((Buffer) frame).position(frame.position() + 4);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * This method reads synchsafe integer.
+     * 
+     * @param buffer
+     * @param offset
+     * @return The decoded integer.
+     */
+    private static int readSynchsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7f) << 21)
+                | ((buffer.get(offset + 1) & 0x7f) << 14)
+                | ((buffer.get(offset + 2) & 0x7f) << 7)
+                | (buffer.get(offset + 3) & 0x7f);
+    }
+
+    /**
+     * This method removes unsynchronisation from whole tag.
+     * 
+     * @param tag
+     *            The unsynchronised tag.
+     * @return The tag without zero bytes inserted after 0xFF.
+     */
+    private static ByteBuffer removeUnsynchronisation(ByteBuffer tag) {
+        ByteBuffer result = ByteBuffer.allocate(tag.remaining());
+        int previous = 0;
+
+        while (tag.hasRemaining()) {
+            int current = tag.get() & 0xff;
+
+            if (!(previous == 0xff && current == 0)) {
+                result.put((byte) current);
+            }
+
+            previous = current;
+        }
+
+        ((Buffer) result).flip();
+
+        return result;
+    }
+
+    /**
+     * This method stores value of known text frame.
+     * 
+     * @param id
+     *            The identifier of frame.
+     * @param frame
+     *            The content of frame.
+     * @param information
+     *            The information to fill.
+     */
+    private static void setField(String id, ByteBuffer frame,
+            AudioInformation information) {
+        if ("TIT2".equals(id) || "TT2".equals(id)) {
+            information.setTitle(decodeText(frame));
+        } else if ("TPE1".equals(id) || "TP1".equals(id)) {
+            information.setArtist(decodeText(frame));
+        } else if ("TALB".equals(id) || "TAL".equals(id)) {
+            information.setAlbum(decodeText(frame));
+        } else if ("TYER".equals(id) || "TYE".equals(id)) {
+            information.setYear(decodeText(frame));
+        } else if ("TDRC".equals(id) && information.getYear() == null) {
+            String date = decodeText(frame);
+            information.setYear(date.length() > 4 ? date.substring(0, 4)
+                    : date);
+        }
+    }
+
+    /**
+     * This class keeps values from MPEG audio frame header.
+     */
+    static class FrameHeader {
+
+        /**
+         * This method parses frame header at given offset.
+         * 
+         * @param buffer
+         *            The content of file.
+         * @param offset
+         *            The offset of header.
+         * @return The frame header or null if there is no valid header.
+         */
+        static FrameHeader parse(ByteBuffer buffer, int offset) {
+            if (offset < 0 || offset + 4 > buffer.limit()) {
+                return null;
+            }
+
+            int header = buffer.getInt(offset);
+
+            if ((header & 0xffe00000) != 0xffe00000) {
+                return null;
+            }
+
+            int version = (header >> 19) & 0x03;
+            int layer = (header >> 17) & 0x03;
+            int bitRateIndex = (header >> 12) & 0x0f;
+            int sampleRateIndex = (header >> 10) & 0x03;
+
+            if (version == 1 || layer == 0 || bitRateIndex == 0
+                    || bitRateIndex == 15 || sampleRateIndex == 3) {
+                return null;
+            }
+
+            FrameHeader frame = new FrameHeader();
+            frame.offset = offset;
+            frame.version = version;
+            // Layer I is 3 in header, Layer III is 1.
+            frame.layer = 4 - layer;
+            frame.bitRate = (version == 3 ? BIT_RATES_V1 : BIT_RATES_V2)[frame.layer - 1][bitRateIndex];
+            frame.sampleRate = SAMPLE_RATES_V1[sampleRateIndex]
+                    / (version == 3 ? 1 : version == 2 ? 2 : 4);
+            frame.isMono = ((header >> 6) & 0x03) == 3;
+            int padding = (header >> 9) & 0x01;
+
+            if (frame.layer == 1) {
+                frame.frameLength = (12 * frame.bitRate * 1000
+                        / frame.sampleRate + padding) * 4;
+            } else {
+                frame.frameLength = frame.getSamplesPerFrame() / 8
+                        * frame.bitRate * 1000 / frame.sampleRate + padding;
+            }
+
+            return frame;
+        }
+
+        /**
+         * The bit rate in kbps.
+         */
+        int bitRate;
+
+        /**
+         * The length of frame in bytes.
+         */
+        int frameLength;
+
+        /**
+         * True if channel mode is mono.
+         */
+        boolean isMono;
+
+        /**
+         * The layer, from 1 to 3.
+         */
+        int layer;
+
+        /**
+         * The offset of frame in file.
+         */
+        int offset;
+
+        /**
+         * The sample rate in Hz.
+         */
+        int sampleRate;
+
+        /**
+         * The version bits, 3 for MPEG 1, 2 for MPEG 2, 0 for MPEG 2.5.
+         */
+        int version;
+
+        /**
+         * @return The amount of samples in single frame.
+         */
+        int getSamplesPerFrame() {
+            if (layer == 1) {
+                return 384;
+            }
+
+            if (layer == 3 && version != 3) {
+                return 576;
+            }
+
+            return 1152;
+        }
+
+        /**
+         * @param other
+         *            The other frame.
+         * @return True if other frame has the same version, layer and sample
+         *         rate, so it belongs to the same stream.
+         */
+        boolean isSameStream(FrameHeader other) {
+            return version == other.version && layer == other.layer
+                    && sampleRate == other.sampleRate;
+        }
+
+        /**
+         * @return The size of side information in Layer III frame, where
+         *         Xing/Info header is placed after.
+         */
+        int getSideInfoSize() {
+            if (version == 3) {
+                return isMono ? 17 : 32;
+            }
+
+            return isMono ? 9 : 17;
+        }
+    }
+}
@@ -0,0 +1,629 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class keeps local cache of entries read from audio files, which
+ * survives loss of JSON library. The cache is single file, which starts with
+ * magic bytes "ASMC", version and server of files, followed by records
+ * appended when files are read. Each record is length of record and the
+ * fields of entry in fixed order, written as length in bytes and UTF-8 bytes.
+ * The file is memory-mapped once, when cache is opened, and only offsets of
+ * the latest records of each location are kept in memory, so entry is decoded
+ * only when it is used. Records appended later are read from file, so there
+ * is never more than one mapping, which is released before file is truncated
+ * or replaced. The size of cache is limited, so offsets of mapping fit in int.
+ * The entry is returned only if size and modification time of file are the
+ * same as when file was read. Superseded records are removed by compaction,
+ * when cache is closed.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class MetadataCache {
+
+    /**
+     * The name of cache file.
+     */
+    public final static String CACHE_FILE = "audio-search.cache";
+
+    /**
+     * The bytes, which start cache file.
+     */
+    private final static byte[] MAGIC = { 'A', 'S', 'M', 'C' };
+
+    /**
+     * The maximum size of cache file, records beyond it are not appended.
+     */
+    private final static Long MAX_SIZE = 1024 * 1024 * 1024L;
+
+    /**
+     * The maximum length of encoded number.
+     */
+    private final static Integer MAX_NUMBER_LENGTH = 10;
+
+    /**
+     * The amount of superseded records, below which cache is not compacted.
+     */
+    private final static Integer MIN_GARBAGE = 1024;
+
+    /**
+     * The version of cache format.
+     */
+    private final static Integer VERSION = 1;
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(MetadataCache.class
+            .getName());
+
+    /**
+     * The file of cache opened for reading and appending, null if cache is not
+     * open.
+     */
+    private RandomAccessFile cacheFile = null;
+
+    /**
+     * The cache file.
+     */
+    private final File file;
+
+    /**
+     * The mapped content of cache file, when it was opened, it does not cover
+     * records appended later.
+     */
+    private MappedByteBuffer mapped = null;
+
+    /**
+     * The offsets of the latest records with their lengths in cache file,
+     * indexed by location of file.
+     */
+    private final Map<String, Long> offsets = new HashMap<String, Long>();
+
+    /**
+     * The server of files, the cache of other server is not used.
+     */
+    private final String origin;
+
+    /**
+     * The amount of records in cache file, with superseded ones.
+     */
+    private Integer records = 0;
+
+    /**
+     * The constructor for {@link MetadataCache}.
+     * 
+     * @param file
+     *            The cache file.
+     * @param origin
+     *            The server of files.
+     */
+    public MetadataCache(File file, String origin) {
+        this.file = file;
+        this.origin = origin;
+    }
+
+    /**
+     * This method closes cache. The cache is compacted first, if most of its
+     * records are superseded.
+     */
+    public synchronized void close() {
+        if (cacheFile == null) {
+            return;
+        }
+
+        Integer garbage = records - offsets.size();
+
+        if (garbage >= MIN_GARBAGE && garbage > offsets.size()) {
+            compact();
+        }
+
+        release();
+        IOUtils.closeQuietly(cacheFile);
+        cacheFile = null;
+        offsets.clear();
+        records = 0;
+    }
+
+    /**
+     * This method rewrites cache with the latest records only. The new cache
+     * is written to temporary file, which replaces cache file. The cache file
+     * is closed.
+     */
+    private void compact() {
+        File compacted = new File(file.getPath() + ".tmp");
+        RandomAccessFile compactedFile = null;
+
+        try {
+            compactedFile = new RandomAccessFile(compacted, "rw");
+            compactedFile.setLength(0);
+            FileChannel channel = compactedFile.getChannel();
+            channel.write(ByteBuffer.wrap(createHeader()));
+
+            for (Long offset : offsets.values()) {
+                ByteBuffer record = readRecord(offset);
+                ByteBuffer length = ByteBuffer.wrap(encodeNumber(record
+                        .remaining()));
+                channel.write(new ByteBuffer[] { length, record });
+            }
+
+            compactedFile.close();
+            // Mapped file cannot be replaced on some systems.
+            release();
+            IOUtils.closeQuietly(cacheFile);
+            cacheFile = null;
+            Files.move(compacted.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+
+            logger.debug("Cache compacted from " + records + " to "
+                    + offsets.size() + " records");
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            IOUtils.closeQuietly(compactedFile);
+            compacted.delete();
+        }
+    }
+
+    /**
+     * @return The header of cache file.
+     * @throws IOException
+     */
+    private byte[] createHeader() throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        header.write(MAGIC);
+        header.write(encodeNumber(VERSION));
+        header.write(encodeString(origin));
+
+        return header.toByteArray();
+    }
+
+    /**
+     * This method encodes non-negative number in seven bits per byte, the
+     * highest bit is set if more bytes follow.
+     * 
+     * @param value
+     * @return The encoded number.
+     */
+    private byte[] encodeNumber(long value) {
+        byte[] bytes = new byte[10];
+        int length = 0;
+
+        while ((value & ~0x7fL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        bytes[length++] = (byte) value;
+
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * This method encodes string as length and UTF-8 bytes.
+     * 
+     * @param value
+     *            The string, null is encoded as empty string.
+     * @return The encoded string.
+     * @throws IOException
+     */
+    private byte[] encodeString(String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(Library.CHARSET);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        encoded.write(encodeNumber(bytes.length));
+        encoded.write(bytes);
+
+        return encoded.toByteArray();
+    }
+
+    /**
+     * This method gets entry of file, if file has not changed since it was
+     * read.
+     * 
+     * @param location
+     *            The location of file.
+     * @param size
+     *            The size of file.
+     * @param modified
+     *            The modification time of file, may be null.
+     * @return The copy of cached entry, or null if file is not cached or has
+     *         changed.
+     */
+    public synchronized TrackEntry get(String location, Long size,
+            Long modified) {
+        Long offset = offsets.get(location);
+
+        if (offset == null) {
+            return null;
+        }
+
+        try {
+            TrackEntry entry = readEntry(readRecord(offset));
+
+            if (!entry.getSize().equals(String.valueOf(size))
+                    || (modified != null && !entry.getModified().equals(
+                            modified.toString()))) {
+                return null;
+            }
+
+            return entry;
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } catch (BufferUnderflowException bue) {
+            logger.error("Cache record of " + location + " is damaged");
+            logger.debug(bue);
+        }
+
+        return null;
+    }
+
+    /**
+     * This method maps whole cache file to memory, previous mapping is
+     * released.
+     * 
+     * @throws IOException
+     */
+    private void map() throws IOException {
+        release();
+        mapped = cacheFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+                cacheFile.length());
+    }
+
+    /**
+     * This method opens cache and indexes its records. The cache of other
+     * server, or with damaged header, is started again. The incomplete record
+     * at the end of cache, which may be left when process died while writing,
+     * is removed.
+     */
+    public synchronized void open() {
+        offsets.clear();
+        records = 0;
+
+        try {
+            cacheFile = new RandomAccessFile(file, "rw");
+            Long end = null;
+
+            if (cacheFile.length() <= MAX_SIZE) {
+                map();
+                end = readHeader();
+            }
+
+            if (end == null) {
+                logger.debug("Cache " + file + " is started again");
+                release();
+                cacheFile.setLength(0);
+                cacheFile.write(createHeader());
+                map();
+                return;
+            }
+
+            while (end < mapped.limit()) {
+                Long next = readIndex(end);
+
+                if (next == null) {
+                    logger.debug("Cache " + file + " ends with incomplete "
+                            + "record");
+                    // Mapped file cannot be truncated on some systems.
+                    release();
+                    cacheFile.setLength(end);
+                    map();
+                    break;
+                }
+
+                end = next;
+            }
+
+            logger.debug("Cache " + file + " contains " + offsets.size()
+                    + " files");
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+            release();
+            IOUtils.closeQuietly(cacheFile);
+            cacheFile = null;
+        }
+    }
+
+    /**
+     * This method appends entry of file, which has been read, to cache. The
+     * entry is not appended, when cache is full.
+     * 
+     * @param location
+     *            The location of file.
+     * @param entry
+     *            The entry of file.
+     */
+    public synchronized void put(String location, TrackEntry entry) {
+        if (cacheFile == null || entry == null) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+
+            for (String field : new String[] { location, entry.getTitle(),
+                    entry.getArtist(), entry.getYear(), entry.getAlbum(),
+                    entry.getLength(), entry.getBitRate(), entry.getSize(),
+                    entry.getOriginalName(), entry.getDirectory(),
+                    entry.getWebDirectory(), entry.getLocation(),
+                    entry.getModified(), entry.getFingerprint() }) {
+                record.write(encodeString(field));
+            }
+
+            long offset = cacheFile.length();
+            byte[] length = encodeNumber(record.size());
+
+            if (offset + length.length + record.size() > MAX_SIZE) {
+                logger.debug("Cache " + file + " is full");
+                return;
+            }
+
+            cacheFile.seek(offset);
+            cacheFile.write(length);
+            cacheFile.write(record.toByteArray());
+            offsets.put(location, offset);
+            records++;
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method reads record, which was appended after cache was mapped,
+     * from file.
+     * 
+     * @param offset
+     *            The offset of record with its length.
+     * @return The record without its length.
+     * @throws IOException
+     */
+    private ByteBuffer readAppended(Long offset) throws IOException {
+        FileChannel channel = cacheFile.getChannel();
+        ByteBuffer header = ByteBuffer.allocate(MAX_NUMBER_LENGTH);
+        channel.read(header, offset);
+        ((Buffer) header).flip();
+        long length = readNumber(header);
+
+        if (offset + header.position() + length > cacheFile.length()) {
+            throw new BufferUnderflowException();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate((int) length);
+        long position = offset + header.position();
+
+        while (record.hasRemaining()) {
+            if (channel.read(record, position + record.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+
+        ((Buffer) record).flip();
+
+        return record;
+    }
+
+    /**
+     * This method decodes entry from record.
+     * 
+     * @param record
+     *            The record of cache.
+     * @return The decoded entry.
+     * @throws IOException
+     */
+    private TrackEntry readEntry(ByteBuffer record) throws IOException {
+        // The location is key of record.
+        readString(record);
+        TrackEntry entry = new TrackEntry();
+        entry.setTitle(readString(record));
+        entry.setArtist(readString(record));
+        entry.setYear(readString(record));
+        entry.setAlbum(readString(record));
+        entry.setLength(readString(record));
+        entry.setBitRate(readString(record));
+        entry.setSize(readString(record));
+        entry.setOriginalName(readString(record));
+        entry.setDirectory(readString(record));
+        entry.setWebDirectory(readString(record));
+        entry.setLocation(readString(record));
+        entry.setModified(readString(record));
+        entry.setFingerprint(readString(record));
+
+        return entry;
+    }
+
+    /**
+     * This method reads header of cache.
+     * 
+     * @return The offset of first record, or null if cache is empty, damaged
+     *         or belongs to other server.
+     * @throws IOException
+     */
+    private Long readHeader() throws IOException {
+        ByteBuffer header = mapped.duplicate();
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+
+            if (!Arrays.equals(magic, MAGIC)
+                    || readNumber(header) != VERSION
+                    || !origin.equals(readString(header))) {
+                return null;
+            }
+        } catch (BufferUnderflowException bue) {
+            return null;
+        }
+
+        return (long) header.position();
+    }
+
+    /**
+     * This method indexes record at given offset.
+     * 
+     * @param offset
+     *            The offset of record with its length.
+     * @return The offset of next record, or null if record is incomplete.
+     * @throws IOException
+     */
+    private Long readIndex(Long offset) throws IOException {
+        ByteBuffer buffer = mapped.duplicate();
+        ((Buffer) buffer).position(offset.intValue());
+
+        try {
+            long length = readNumber(buffer);
+            long start = buffer.position();
+
+            if (start + length > buffer.limit()) {
+                return null;
+            }
+
+            ((Buffer) buffer).limit((int) (start + length));
+            offsets.put(readString(buffer), offset);
+            records++;
+
+            return start + length;
+        } catch (BufferUnderflowException bue) {
+            return null;
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+    /**
+     * This method reads number in seven bits per byte.
+     * 
+     * @param buffer
+     * @return The read number.
+     */
+    private long readNumber(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        int read = 0;
+
+        do {
+            read = buffer.get();
+            value |= (long) (read & 0x7f) << shift;
+            shift += 7;
+        } while ((read & 0x80) != 0 && shift < 64);
+
+        return value;
+    }
+
+    /**
+     * This method reads record at given offset. The record appended after
+     * cache was mapped is read from file.
+     * 
+     * @param offset
+     *            The offset of record with its length.
+     * @return The view of record without its length.
+     * @throws IOException
+     */
+    private ByteBuffer readRecord(Long offset) throws IOException {
+        if (offset >= mapped.limit()) {
+            return readAppended(offset);
+        }
+
+        ByteBuffer buffer = mapped.duplicate();
+        ((Buffer) buffer).position(offset.intValue());
+        long length = readNumber(buffer);
+
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        ((Buffer) buffer).limit(buffer.position() + (int) length);
+
+        return buffer.slice();
+    }
+
+    /**
+     * This method reads string as length and UTF-8 bytes.
+     * 
+     * @param buffer
+     * @return The read string.
+     * @throws IOException
+     */
+    private String readString(ByteBuffer buffer) throws IOException {
+        int length = (int) readNumber(buffer);
+
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, Library.CHARSET);
+    }
+
+    /**
+     * This method releases mapping of cache file, so the file may be
+     * truncated or replaced.
+     */
+    private void release() {
+        if (mapped != null) {
+            unmap(mapped);
+            mapped = null;
+        }
+    }
+
+    /**
+     * This method unmaps buffer at once, instead of waiting for garbage
+     * collector. The buffer and its views must not be used anymore.
+     * 
+     * @param buffer
+     *            The mapped buffer.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and newer.
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner",
+                    ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (NoSuchMethodException nsme) {
+            try {
+                // Java 8.
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (Exception e) {
+                logger.debug(e);
+            }
+        } catch (Exception e) {
+            // The mapping is released by garbage collector then.
+            logger.debug(e);
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+/**
+ * This class collects metrics of single run of generator: timers and
+ * histograms of each stage, counters of transferred bytes and of processed,
+ * skipped and failed files, and depth of queue of workers. At the end of run
+ * the metrics are written as Prometheus text file and as JSON summary. Each
+ * timed stage is also emitted as flight recorder event, if flight recorder is
+ * recording, so recording shows timeline of each file.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class Metrics {
+
+    /**
+     * The upper bounds of histogram buckets in seconds.
+     */
+    private final static double[] BUCKETS = { 0.001, 0.0025, 0.005, 0.01,
+            0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30 };
+
+    /**
+     * True if flight recorder events may be emitted.
+     */
+    private final static Boolean FLIGHT_RECORDER = isFlightRecorderAvailable();
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(Metrics.class.getName());
+
+    /**
+     * The prefix of names of Prometheus metrics.
+     */
+    private final static String PREFIX = "audio_search_";
+
+    /**
+     * The name of Prometheus text file.
+     */
+    public final static String PROMETHEUS_FILE = "audio-search.prom";
+
+    /**
+     * The name of JSON summary.
+     */
+    public final static String SUMMARY_FILE = "audio-search-metrics.json";
+
+    /**
+     * This method checks if flight recorder events are supported by JVM. The
+     * class of events is looked up without loading it.
+     * 
+     * @return True if flight recorder is available.
+     */
+    private static Boolean isFlightRecorderAvailable() {
+        return ClassLoader.getSystemResource("jdk/jfr/Event.class") != null;
+    }
+
+    /**
+     * This method checks if flight recorder is available and may record
+     * events.
+     * 
+     * @return True if flight recorder is initialized.
+     */
+    private static Boolean isRecording() {
+        return FLIGHT_RECORDER && StageRecorder.isInitialized();
+    }
+
+    /**
+     * The counts of timed stages in each bucket, not cumulative, indexed by
+     * stage and bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(
+            Stage.values().length * (BUCKETS.length + 1));
+
+    /**
+     * The values of counters, indexed by counter.
+     */
+    private final AtomicLongArray counters = new AtomicLongArray(
+            Counter.values().length);
+
+    /**
+     * The longest times of stages in nanoseconds, indexed by stage.
+     */
+    private final AtomicLongArray maxima = new AtomicLongArray(
+            Stage.values().length);
+
+    /**
+     * The largest observed depth of queue of workers.
+     */
+    private final AtomicInteger maxQueueDepth = new AtomicInteger(0);
+
+    /**
+     * The last observed depth of queue of workers.
+     */
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+
+    /**
+     * The start time of run in milliseconds.
+     */
+    private final Long started = System.currentTimeMillis();
+
+    /**
+     * The total times of stages in nanoseconds, indexed by stage.
+     */
+    private final AtomicLongArray totals = new AtomicLongArray(
+            Stage.values().length);
+
+    /**
+     * This method adds given amount to counter.
+     * 
+     * @param counter
+     * @param amount
+     */
+    public void add(Counter counter, Long amount) {
+        counters.addAndGet(counter.ordinal(), amount);
+    }
+
+    /**
+     * This method gets count of stage in given bucket.
+     * 
+     * @param stage
+     * @param bucket
+     * @return The count, not cumulative.
+     */
+    private long getBucket(Stage stage, int bucket) {
+        return buckets.get(stage.ordinal() * (BUCKETS.length + 1) + bucket);
+    }
+
+    /**
+     * This method gets amount of timed stages.
+     * 
+     * @param stage
+     * @return The amount of timed stages.
+     */
+    private long getCount(Stage stage) {
+        long count = 0;
+
+        for (int i = 0; i <= BUCKETS.length; i++) {
+            count += getBucket(stage, i);
+        }
+
+        return count;
+    }
+
+    /**
+     * This method gets value of counter.
+     * 
+     * @param counter
+     * @return The value.
+     */
+    public Long getCounter(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    /**
+     * This method estimates quantile of times of stage from histogram.
+     * 
+     * @param stage
+     * @param quantile
+     *            The quantile from 0 to 1.
+     * @return The upper bound of bucket with quantile in microseconds.
+     */
+    private Long getQuantileMicros(Stage stage, double quantile) {
+        long count = getCount(stage);
+        long cumulative = 0;
+
+        for (int i = 0; i < BUCKETS.length && count > 0; i++) {
+            cumulative += getBucket(stage, i);
+
+            if (cumulative >= quantile * count) {
+                return Math.round(BUCKETS[i] * 1000000);
+            }
+        }
+
+        return maxima.get(stage.ordinal()) / 1000;
+    }
+
+    /**
+     * This method observes current depth of queue of workers.
+     * 
+     * @param depth
+     */
+    public void observeQueueDepth(Integer depth) {
+        queueDepth.set(depth);
+        Integer max = maxQueueDepth.get();
+
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    /**
+     * This method records time of stage.
+     * 
+     * @param stage
+     * @param nanos
+     *            The time in nanoseconds.
+     */
+    private void record(Stage stage, long nanos) {
+        double seconds = nanos / 1e9;
+        int bucket = 0;
+
+        while (bucket < BUCKETS.length && seconds > BUCKETS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(stage.ordinal() * (BUCKETS.length + 1)
+                + bucket);
+        totals.addAndGet(stage.ordinal(), nanos);
+        long max = maxima.get(stage.ordinal());
+
+        while (nanos > max
+                && !maxima.compareAndSet(stage.ordinal(), max, nanos)) {
+            max = maxima.get(stage.ordinal());
+        }
+    }
+
+    /**
+     * This method starts timing of stage.
+     * 
+     * @param stage
+     *            The timed stage.
+     * @param path
+     *            The location of processed file or directory.
+     * @return The timer, which has to be stopped when stage ends.
+     */
+    public Timer start(Stage stage, String path) {
+        return new Timer(stage, path);
+    }
+
+    /**
+     * This method writes metrics to given files. Each file is written under
+     * temporary name first and then renamed, so collector never reads
+     * half-written file.
+     * 
+     * @param prometheusFile
+     *            The Prometheus text file.
+     * @param summaryFile
+     *            The JSON summary.
+     */
+    public void writeFiles(File prometheusFile, File summaryFile) {
+        File prometheusTemporary = new File(prometheusFile.getPath()
+                + JSONBuilder.TEMP_EXTENSION);
+        File summaryTemporary = new File(summaryFile.getPath()
+                + JSONBuilder.TEMP_EXTENSION);
+
+        try {
+            writePrometheus(new FileOutputStream(prometheusTemporary));
+            writeSummary(new FileOutputStream(summaryTemporary));
+            prometheusFile.delete();
+            summaryFile.delete();
+
+            if (!prometheusTemporary.renameTo(prometheusFile)
+                    || !summaryTemporary.renameTo(summaryFile)) {
+                throw new IOException("Renaming metrics files failed");
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method writes metrics in Prometheus text format. The stream is
+     * closed.
+     * 
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writePrometheus(OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, Library.CHARSET);
+
+        try {
+            String histogram = PREFIX + "stage_duration_seconds";
+            writer.write("# HELP " + histogram
+                    + " Time spent in each stage of generator.\n");
+            writer.write("# TYPE " + histogram + " histogram\n");
+
+            for (Stage stage : Stage.values()) {
+                String label = "stage=\"" + stage.getName() + "\"";
+                long cumulative = 0;
+
+                for (int i = 0; i <= BUCKETS.length; i++) {
+                    cumulative += getBucket(stage, i);
+                    writer.write(histogram + "_bucket{" + label + ",le=\""
+                            + (i < BUCKETS.length ? String.valueOf(BUCKETS[i])
+                                    : "+Inf") + "\"} " + cumulative + "\n");
+                }
+
+                writer.write(histogram + "_sum{" + label + "} "
+                        + (totals.get(stage.ordinal()) / 1e9) + "\n");
+                writer.write(histogram + "_count{" + label + "} "
+                        + cumulative + "\n");
+            }
+
+            String previous = null;
+
+            for (Counter counter : Counter.values()) {
+                String name = PREFIX + counter.getMetric();
+
+                if (!name.equals(previous)) {
+                    writer.write("# HELP " + name + " " + counter.getHelp()
+                            + "\n");
+                    writer.write("# TYPE " + name + " counter\n");
+                    previous = name;
+                }
+
+                writer.write(name + "{" + counter.getLabel() + "} "
+                        + getCounter(counter) + "\n");
+            }
+
+            writeGauge(writer, "queue_depth",
+                    "Depth of queue of workers at last submit.",
+                    queueDepth.get());
+            writeGauge(writer, "queue_depth_max",
+                    "Largest depth of queue of workers.", maxQueueDepth.get());
+            writeGauge(writer, "run_duration_seconds", "Duration of run.",
+                    (System.currentTimeMillis() - started) / 1e3);
+            writeGauge(writer, "run_timestamp_seconds", "End time of run.",
+                    System.currentTimeMillis() / 1e3);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * This method writes single gauge in Prometheus text format.
+     * 
+     * @param writer
+     * @param name
+     * @param help
+     * @param value
+     * @throws IOException
+     */
+    private void writeGauge(Writer writer, String name, String help,
+            double value) throws IOException {
+        writer.write("# HELP " + PREFIX + name + " " + help + "\n");
+        writer.write("# TYPE " + PREFIX + name + " gauge\n");
+        writer.write(PREFIX + name + " " + value + "\n");
+    }
+
+    /**
+     * This method writes summary of metrics as JSON in UTF-8. The times are
+     * given in microseconds, quantiles are upper bounds of histogram buckets.
+     * The stream is closed.
+     * 
+     * @param outputStream
+     * @throws IOException
+     */
+    public void writeSummary(OutputStream outputStream) throws IOException {
+        JSONLibraryWriter writer = new JSONLibraryWriter(outputStream);
+
+        try {
+            writer.beginObject(null);
+            writer.value("started", started);
+            writer.value("durationMillis", System.currentTimeMillis()
+                    - started);
+            writer.beginObject("stages");
+
+            for (Stage stage : Stage.values()) {
+                writer.beginObject(stage.getName());
+                writer.value("count", getCount(stage));
+                writer.value("totalMicros", totals.get(stage.ordinal()) / 1000);
+                writer.value("maxMicros", maxima.get(stage.ordinal()) / 1000);
+                writer.value("p50Micros", getQuantileMicros(stage, 0.5));
+                writer.value("p95Micros", getQuantileMicros(stage, 0.95));
+                writer.endObject();
+            }
+
+            writer.endObject();
+            writer.beginObject("counters");
+
+            for (Counter counter : Counter.values()) {
+                writer.value(counter.getSummaryName(), getCounter(counter));
+            }
+
+            writer.endObject();
+            writer.beginObject("queue");
+            writer.value("depth", queueDepth.longValue());
+            writer.value("maxDepth", maxQueueDepth.longValue());
+            writer.endObject();
+            writer.endObject();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * This enumeration lists counters of run.
+     */
+    public enum Counter {
+
+        BYTES_IN("bytes_total", "direction=\"in\"", "bytesIn",
+                "Bytes transferred by generator."),
+
+        BYTES_OUT("bytes_total", "direction=\"out\"", "bytesOut",
+                "Bytes transferred by generator."),
+
+        FILES_CACHED("files_total", "result=\"cached\"", "filesCached",
+                "Audio files found by generator."),
+
+        FILES_DUPLICATE("files_total", "result=\"duplicate\"",
+                "filesDuplicate", "Audio files found by generator."),
+
+        FILES_FAILED("files_total", "result=\"failed\"", "filesFailed",
+                "Audio files found by generator."),
+
+        FILES_PROCESSED("files_total", "result=\"processed\"",
+                "filesProcessed", "Audio files found by generator."),
+
+        FILES_SKIPPED("files_total", "result=\"skipped\"", "filesSkipped",
+                "Audio files found by generator.");
+
+        /**
+         * The description of Prometheus metric.
+         */
+        private final String help;
+
+        /**
+         * The label of counter in Prometheus metric.
+         */
+        private final String label;
+
+        /**
+         * The name of Prometheus metric without prefix.
+         */
+        private final String metric;
+
+        /**
+         * The name of counter in JSON summary.
+         */
+        private final String summaryName;
+
+        /**
+         * The constructor for {@link Counter}.
+         * 
+         * @param metric
+         * @param label
+         * @param summaryName
+         * @param help
+         */
+        private Counter(String metric, String label, String summaryName,
+                String help) {
+            this.metric = metric;
+            this.label = label;
+            this.summaryName = summaryName;
+            this.help = help;
+        }
+
+        /**
+         * @return the help
+         */
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * @return the label
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return the metric
+         */
+        public String getMetric() {
+            return metric;
+        }
+
+        /**
+         * @return the summaryName
+         */
+        public String getSummaryName() {
+            return summaryName;
+        }
+    }
+
+    /**
+     * This enumeration lists timed stages of run.
+     */
+    public enum Stage {
+
+        /**
+         * The listing of directory.
+         */
+        LIST,
+
+        /**
+         * The retrieving of whole file or its part.
+         */
+        RETR,
+
+        /**
+         * The parsing of tags and audio header, without retrieving.
+         */
+        PARSE,
+
+        /**
+         * The reading or encoding of JSON library.
+         */
+        JSON,
+
+        /**
+         * The storing of file on server.
+         */
+        STOR;
+
+        /**
+         * @return The name of stage in metrics.
+         */
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * This class measures time of single stage. The time of nested stages may
+     * be excluded, so each stage is counted once in histograms.
+     */
+    public class Timer {
+
+        /**
+         * The flight recorder event, null if flight recorder is not available.
+         */
+        private final Object event;
+
+        /**
+         * The time of nested stages excluded from this stage in nanoseconds.
+         */
+        private Long excluded = 0L;
+
+        /**
+         * The measured time in nanoseconds, null until timer is stopped.
+         */
+        private Long nanos = null;
+
+        /**
+         * The location of processed file or directory.
+         */
+        private final String path;
+
+        /**
+         * The timed stage.
+         */
+        private final Stage stage;
+
+        /**
+         * The start time in nanoseconds.
+         */
+        private final Long start = System.nanoTime();
+
+        /**
+         * The constructor for {@link Timer}.
+         * 
+         * @param stage
+         * @param path
+         */
+        private Timer(Stage stage, String path) {
+            this.stage = stage;
+            this.path = path;
+            this.event = isRecording() ? StageRecorder.start() : null;
+        }
+
+        /**
+         * This method excludes time of nested stage from this stage.
+         * 
+         * @param nanos
+         *            The time of nested stage in nanoseconds.
+         */
+        public void exclude(Long nanos) {
+            excluded += nanos;
+        }
+
+        /**
+         * @return The measured time in nanoseconds, null until timer is
+         *         stopped.
+         */
+        public Long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * This method stops timer and records time of stage.
+         * 
+         * @param bytes
+         *            The amount of bytes processed by stage, may be null.
+         */
+        public void stop(Long bytes) {
+            nanos = Math.max(System.nanoTime() - start - excluded, 0L);
+            record(stage, nanos);
+
+            if (event != null) {
+                StageRecorder.finish(event, stage.getName(), path,
+                        bytes == null ? 0L : bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This class is flight recorder event of single stage of generator. The class
+ * is used only through {@link StageRecorder}, after {@link Metrics} checks
+ * that flight recorder is available, so generator still runs on JVM without
+ * it.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+@Name("com.m4gik.Stage")
+@Label("Generator Stage")
+@Category("Audio Search")
+@Description("Single stage of generator, such as listing of directory, "
+        + "retrieving or parsing of file, or storing of library.")
+@StackTrace(false)
+class StageEvent extends Event {
+
+    /**
+     * The amount of bytes processed by stage.
+     */
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    /**
+     * The location of processed file or directory.
+     */
+    @Label("Path")
+    String path;
+
+    /**
+     * The name of stage.
+     */
+    @Label("Stage")
+    String stage;
+}
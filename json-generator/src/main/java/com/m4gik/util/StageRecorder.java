@@ -0,0 +1,66 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * This class records stages of generator as flight recorder events. It is the
+ * only class, besides {@link StageEvent}, which uses flight recorder API, so
+ * both are compiled against API of JDK and the other classes against API of
+ * Java 8. Its methods take no flight recorder types, so the other classes may
+ * call them, once {@link Metrics} checks that flight recorder is available.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+class StageRecorder {
+
+    /**
+     * This method ends and commits event, if it is recorded.
+     * 
+     * @param begun
+     *            The event created by {@link #start()}.
+     * @param stage
+     * @param path
+     * @param bytes
+     */
+    static void finish(Object begun, String stage, String path, Long bytes) {
+        StageEvent event = (StageEvent) begun;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.stage = stage;
+            event.path = path;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    /**
+     * This method checks if flight recorder may record events. Events are not
+     * created until recording initializes flight recorder, because the first
+     * event class alone would initialize it, which takes longer than small
+     * delta run.
+     * 
+     * @return True if flight recorder is initialized.
+     */
+    static Boolean isInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * This method creates and begins event.
+     * 
+     * @return The begun event.
+     */
+    static Object start() {
+        StageEvent event = new StageEvent();
+        event.begin();
+
+        return event;
+    }
+}
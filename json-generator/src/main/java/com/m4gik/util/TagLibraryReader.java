@@ -0,0 +1,110 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Handler;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.jaudiotagger.audio.AudioFile;
+import org.jaudiotagger.audio.exceptions.InvalidAudioFrameException;
+import org.jaudiotagger.audio.exceptions.ReadOnlyFileException;
+import org.jaudiotagger.audio.mp3.MP3File;
+import org.jaudiotagger.tag.TagException;
+
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.Mp3File;
+import com.mpatric.mp3agic.UnsupportedTagException;
+
+/**
+ * This class reads information from tags and audio header of file in
+ * libraries jaudiotagger and mp3agic. The class is loaded only when the first
+ * file cannot be read by {@link MP3HeaderParser}, so run, which parses all
+ * files in memory or none at all, never loads and initializes tag libraries.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+class TagLibraryReader {
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(TagLibraryReader.class
+            .getName());
+
+    static {
+        // The handlers of java.util.logging would print each warning of
+        // jaudiotagger to console.
+        AudioFile.logger.setUseParentHandlers(false);
+        java.util.logging.Logger globalLogger = java.util.logging.Logger
+                .getLogger("");
+        Handler[] handlers = globalLogger.getHandlers();
+        for (Handler handler : handlers) {
+            globalLogger.removeHandler(handler);
+        }
+    }
+
+    /**
+     * This method reads information from tags and audio header of file. The
+     * libraries read only files on local disk, so content of file is written
+     * to disk first, if it is kept in memory.
+     * 
+     * @param data
+     *            The content of file.
+     * @return The information about file, or null if audio header of file
+     *         cannot be read.
+     */
+    static AudioInformation read(AudioData data) {
+        Mp3File mp3File = null;
+        MP3File fileInformation = null;
+        AudioInformation information = new AudioInformation();
+
+        try {
+            File file = data.toFile();
+            fileInformation = new MP3File(file);
+            mp3File = new Mp3File(file.getPath());
+
+            if (mp3File.hasId3v2Tag()) {
+                mp3File.getId3v2Tag().setEncoder("UTF-8");
+                information.setTitle(mp3File.getId3v2Tag().getTitle());
+                information.setArtist(mp3File.getId3v2Tag().getArtist());
+                information.setYear(mp3File.getId3v2Tag().getYear());
+                information.setAlbum(mp3File.getId3v2Tag().getAlbum());
+            }
+        } catch (UnsupportedTagException e1) {
+            logger.error(e1);
+            logger.debug(e1);
+        } catch (InvalidDataException e1) {
+            logger.error(e1);
+            logger.debug(e1);
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } catch (TagException e) {
+            logger.error(e);
+            logger.debug(e);
+        } catch (ReadOnlyFileException e) {
+            logger.error(e);
+            logger.debug(e);
+        } catch (InvalidAudioFrameException e) {
+            logger.error(e);
+            logger.debug(e);
+        }
+
+        if (fileInformation == null) {
+            return null;
+        }
+
+        information.setTrackLength(fileInformation.getAudioHeader()
+                .getTrackLength());
+        information.setBitRate(fileInformation.getAudioHeader().getBitRate());
+
+        return information;
+    }
+}
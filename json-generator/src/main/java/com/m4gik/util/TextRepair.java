@@ -0,0 +1,128 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.nio.charset.Charset;
+
+/**
+ * This class repairs polish letters in text read from tags. Text frames in
+ * ISO-8859-1 and ID3v1 tags are often written in windows-1250 or ISO-8859-2,
+ * so polish letters are read as other characters. The real encoding is
+ * detected from characters, which are polish letters only in one of these
+ * encodings, and characters are replaced using precomputed tables. Text with
+ * characters beyond ISO-8859-1 was decoded from UTF-16 or UTF-8 frame and is
+ * already correct. ASCII text is returned without any allocation.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class TextRepair {
+
+    /**
+     * The table of polish letters of ISO-8859-2, indexed by character read as
+     * ISO-8859-1.
+     */
+    private final static char[] ISO_8859_2 = createTable("ISO-8859-2");
+
+    /**
+     * The polish letters, which are repaired.
+     */
+    private final static String POLISH_LETTERS = "ĄąĆćĘęŁłŃńÓóŚśŹźŻż";
+
+    /**
+     * The table of polish letters of windows-1250, indexed by character read
+     * as ISO-8859-1.
+     */
+    private final static char[] WINDOWS_1250 = createTable("windows-1250");
+
+    /**
+     * This method creates table, which maps each byte read as ISO-8859-1 to
+     * polish letter of given encoding. The other bytes are mapped to
+     * themselves.
+     * 
+     * @param charsetName
+     *            The name of encoding.
+     * @return The table for characters from 0 to 255.
+     */
+    private static char[] createTable(String charsetName) {
+        Charset charset = Charset.forName(charsetName);
+        char[] table = new char[256];
+
+        for (int i = 0; i < table.length; i++) {
+            String letter = new String(new byte[] { (byte) i }, charset);
+            table[i] = (char) i;
+
+            if (letter.length() == 1
+                    && POLISH_LETTERS.indexOf(letter.charAt(0)) >= 0) {
+                table[i] = letter.charAt(0);
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * This method repairs polish letters in given text.
+     * 
+     * @param text
+     *            The text from tag, may be null.
+     * @return The repaired text, the same instance if nothing is repaired, or
+     *         empty if text is null.
+     */
+    public static String repair(String text) {
+        if (text == null) {
+            return "";
+        }
+
+        int length = text.length();
+        int first = 0;
+
+        while (first < length && text.charAt(first) < 0x80) {
+            first++;
+        }
+
+        if (first == length) {
+            return text;
+        }
+
+        int windowsLetters = 0;
+        int isoLetters = 0;
+
+        for (int i = first; i < length; i++) {
+            char character = text.charAt(i);
+
+            if (character > 0xff) {
+                return text;
+            }
+
+            if (WINDOWS_1250[character] != ISO_8859_2[character]) {
+                if (WINDOWS_1250[character] != character) {
+                    windowsLetters++;
+                } else {
+                    isoLetters++;
+                }
+            }
+        }
+
+        // Text without distinctive letters is read as windows-1250.
+        char[] table = isoLetters > windowsLetters ? ISO_8859_2 : WINDOWS_1250;
+        char[] repaired = null;
+
+        for (int i = first; i < length; i++) {
+            char character = text.charAt(i);
+
+            if (table[character] != character && repaired == null) {
+                repaired = text.toCharArray();
+            }
+
+            if (repaired != null) {
+                repaired[i] = table[character];
+            }
+        }
+
+        return repaired == null ? text : new String(repaired);
+    }
+}
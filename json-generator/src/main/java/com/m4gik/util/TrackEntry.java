@@ -0,0 +1,447 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This class represents single audio file in JSON library. The fields keeps
+ * the same values which are stored for file in lib.json.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class TrackEntry {
+
+    /**
+     * The key for album in JSON library.
+     */
+    public final static String ALBUM = "album";
+
+    /**
+     * The key for artist in JSON library.
+     */
+    public final static String ARTIST = "artist";
+
+    /**
+     * The key for bit rate in JSON library.
+     */
+    public final static String BIT_RATE = "bit rate";
+
+    /**
+     * The key for directory in JSON library.
+     */
+    public final static String DIRECTORY = "directory";
+
+    /**
+     * The key for fingerprint of file in JSON library.
+     */
+    public final static String FINGERPRINT = "fingerprint";
+
+    /**
+     * The key for length in JSON library.
+     */
+    public final static String LENGTH = "length";
+
+    /**
+     * The key for location in JSON library.
+     */
+    public final static String LOCATION = "location";
+
+    /**
+     * The key for modification time of remote file in JSON library.
+     */
+    public final static String MODIFIED = "modified";
+
+    /**
+     * The key for original name in JSON library.
+     */
+    public final static String ORIGINAL_NAME = "orginal name";
+
+    /**
+     * The key for size in JSON library.
+     */
+    public final static String SIZE = "size";
+
+    /**
+     * The key for title in JSON library.
+     */
+    public final static String TITLE = "title";
+
+    /**
+     * The key for web directory in JSON library.
+     */
+    public final static String WEB_DIRECTORY = "web-directory";
+
+    /**
+     * The key for year in JSON library.
+     */
+    public final static String YEAR = "year";
+
+    /**
+     * This method creates entry from values stored in JSON library.
+     * 
+     * @param values
+     *            The map with values for single file.
+     * @return The entry with values from map.
+     */
+    @SuppressWarnings("rawtypes")
+    public static TrackEntry fromMap(Map values) {
+        TrackEntry entry = new TrackEntry();
+
+        entry.setTitle(getString(values, TITLE));
+        entry.setArtist(getString(values, ARTIST));
+        entry.setYear(getString(values, YEAR));
+        entry.setAlbum(getString(values, ALBUM));
+        entry.setLength(getString(values, LENGTH));
+        entry.setBitRate(getString(values, BIT_RATE));
+        entry.setSize(getString(values, SIZE));
+        entry.setOriginalName(getString(values, ORIGINAL_NAME));
+        entry.setDirectory(getString(values, DIRECTORY));
+        entry.setWebDirectory(getString(values, WEB_DIRECTORY));
+        entry.setLocation(getString(values, LOCATION));
+        entry.setModified(getString(values, MODIFIED));
+        entry.setFingerprint(getString(values, FINGERPRINT));
+
+        return entry;
+    }
+
+    /**
+     * This method gets value from map as string.
+     * 
+     * @param values
+     *            The map with values.
+     * @param key
+     *            The key of value.
+     * @return The value as string, empty string if map does not contain key.
+     */
+    @SuppressWarnings("rawtypes")
+    private static String getString(Map values, String key) {
+        Object value = values.get(key);
+
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * The album from tag of file.
+     */
+    private String album = "";
+
+    /**
+     * The artist from tag of file.
+     */
+    private String artist = "";
+
+    /**
+     * The bit rate of file in kbps.
+     */
+    private String bitRate = "";
+
+    /**
+     * The directory of file on server side.
+     */
+    private String directory = "";
+
+    /**
+     * The fingerprint of file, empty until it is needed to find copies of
+     * file.
+     */
+    private String fingerprint = "";
+
+    /**
+     * The length of file in format HH:mm:ss.
+     */
+    private String length = "";
+
+    /**
+     * The full path of file on server side.
+     */
+    private String location = "";
+
+    /**
+     * The modification time of remote file in milliseconds.
+     */
+    private String modified = "";
+
+    /**
+     * The original name of file.
+     */
+    private String originalName = "";
+
+    /**
+     * The size of file in bytes.
+     */
+    private String size = "";
+
+    /**
+     * The title from tag of file, or name of file without tag.
+     */
+    private String title = "";
+
+    /**
+     * The path of file for web page.
+     */
+    private String webDirectory = "";
+
+    /**
+     * The year from tag of file.
+     */
+    private String year = "";
+
+    /**
+     * This method copies this entry.
+     * 
+     * @return The new entry with the same values.
+     */
+    public TrackEntry copy() {
+        TrackEntry entry = new TrackEntry();
+
+        entry.setTitle(getTitle());
+        entry.setArtist(getArtist());
+        entry.setYear(getYear());
+        entry.setAlbum(getAlbum());
+        entry.setLength(getLength());
+        entry.setBitRate(getBitRate());
+        entry.setSize(getSize());
+        entry.setOriginalName(getOriginalName());
+        entry.setDirectory(getDirectory());
+        entry.setWebDirectory(getWebDirectory());
+        entry.setLocation(getLocation());
+        entry.setModified(getModified());
+        entry.setFingerprint(getFingerprint());
+
+        return entry;
+    }
+
+    /**
+     * @return the album
+     */
+    public String getAlbum() {
+        return album;
+    }
+
+    /**
+     * @return the artist
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return the bitRate
+     */
+    public String getBitRate() {
+        return bitRate;
+    }
+
+    /**
+     * @return the directory
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the fingerprint
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the length
+     */
+    public String getLength() {
+        return length;
+    }
+
+    /**
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the modified
+     */
+    public String getModified() {
+        return modified;
+    }
+
+    /**
+     * @return the originalName
+     */
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    /**
+     * @return the size
+     */
+    public String getSize() {
+        return size;
+    }
+
+    /**
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the webDirectory
+     */
+    public String getWebDirectory() {
+        return webDirectory;
+    }
+
+    /**
+     * @return the year
+     */
+    public String getYear() {
+        return year;
+    }
+
+    /**
+     * @param album
+     *            the album to set
+     */
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+
+    /**
+     * @param artist
+     *            the artist to set
+     */
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    /**
+     * @param bitRate
+     *            the bitRate to set
+     */
+    public void setBitRate(String bitRate) {
+        this.bitRate = bitRate;
+    }
+
+    /**
+     * @param directory
+     *            the directory to set
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param fingerprint
+     *            the fingerprint to set
+     */
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @param length
+     *            the length to set
+     */
+    public void setLength(String length) {
+        this.length = length;
+    }
+
+    /**
+     * @param location
+     *            the location to set
+     */
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    /**
+     * @param modified
+     *            the modified to set
+     */
+    public void setModified(String modified) {
+        this.modified = modified;
+    }
+
+    /**
+     * @param originalName
+     *            the originalName to set
+     */
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    /**
+     * @param size
+     *            the size to set
+     */
+    public void setSize(String size) {
+        this.size = size;
+    }
+
+    /**
+     * @param title
+     *            the title to set
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * @param webDirectory
+     *            the webDirectory to set
+     */
+    public void setWebDirectory(String webDirectory) {
+        this.webDirectory = webDirectory;
+    }
+
+    /**
+     * @param year
+     *            the year to set
+     */
+    public void setYear(String year) {
+        this.year = year;
+    }
+
+    /**
+     * This method writes values of this entry as object of JSON library.
+     * 
+     * @param key
+     *            The key of entry in library.
+     * @param writer
+     *            The writer of JSON library.
+     * @throws IOException
+     */
+    public void writeTo(String key, JSONLibraryWriter writer)
+            throws IOException {
+        writer.beginObject(key);
+        writer.value(TITLE, getTitle());
+        writer.value(ARTIST, getArtist());
+        writer.value(YEAR, getYear());
+        writer.value(ALBUM, getAlbum());
+        writer.value(LENGTH, getLength());
+        writer.value(BIT_RATE, getBitRate());
+        writer.value(SIZE, getSize());
+        writer.value(ORIGINAL_NAME, getOriginalName());
+        writer.value(DIRECTORY, getDirectory());
+        writer.value(WEB_DIRECTORY, getWebDirectory());
+        writer.value(LOCATION, getLocation());
+        writer.value(MODIFIED, getModified());
+
+        if (!getFingerprint().equals("")) {
+            writer.value(FINGERPRINT, getFingerprint());
+        }
+
+        writer.endObject();
+    }
+
+}
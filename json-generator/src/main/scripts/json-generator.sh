@@ -0,0 +1,34 @@
+#!/bin/sh
+#
+# Project audio-search.
+# Copyright Michał Szczygieł.
+# Created at Oct 18, 2026.
+#
+# Starts json-generator with class data sharing archive kept next to the jar,
+# so classes of generator and its libraries are mapped from archive instead of
+# being loaded and verified on each start. When archive is missing, it is
+# created at exit of this run and used by next runs. Archive is ignored by JVM,
+# when jar, its location or JVM changes, delete it then to create it again.
+# Java 13 or newer is needed for archive, older JVM starts without it.
+#
+# Arguments are passed to generator, JAVA_OPTS to JVM.
+
+LAUNCHER_DIR=$(cd "$(dirname "$0")" && pwd)
+JAR="$LAUNCHER_DIR/json-generator.jar"
+ARCHIVE="$LAUNCHER_DIR/json-generator.jsa"
+
+if [ -n "$JAVA_HOME" ]; then
+    JAVA="$JAVA_HOME/bin/java"
+else
+    JAVA=java
+fi
+
+if [ -f "$ARCHIVE" ]; then
+    SHARING="-XX:SharedArchiveFile=$ARCHIVE"
+else
+    SHARING="-XX:ArchiveClassesAtExit=$ARCHIVE"
+fi
+
+# The class path must be the same as when archive was created.
+exec "$JAVA" -XX:+IgnoreUnrecognizedVMOptions -Xshare:auto "$SHARING" \
+    $JAVA_OPTS -cp "$JAR" com.m4gik.Main "$@"
@@ -0,0 +1,183 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+
+import com.m4gik.util.AudioData;
+import com.m4gik.util.BinaryLibraryWriter;
+import com.m4gik.util.JSONBuilder;
+import com.m4gik.util.Library;
+import com.m4gik.util.Metrics;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests crawl of directories on local disk by {@link LocalSource},
+ * and how files are skipped and removed, when crawl runs again.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class LocalSourceTest extends TestCase {
+
+    /**
+     * The header of MPEG 1 Layer III frame, 128 kbps, 44100 Hz, stereo, which
+     * is 417 bytes long.
+     */
+    private final static int CBR_128 = 0xfffb9000;
+
+    /**
+     * The length of frame with {@link #CBR_128} header.
+     */
+    private final static int FRAME_LENGTH = 417;
+
+    /**
+     * The temporary root directory of crawl.
+     */
+    private File root;
+
+    /**
+     * This method writes audio file with ID3v2.3 tag, which contains title,
+     * and few audio frames.
+     * 
+     * @param path
+     *            The path of file in root directory.
+     * @param title
+     *            The title of file.
+     * @throws IOException
+     */
+    private void createFile(String path, String title) throws IOException {
+        byte[] text = title.getBytes("ISO-8859-1");
+        ByteBuffer content = ByteBuffer.allocate(10 + 11 + text.length + 20
+                * FRAME_LENGTH);
+        content.put(new byte[] { 'I', 'D', '3', 3, 0, 0, 0, 0, 0,
+                (byte) (11 + text.length) });
+        content.put(new byte[] { 'T', 'I', 'T', '2' });
+        content.putInt(1 + text.length);
+        content.put(new byte[] { 0, 0, 0 });
+        content.put(text);
+
+        for (int i = 0; i < 20; i++) {
+            content.putInt(CBR_128);
+            content.position(content.position() + FRAME_LENGTH - 4);
+        }
+
+        FileUtils.writeByteArrayToFile(new File(root, path), content.array());
+    }
+
+    /**
+     * This method crawls root directory with new source, which reads library
+     * written by previous crawl.
+     * 
+     * @return The source after crawl.
+     */
+    private LocalSource crawl() {
+        LocalSource source = new LocalSource(root.getPath());
+        source.setConnections(2);
+        source.setBinary(true);
+        source.retrieveFiles(root.getPath());
+
+        return source;
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        root = File.createTempFile("audio-search", "");
+        root.delete();
+        root.mkdir();
+        createFile("1.mp3", "One");
+        createFile("a/2.mp3", "Two");
+        createFile("a/b/3.mp3", "Three");
+        createFile("a/b/notes.txt", "Notes");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(root);
+    }
+
+    /**
+     * This method tests that file, which is too large to be mapped, fails
+     * alone and the other files are crawled.
+     * 
+     * @throws IOException
+     */
+    public void testLargeFile() throws IOException {
+        RandomAccessFile largeFile = new RandomAccessFile(new File(root,
+                "a/large.mp3"), "rw");
+
+        try {
+            // The file is sparse, so it takes no space on disk.
+            largeFile.setLength(AudioData.MAX_SIZE + 1);
+        } finally {
+            largeFile.close();
+        }
+
+        LocalSource source = crawl();
+
+        assertEquals(Integer.valueOf(3), source.getLibrary().size());
+        assertEquals(Long.valueOf(1), source.getMetrics().getCounter(
+                Metrics.Counter.FILES_FAILED));
+        assertEquals(Long.valueOf(3), source.getMetrics().getCounter(
+                Metrics.Counter.FILES_PROCESSED));
+    }
+
+    /**
+     * This method tests that audio files of all subdirectories are put to
+     * library, and library is written to root directory.
+     */
+    public void testRetrieveFiles() {
+        LocalSource source = crawl();
+        Library library = source.getLibrary();
+        String rootPath = root.getAbsolutePath().replace(File.separatorChar,
+                '/') + "/";
+
+        assertEquals(Integer.valueOf(3), library.size());
+        assertEquals("One", library.get(rootPath + "1.mp3").getTitle());
+        assertEquals("Three", library.get(rootPath + "a/b/3.mp3").getTitle());
+        assertEquals(rootPath + "a/b/", library.get(rootPath + "a/b/3.mp3")
+                .getDirectory());
+        assertEquals(Long.valueOf(3), source.getMetrics().getCounter(
+                Metrics.Counter.FILES_PROCESSED));
+        assertTrue(new File(root, JSONBuilder.JSON_FILE).exists());
+        assertTrue(new File(root, JSONBuilder.JSON_FILE
+                + JSONBuilder.GZIP_EXTENSION).exists());
+        assertTrue(new File(root, BinaryLibraryWriter.BINARY_FILE).exists());
+        assertFalse(new File(root, JSONBuilder.JSON_FILE
+                + JSONBuilder.TEMP_EXTENSION).exists());
+    }
+
+    /**
+     * This method tests that unchanged files are skipped, changed files are
+     * parsed again and deleted files are removed from library.
+     * 
+     * @throws IOException
+     */
+    public void testRetrieveChangedFiles() throws IOException {
+        crawl();
+        String rootPath = root.getAbsolutePath().replace(File.separatorChar,
+                '/') + "/";
+        new File(root, "a/b/3.mp3").delete();
+        createFile("a/2.mp3", "Two again");
+        LocalSource source = crawl();
+        Library library = source.getLibrary();
+
+        assertEquals(Integer.valueOf(2), library.size());
+        assertEquals("Two again", library.get(rootPath + "a/2.mp3")
+                .getTitle());
+        assertNull(library.get(rootPath + "a/b/3.mp3"));
+        assertEquals(Long.valueOf(1), source.getMetrics().getCounter(
+                Metrics.Counter.FILES_SKIPPED));
+        assertEquals(Long.valueOf(1), source.getMetrics().getCounter(
+                Metrics.Counter.FILES_PROCESSED));
+    }
+}
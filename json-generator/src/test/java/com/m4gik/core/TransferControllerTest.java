@@ -0,0 +1,182 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.core;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests adjusting of limit of transfers by
+ * {@link TransferController}. Transfers are simulated with clock of test, so
+ * each round starts as many transfers as limit allows, which share bandwidth
+ * of link and end together.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class TransferControllerTest extends TestCase {
+
+    /**
+     * This class is controller, which time is given by test.
+     */
+    private static class SimulatedController extends TransferController {
+
+        /**
+         * The current time in nanoseconds.
+         */
+        private Long now = 10000000000L;
+
+        /**
+         * The constructor for {@link SimulatedController}.
+         * 
+         * @param maxTransfers
+         *            The maximum amount of concurrent transfers.
+         */
+        public SimulatedController(Integer maxTransfers) {
+            super(maxTransfers, true, 0L);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+    }
+
+    /**
+     * The size of simulated file.
+     */
+    private final static Long FILE_SIZE = 1024 * 1024L;
+
+    /**
+     * The bandwidth of fast link in bytes per nanosecond.
+     */
+    private final static Double FAST_LINK = 0.1;
+
+    /**
+     * The time in nanoseconds of opening data connection.
+     */
+    private final static Long LATENCY = 1000000L;
+
+    /**
+     * The maximum amount of concurrent transfers.
+     */
+    private final static Integer MAX_TRANSFERS = 8;
+
+    /**
+     * The bandwidth of slow link in bytes per nanosecond.
+     */
+    private final static Double SLOW_LINK = 0.01;
+
+    /**
+     * This method simulates rounds of transfers.
+     * 
+     * @param controller
+     *            The controller of transfers.
+     * @param rounds
+     *            The amount of rounds.
+     * @param bandwidth
+     *            The bandwidth shared by transfers in bytes per nanosecond.
+     * @param latency
+     *            The time in nanoseconds of opening data connection.
+     */
+    private static void simulate(SimulatedController controller,
+            Integer rounds, Double bandwidth, Long latency) {
+        for (Integer round = 0; round < rounds; round++) {
+            Integer transfers = controller.getLimit();
+
+            for (Integer transfer = 0; transfer < transfers; transfer++) {
+                controller.acquire();
+            }
+
+            controller.now += latency
+                    + (long) (FILE_SIZE * transfers / bandwidth);
+
+            for (Integer transfer = 0; transfer < transfers; transfer++) {
+                controller.onSuccess(latency, FILE_SIZE);
+                controller.release();
+            }
+        }
+    }
+
+    /**
+     * This method tests, that limit grows to maximum, when transfers share
+     * bandwidth of link, so throughput of each transfer falls.
+     */
+    public void testGrowsOnBandwidthBoundLink() {
+        SimulatedController controller = new SimulatedController(
+                MAX_TRANSFERS);
+        assertEquals(Integer.valueOf(1), controller.getLimit());
+
+        simulate(controller, 500, FAST_LINK, LATENCY);
+
+        assertEquals(MAX_TRANSFERS, controller.getLimit());
+    }
+
+    /**
+     * This method tests, that limit is fixed, when controller is not
+     * adaptive.
+     */
+    public void testIgnoresFailuresWhenFixed() {
+        TransferController controller = new TransferController(MAX_TRANSFERS,
+                false, 0L);
+
+        controller.onFailure(421);
+
+        assertEquals(MAX_TRANSFERS, controller.getLimit());
+    }
+
+    /**
+     * This method tests, that limit shrinks when data connections open
+     * slowly, and grows again when slow opening lasts.
+     */
+    public void testRecoversAfterLastingLatency() {
+        SimulatedController controller = new SimulatedController(
+                MAX_TRANSFERS);
+        simulate(controller, 500, FAST_LINK, LATENCY);
+
+        simulate(controller, 20, FAST_LINK, 5 * LATENCY);
+        assertTrue(controller.getLimit() < MAX_TRANSFERS);
+
+        simulate(controller, 5000, FAST_LINK, 5 * LATENCY);
+        assertEquals(MAX_TRANSFERS, controller.getLimit());
+    }
+
+    /**
+     * This method tests, that limit shrinks when aggregate throughput drops,
+     * and grows again when link stays slow, because best throughput decays.
+     */
+    public void testRecoversAfterLastingSlowdown() {
+        SimulatedController controller = new SimulatedController(
+                MAX_TRANSFERS);
+        simulate(controller, 500, FAST_LINK, LATENCY);
+
+        simulate(controller, 3, SLOW_LINK, LATENCY);
+        assertTrue(controller.getLimit() < MAX_TRANSFERS);
+
+        simulate(controller, 1000, SLOW_LINK, LATENCY);
+        assertEquals(MAX_TRANSFERS, controller.getLimit());
+    }
+
+    /**
+     * This method tests, that only replies of loaded server halve limit.
+     */
+    public void testShrinksOnThrottleReply() {
+        SimulatedController controller = new SimulatedController(
+                MAX_TRANSFERS);
+        simulate(controller, 500, FAST_LINK, LATENCY);
+
+        controller.onFailure(550);
+        assertEquals(MAX_TRANSFERS, controller.getLimit());
+
+        controller.onFailure(421);
+        assertEquals(Integer.valueOf(MAX_TRANSFERS / 2),
+                controller.getLimit());
+
+        // The burst of failures of the same congestion halves limit once.
+        controller.onFailure(null);
+        assertEquals(Integer.valueOf(MAX_TRANSFERS / 2),
+                controller.getLimit());
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests replay of {@link CrawlJournal}, when crawl is resumed,
+ * also when the last record was not written completely.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class CrawlJournalTest extends TestCase {
+
+    /**
+     * The server and library of crawl.
+     */
+    private final static String ORIGIN = "ftp://localhost/lib.json";
+
+    /**
+     * The temporary journal file.
+     */
+    private File file;
+
+    /**
+     * This method creates entry of file.
+     * 
+     * @param number
+     *            The number of file.
+     * @return The entry of file.
+     */
+    private static TrackEntry createEntry(Integer number) {
+        TrackEntry entry = new TrackEntry();
+        entry.setTitle("Title \"" + number + "\" \u0105");
+        entry.setArtist("Artist");
+        entry.setSize(String.valueOf(1000 + number));
+        entry.setLocation("/music/" + number + ".mp3");
+
+        return entry;
+    }
+
+    /**
+     * This method writes journal with given amount of files.
+     * 
+     * @param count
+     *            The amount of files.
+     */
+    private void writeJournal(Integer count) {
+        CrawlJournal journal = new CrawlJournal(file, ORIGIN);
+        journal.replay(new Library());
+        journal.open();
+
+        for (Integer i = 1; i <= count; i++) {
+            journal.append("/music/" + i + ".mp3", createEntry(i));
+        }
+
+        journal.close();
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("audio-search", ".journal");
+        file.delete();
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * This method tests that journal is deleted, when crawl is finished.
+     */
+    public void testDelete() {
+        writeJournal(1);
+        CrawlJournal journal = new CrawlJournal(file, ORIGIN);
+        journal.replay(new Library());
+        journal.open();
+        journal.delete();
+
+        assertFalse(file.exists());
+        assertEquals(Integer.valueOf(0), journal.replay(new Library()));
+    }
+
+    /**
+     * This method tests that journal of other crawl is not replayed and is
+     * started again.
+     * 
+     * @throws IOException
+     */
+    public void testOtherOrigin() throws IOException {
+        writeJournal(2);
+        CrawlJournal journal = new CrawlJournal(file, "ftp://other/lib.json");
+        Library library = new Library();
+
+        assertEquals(Integer.valueOf(0), journal.replay(library));
+        assertEquals(Integer.valueOf(0), library.size());
+
+        journal.open();
+        journal.close();
+        assertEquals(1, FileUtils.readLines(file, Library.CHARSET).size());
+    }
+
+    /**
+     * This method tests that all entries of journal are put to library.
+     */
+    public void testReplay() {
+        writeJournal(3);
+        Library library = new Library();
+
+        assertEquals(Integer.valueOf(3),
+                new CrawlJournal(file, ORIGIN).replay(library));
+        assertEquals(Integer.valueOf(3), library.size());
+        TrackEntry entry = library.get("/music/2.mp3");
+        assertEquals("Title \"2\" \u0105", entry.getTitle());
+        assertEquals("Artist", entry.getArtist());
+        assertEquals("1002", entry.getSize());
+    }
+
+    /**
+     * This method tests that torn last record is not replayed, and is
+     * overwritten by records of resumed crawl.
+     * 
+     * @throws IOException
+     */
+    public void testTornRecord() throws IOException {
+        writeJournal(3);
+        RandomAccessFile journalFile = new RandomAccessFile(file, "rw");
+
+        try {
+            journalFile.setLength(journalFile.length() - 10);
+        } finally {
+            journalFile.close();
+        }
+
+        CrawlJournal journal = new CrawlJournal(file, ORIGIN);
+        Library library = new Library();
+
+        assertEquals(Integer.valueOf(2), journal.replay(library));
+        assertTrue(library.containsKey("/music/2.mp3"));
+        assertFalse(library.containsKey("/music/3.mp3"));
+
+        journal.open();
+        journal.append("/music/4.mp3", createEntry(4));
+        journal.close();
+
+        List<String> lines = FileUtils.readLines(file, Library.CHARSET);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(3).contains("/music/4.mp3"));
+
+        library = new Library();
+        assertEquals(Integer.valueOf(3),
+                new CrawlJournal(file, ORIGIN).replay(library));
+        assertTrue(library.containsKey("/music/4.mp3"));
+    }
+
+    /**
+     * This method tests that record, which ends without line separator, is
+     * not replayed, because it may be cut at end of value.
+     * 
+     * @throws IOException
+     */
+    public void testRecordWithoutSeparator() throws IOException {
+        writeJournal(2);
+        RandomAccessFile journalFile = new RandomAccessFile(file, "rw");
+
+        try {
+            journalFile.setLength(journalFile.length() - 1);
+        } finally {
+            journalFile.close();
+        }
+
+        assertEquals(Integer.valueOf(1),
+                new CrawlJournal(file, ORIGIN).replay(new Library()));
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests splitting of library into shards by {@link LibraryShards},
+ * names of encoded shards and reading of manifest.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class LibraryShardsTest extends TestCase {
+
+    /**
+     * This method creates library with entries of given files. Each file is
+     * given as directory and name.
+     * 
+     * @param files
+     * @return The library.
+     */
+    private static Library createLibrary(String... files) {
+        Library library = new Library();
+
+        for (int i = 0; i < files.length; i += 2) {
+            TrackEntry entry = new TrackEntry();
+            entry.setTitle(files[i + 1]);
+            entry.setDirectory(files[i]);
+            entry.setLocation(files[i] + files[i + 1]);
+            library.put(entry.getLocation(), entry);
+        }
+
+        return library;
+    }
+
+    /**
+     * This method encodes shards.
+     * 
+     * @param shards
+     * @return The names of encoded shards in order.
+     * @throws IOException
+     */
+    private static List<String> encode(List<LibraryShards.Shard> shards)
+            throws IOException {
+        List<String> names = new ArrayList<String>();
+
+        for (LibraryShards.Shard shard : shards) {
+            byte[] content = shard.encode();
+            assertEquals(Integer.valueOf(content.length), shard.getSize());
+            names.add(shard.getName());
+        }
+
+        return names;
+    }
+
+    /**
+     * This method tests that encoded shard is read as library with entries of
+     * shard.
+     * 
+     * @throws IOException
+     */
+    public void testEncode() throws IOException {
+        LibraryShards.Shard shard = LibraryShards.split(
+                createLibrary("/b/", "2.mp3", "/b/", "1.mp3"), 0).get(0);
+
+        assertNull(shard.getName());
+        assertNull(shard.getChecksum());
+
+        Library library = Library.readFrom(new ByteArrayInputStream(shard
+                .encode()));
+
+        assertEquals(Integer.valueOf(2), library.size());
+        assertEquals("1.mp3", library.get("/b/1.mp3").getTitle());
+        assertEquals(40, shard.getChecksum().length());
+        assertEquals("lib." + shard.getChecksum() + ".json", shard.getName());
+    }
+
+    /**
+     * This method tests that manifest lists all shards, and names of shards
+     * are read back from it.
+     * 
+     * @throws IOException
+     */
+    public void testManifest() throws IOException {
+        List<LibraryShards.Shard> shards = LibraryShards.split(
+                createLibrary("/a/", "1.mp3", "/b/", "1.mp3", "/b/", "2.mp3"),
+                0);
+        Set<String> names = new HashSet<String>(encode(shards));
+        Map<String, String> comment = new HashMap<String, String>();
+        comment.put("server", "ftp://localhost");
+        ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+        LibraryShards.writeManifest(comment, shards, manifest);
+        String json = manifest.toString(Library.CHARSET);
+
+        assertTrue(json.contains("\"total\":3"));
+        assertTrue(json.contains("\"directory\":\"/b/\""));
+        assertEquals(names, LibraryShards.readShardNames(
+                new ByteArrayInputStream(manifest.toByteArray())));
+    }
+
+    /**
+     * This method tests that names of shards depend only on their entries,
+     * so only the shard of changed directory gets new name.
+     * 
+     * @throws IOException
+     */
+    public void testNames() throws IOException {
+        List<String> names = encode(LibraryShards.split(
+                createLibrary("/a/", "1.mp3", "/b/", "1.mp3", "/b/", "2.mp3"),
+                0));
+        List<String> reordered = encode(LibraryShards.split(
+                createLibrary("/b/", "2.mp3", "/a/", "1.mp3", "/b/", "1.mp3"),
+                0));
+        List<String> changed = encode(LibraryShards.split(
+                createLibrary("/a/", "1.mp3", "/b/", "1.mp3", "/b/", "3.mp3"),
+                0));
+
+        assertEquals(names, reordered);
+        assertEquals(names.get(0), changed.get(0));
+        assertFalse(names.get(1).equals(changed.get(1)));
+    }
+
+    /**
+     * This method tests that shards contain single directory each, in order
+     * of directories.
+     */
+    public void testSplitByDirectory() {
+        List<LibraryShards.Shard> shards = LibraryShards.split(
+                createLibrary("/c/", "1.mp3", "/a/", "1.mp3", "/c/", "2.mp3",
+                        "/b/", "1.mp3"), 0);
+
+        assertEquals(3, shards.size());
+        assertEquals("/a/", shards.get(0).getDirectory());
+        assertEquals("/b/", shards.get(1).getDirectory());
+        assertEquals("/c/", shards.get(2).getDirectory());
+        assertEquals(Integer.valueOf(2), shards.get(2).getCount());
+    }
+
+    /**
+     * This method tests that shards of fixed size are filled in order of
+     * directories and keys, and may span directories.
+     * 
+     * @throws IOException
+     */
+    public void testSplitBySize() throws IOException {
+        List<LibraryShards.Shard> shards = LibraryShards.split(
+                createLibrary("/b/", "2.mp3", "/a/", "1.mp3", "/b/", "1.mp3",
+                        "/c/", "1.mp3", "/a/", "2.mp3"), 2);
+
+        assertEquals(3, shards.size());
+        assertNull(shards.get(0).getDirectory());
+        assertEquals(Integer.valueOf(2), shards.get(0).getCount());
+        assertEquals(Integer.valueOf(1), shards.get(2).getCount());
+
+        Library second = Library.readFrom(new ByteArrayInputStream(shards
+                .get(1).encode()));
+        assertEquals(Arrays.asList("/b/1.mp3", "/b/2.mp3"),
+                new ArrayList<String>(second.getEntriesByKey().keySet()));
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests writing of {@link Library} as JSON, compressed JSON and
+ * binary library, and reading it back, also from binary library in version 1
+ * without fingerprints.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class LibraryTest extends TestCase {
+
+    /**
+     * The title with characters, which are escaped in JSON, and characters
+     * outside ASCII and outside basic plane.
+     */
+    private final static String TITLE = "\"Quote\" \\ back\tslash\n\u0001 "
+            + "Za\u017c\u00f3\u0142\u0107 \ud83c\udfb5";
+
+    /**
+     * This method asserts that libraries have the same comment, directories
+     * and entries in the same order.
+     * 
+     * @param expected
+     * @param actual
+     */
+    private static void assertLibrary(Library expected, Library actual) {
+        assertEquals(expected.getComment(), actual.getComment());
+        assertEquals(expected.getDirectoryModified("/music/"),
+                actual.getDirectoryModified("/music/"));
+        assertEquals(
+                new ArrayList<String>(expected.getEntriesByKey().keySet()),
+                new ArrayList<String>(actual.getEntriesByKey().keySet()));
+
+        for (String key : expected.getEntriesByKey().keySet()) {
+            assertEquals(toList(expected.get(key)), toList(actual.get(key)));
+        }
+    }
+
+    /**
+     * This method creates library with few entries, which share artist and
+     * album.
+     * 
+     * @return The library.
+     */
+    private static Library createLibrary() {
+        Library library = new Library();
+        Map<String, String> comment = new HashMap<String, String>();
+        comment.put("generated", "2026-10-18");
+        comment.put("server", "ftp://localhost");
+        library.setComment(comment);
+        library.putDirectory("/music/", 1000L);
+        library.putDirectory("/music/album/", 2000L);
+
+        for (Integer i = 1; i <= 3; i++) {
+            TrackEntry entry = new TrackEntry();
+            entry.setTitle(i == 2 ? TITLE : "Title " + i);
+            entry.setArtist("Artist");
+            entry.setYear("2026");
+            entry.setAlbum("Album");
+            entry.setLength("00:03:2" + i);
+            entry.setBitRate(i == 3 ? "~192" : "128");
+            entry.setSize(String.valueOf(1000000 + i));
+            entry.setOriginalName("track" + i + ".mp3");
+            entry.setDirectory("/music/album/");
+            entry.setWebDirectory("music/album/");
+            entry.setLocation("/music/album/track" + i + ".mp3");
+            entry.setModified(String.valueOf(1000L * i));
+            entry.setFingerprint(i == 1 ? "" : "fingerprint" + i);
+            library.put(entry.getLocation(), entry);
+        }
+
+        return library;
+    }
+
+    /**
+     * This method gets all values of entry.
+     * 
+     * @param entry
+     * @return The values in order of binary library.
+     */
+    private static List<String> toList(TrackEntry entry) {
+        List<String> values = new ArrayList<String>();
+        values.add(entry.getTitle());
+        values.add(entry.getArtist());
+        values.add(entry.getYear());
+        values.add(entry.getAlbum());
+        values.add(entry.getLength());
+        values.add(entry.getBitRate());
+        values.add(entry.getSize());
+        values.add(entry.getOriginalName());
+        values.add(entry.getDirectory());
+        values.add(entry.getWebDirectory());
+        values.add(entry.getLocation());
+        values.add(entry.getModified());
+        values.add(entry.getFingerprint());
+
+        return values;
+    }
+
+    /**
+     * This method writes string as length and UTF-8 bytes, like binary
+     * library of up to 127 bytes.
+     * 
+     * @param outputStream
+     * @param value
+     * @throws IOException
+     */
+    private static void writeString(ByteArrayOutputStream outputStream,
+            String value) throws IOException {
+        byte[] bytes = value.getBytes(Library.CHARSET);
+        outputStream.write(bytes.length);
+        outputStream.write(bytes);
+    }
+
+    /**
+     * This method tests that entries are found by size and by fingerprint,
+     * and indexes follow changed and removed entries.
+     */
+    public void testIndexes() {
+        Library library = createLibrary();
+        library.putFingerprint("/music/album/track1.mp3", "fingerprint1");
+
+        assertEquals(Collections.singleton("/music/album/track2.mp3"),
+                library.getKeysBySize("1000002"));
+        assertTrue(library.getKeysBySize("1").isEmpty());
+        assertEquals("Title 1", library.getByFingerprint("fingerprint1")
+                .getTitle());
+        assertEquals("fingerprint1", library.get("/music/album/track1.mp3")
+                .getFingerprint());
+
+        // The copy under other path replaces entry in fingerprint index.
+        TrackEntry copy = library.get("/music/album/track2.mp3").copy();
+        copy.setLocation("/copy/track2.mp3");
+        library.put(copy.getLocation(), copy);
+        assertEquals(new HashSet<String>(Arrays.asList(
+                "/music/album/track2.mp3", "/copy/track2.mp3")),
+                library.getKeysBySize("1000002"));
+        assertEquals("/copy/track2.mp3",
+                library.getByFingerprint("fingerprint2").getLocation());
+
+        library.remove("/music/album/track3.mp3");
+        assertNull(library.getByFingerprint("fingerprint3"));
+        assertTrue(library.getKeysBySize("1000003").isEmpty());
+
+        // The changed entry is indexed by its new size only.
+        TrackEntry changed = library.get("/music/album/track1.mp3").copy();
+        changed.setSize("5");
+        changed.setFingerprint("");
+        library.put("/music/album/track1.mp3", changed);
+        assertTrue(library.getKeysBySize("1000001").isEmpty());
+        assertEquals(Collections.singleton("/music/album/track1.mp3"),
+                library.getKeysBySize("5"));
+        assertNull(library.getByFingerprint("fingerprint1"));
+    }
+
+    /**
+     * This method tests that entries keyed by name of file are keyed by their
+     * location, and entries without location keep their key.
+     */
+    public void testRekeyByLocation() {
+        Library library = new Library();
+
+        // The files of the same name in different directories.
+        for (String directory : new String[] { "/a/", "/b/" }) {
+            TrackEntry entry = new TrackEntry();
+            entry.setTitle("Song in " + directory);
+            entry.setSize("100");
+            entry.setLocation(directory + "song.mp3");
+            library.put(directory.charAt(1) + "-song.mp3", entry);
+        }
+
+        TrackEntry old = new TrackEntry();
+        old.setTitle("Old");
+        library.put("old.mp3", old);
+
+        assertEquals(Integer.valueOf(2), library.rekeyByLocation());
+        assertEquals(Arrays.asList("/a/song.mp3", "/b/song.mp3", "old.mp3"),
+                new ArrayList<String>(library.getEntriesByKey().keySet()));
+        assertEquals("Song in /b/", library.get("/b/song.mp3").getTitle());
+        assertEquals(new HashSet<String>(Arrays.asList("/a/song.mp3",
+                "/b/song.mp3")), library.getKeysBySize("100"));
+        assertEquals(Integer.valueOf(0), library.rekeyByLocation());
+    }
+
+    /**
+     * This method tests that library is read back from each written format.
+     * 
+     * @throws IOException
+     */
+    public void testRoundTrip() throws IOException {
+        Library library = createLibrary();
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        library.writeTo(json, compressed, binary);
+
+        assertLibrary(library, Library.readFrom(new ByteArrayInputStream(json
+                .toByteArray())));
+
+        byte[] decompressed = IOUtils.toByteArray(new GZIPInputStream(
+                new ByteArrayInputStream(compressed.toByteArray())));
+        assertTrue(Arrays.equals(json.toByteArray(), decompressed));
+
+        BinaryLibraryReader reader = new BinaryLibraryReader(
+                new ByteArrayInputStream(binary.toByteArray()));
+        assertLibrary(library, reader.readLibrary());
+        reader.close();
+
+        // The library read from JSON is written the same way again.
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        Library.readFrom(new ByteArrayInputStream(json.toByteArray()))
+                .writeTo(again);
+        assertEquals(json.toString(Library.CHARSET),
+                again.toString(Library.CHARSET));
+    }
+
+    /**
+     * This method tests that unknown values of JSON library and invalid times
+     * of directories are skipped, and numbers are read as strings.
+     * 
+     * @throws IOException
+     */
+    public void testReadUnknownValues() throws IOException {
+        String json = "{\"version\": 3, \"list\": [1, \"a]\", {\"b\": null}],"
+                + " \"_directories\": {\"/music/\": 1000, \"/a/\": \"x\","
+                + " \"/b/\": null},"
+                + " \"/a.mp3\": {\"title\": \"A\\u0105\", \"size\": 1234,"
+                + " \"tags\": {\"genre\": \"Rock\"}, \"year\": null}}";
+        Library library = Library.readFrom(new ByteArrayInputStream(json
+                .getBytes(Library.CHARSET)));
+
+        assertEquals(Integer.valueOf(1), library.size());
+        assertEquals(Long.valueOf(1000L),
+                library.getDirectoryModified("/music/"));
+        assertNull(library.getDirectoryModified("/a/"));
+        assertNull(library.getDirectoryModified("/b/"));
+        TrackEntry entry = library.get("/a.mp3");
+        assertEquals("A\u0105", entry.getTitle());
+        assertEquals("1234", entry.getSize());
+        assertEquals("", entry.getYear());
+        assertEquals("", entry.getFingerprint());
+    }
+
+    /**
+     * This method tests reading of binary library in version 1, where
+     * entries have no fingerprints.
+     * 
+     * @throws IOException
+     */
+    public void testReadVersion1() throws IOException {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        binary.write(BinaryLibraryWriter.MAGIC);
+        binary.write(1);
+        // One comment value and no directories.
+        binary.write(1);
+        writeString(binary, "server");
+        writeString(binary, "ftp://localhost");
+        binary.write(0);
+        binary.write(2);
+
+        for (Integer i = 1; i <= 2; i++) {
+            writeString(binary, "/track" + i + ".mp3");
+            writeString(binary, "Title " + i);
+
+            // The second entry refers to shared strings of the first one.
+            if (i == 1) {
+                binary.write(0);
+                writeString(binary, "Artist");
+                binary.write(0);
+                writeString(binary, "2026");
+                binary.write(0);
+                writeString(binary, "Album");
+            } else {
+                binary.write(1);
+                binary.write(2);
+                binary.write(3);
+            }
+
+            writeString(binary, "00:03:00");
+
+            if (i == 1) {
+                binary.write(0);
+                writeString(binary, "128");
+            } else {
+                binary.write(4);
+            }
+
+            writeString(binary, "100" + i);
+            writeString(binary, "track" + i + ".mp3");
+
+            if (i == 1) {
+                binary.write(0);
+                writeString(binary, "/");
+            } else {
+                binary.write(5);
+            }
+
+            binary.write(5);
+            writeString(binary, "/track" + i + ".mp3");
+            writeString(binary, "1000");
+        }
+
+        Library library = new BinaryLibraryReader(new ByteArrayInputStream(
+                binary.toByteArray())).readLibrary();
+
+        assertEquals("ftp://localhost", library.getComment().get("server"));
+        assertEquals(Integer.valueOf(2), library.size());
+        TrackEntry entry = library.get("/track2.mp3");
+        assertEquals("Title 2", entry.getTitle());
+        assertEquals("Artist", entry.getArtist());
+        assertEquals("2026", entry.getYear());
+        assertEquals("Album", entry.getAlbum());
+        assertEquals("128", entry.getBitRate());
+        assertEquals("/", entry.getDirectory());
+        assertEquals("/", entry.getWebDirectory());
+        assertEquals("1000", entry.getModified());
+        assertEquals("", entry.getFingerprint());
+
+        // The library read from version 1 is written in current version.
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        library.writeTo(new ByteArrayOutputStream(), null, written);
+        assertEquals(BinaryLibraryWriter.VERSION.intValue(),
+                written.toByteArray()[BinaryLibraryWriter.MAGIC.length]);
+        assertLibrary(library, new BinaryLibraryReader(
+                new ByteArrayInputStream(written.toByteArray())).readLibrary());
+    }
+
+    /**
+     * This method tests that binary library of unknown version or other file
+     * is not read.
+     */
+    public void testReadUnsupported() {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        binary.write(BinaryLibraryWriter.MAGIC, 0,
+                BinaryLibraryWriter.MAGIC.length);
+        binary.write(BinaryLibraryWriter.VERSION + 1);
+
+        for (byte[] bytes : new byte[][] { binary.toByteArray(),
+                "{\"a\": 1}".getBytes() }) {
+            try {
+                new BinaryLibraryReader(new ByteArrayInputStream(bytes))
+                        .readLibrary();
+                fail("Unsupported library was read");
+            } catch (IOException ioe) {
+                // Expected.
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests reading of ID3v2 text frames and MPEG audio headers by
+ * {@link MP3HeaderParser}. The files are built in memory from frame headers
+ * with silent content.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class MP3HeaderParserTest extends TestCase {
+
+    /**
+     * The header of MPEG 1 Layer III frame, 128 kbps, 44100 Hz, stereo.
+     */
+    private final static int CBR_128 = 0xfffb9000;
+
+    /**
+     * The header of MPEG 1 Layer III frame, 160 kbps, 44100 Hz, stereo.
+     */
+    private final static int CBR_160 = 0xfffba000;
+
+    /**
+     * The offset of Xing/Info header in stereo MPEG 1 frame.
+     */
+    private final static int XING_OFFSET = 36;
+
+    /**
+     * This method creates audio frame.
+     * 
+     * @param header
+     *            The frame header.
+     * @return The frame with zero content.
+     */
+    private static byte[] createFrame(int header) {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(0, header);
+        byte[] frame = new byte[MP3HeaderParser.FrameHeader.parse(buffer,
+                0).frameLength];
+        ByteBuffer.wrap(frame).putInt(header);
+
+        return frame;
+    }
+
+    /**
+     * This method creates ID3v2 tag.
+     * 
+     * @param version
+     *            The major version of tag.
+     * @param flags
+     *            The flags of tag.
+     * @param frames
+     *            The frames of tag.
+     * @param padding
+     *            The amount of zero bytes after frames.
+     * @return The tag with header.
+     */
+    private static byte[] createTag(int version, int flags, byte[] frames,
+            int padding) {
+        int size = frames.length + padding;
+        ByteBuffer tag = ByteBuffer.allocate(10 + size);
+        tag.put(new byte[] { 'I', 'D', '3', (byte) version, 0, (byte) flags });
+        tag.put(toSynchsafe(size));
+        tag.put(frames);
+
+        return tag.array();
+    }
+
+    /**
+     * This method creates text frame of ID3v2 tag.
+     * 
+     * @param version
+     *            The major version of tag.
+     * @param id
+     *            The identifier of frame.
+     * @param encoding
+     *            The encoding byte of frame.
+     * @param text
+     *            The encoded text.
+     * @return The frame with header.
+     */
+    private static byte[] createTextFrame(int version, String id,
+            int encoding, byte[] text) {
+        return createFrame(version, id, concat(new byte[] { (byte) encoding },
+                text));
+    }
+
+    /**
+     * This method creates frame of ID3v2 tag.
+     * 
+     * @param version
+     *            The major version of tag.
+     * @param id
+     *            The identifier of frame.
+     * @param content
+     *            The content of frame.
+     * @return The frame with header.
+     */
+    private static byte[] createFrame(int version, String id, byte[] content) {
+        ByteBuffer header = ByteBuffer.allocate(version == 2 ? 6 : 10);
+        header.put(id.getBytes());
+
+        if (version == 2) {
+            header.put((byte) (content.length >> 16));
+            header.put((byte) (content.length >> 8));
+            header.put((byte) content.length);
+        } else if (version == 3) {
+            header.putInt(content.length);
+        } else {
+            header.put(toSynchsafe(content.length));
+        }
+
+        return concat(header.array(), content);
+    }
+
+    /**
+     * This method concatenates arrays.
+     * 
+     * @param parts
+     * @return The concatenated array.
+     */
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        for (byte[] part : parts) {
+            result.write(part, 0, part.length);
+        }
+
+        return result.toByteArray();
+    }
+
+    /**
+     * This method parses content of file.
+     * 
+     * @param content
+     * @return The information about file.
+     * @throws IOException
+     */
+    private static AudioInformation parse(byte[] content) throws IOException {
+        return MP3HeaderParser.parse(AudioData.fromStream(
+                new ByteArrayInputStream(content), (long) content.length));
+    }
+
+    /**
+     * This method repeats frames.
+     * 
+     * @param frames
+     *            The frames, which are repeated in order.
+     * @param count
+     *            The amount of frames.
+     * @return The audio part of file.
+     */
+    private static byte[] repeat(byte[][] frames, int count) {
+        ByteArrayOutputStream audio = new ByteArrayOutputStream();
+
+        for (int i = 0; i < count; i++) {
+            byte[] frame = frames[i % frames.length];
+            audio.write(frame, 0, frame.length);
+        }
+
+        return audio.toByteArray();
+    }
+
+    /**
+     * This method encodes synchsafe integer.
+     * 
+     * @param value
+     * @return The four bytes with seven bits each.
+     */
+    private static byte[] toSynchsafe(int value) {
+        return new byte[] { (byte) ((value >> 21) & 0x7f),
+                (byte) ((value >> 14) & 0x7f), (byte) ((value >> 7) & 0x7f),
+                (byte) (value & 0x7f) };
+    }
+
+    /**
+     * This method inserts zero byte after each 0xFF.
+     * 
+     * @param bytes
+     * @return The unsynchronised bytes.
+     */
+    private static byte[] unsynchronise(byte[] bytes) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+
+        for (byte value : bytes) {
+            result.write(value);
+
+            if (value == (byte) 0xff) {
+                result.write(0);
+            }
+        }
+
+        return result.toByteArray();
+    }
+
+    /**
+     * This method tests estimate of bit rate of file with constant bit rate
+     * and without header with frame count.
+     * 
+     * @throws IOException
+     */
+    public void testConstantBitRate() throws IOException {
+        byte[] frame = createFrame(CBR_128);
+        AudioInformation information = parse(repeat(new byte[][] { frame },
+                1000));
+
+        assertNull(information.getTitle());
+        assertEquals("128", information.getBitRate());
+        // 1000 frames of 417 bytes at 128 kbps.
+        assertEquals(Integer.valueOf(26), information.getTrackLength());
+    }
+
+    /**
+     * This method tests values of parsed frame headers.
+     */
+    public void testFrameHeader() {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        MP3HeaderParser.FrameHeader frame = MP3HeaderParser.FrameHeader.parse(
+                buffer.putInt(0, CBR_128), 0);
+        assertEquals(3, frame.layer);
+        assertEquals(128, frame.bitRate);
+        assertEquals(44100, frame.sampleRate);
+        assertEquals(417, frame.frameLength);
+        assertEquals(1152, frame.getSamplesPerFrame());
+
+        // MPEG 2 Layer III, 80 kbps, 22050 Hz, with padding.
+        frame = MP3HeaderParser.FrameHeader.parse(buffer.putInt(0, 0xfff39200),
+                0);
+        assertEquals(80, frame.bitRate);
+        assertEquals(22050, frame.sampleRate);
+        assertEquals(262, frame.frameLength);
+        assertEquals(576, frame.getSamplesPerFrame());
+
+        // Free, bad bit rate, reserved version and missing sync.
+        assertNull(MP3HeaderParser.FrameHeader.parse(
+                buffer.putInt(0, 0xfffb0000), 0));
+        assertNull(MP3HeaderParser.FrameHeader.parse(
+                buffer.putInt(0, 0xfffbf000), 0));
+        assertNull(MP3HeaderParser.FrameHeader.parse(
+                buffer.putInt(0, 0xffeb9000), 0));
+        assertNull(MP3HeaderParser.FrameHeader.parse(
+                buffer.putInt(0, 0x7ffb9000), 0));
+    }
+
+    /**
+     * This method tests Info header of file with constant bit rate.
+     * 
+     * @throws IOException
+     */
+    public void testInfoHeader() throws IOException {
+        byte[] first = createFrame(CBR_128);
+        ByteBuffer.wrap(first, XING_OFFSET, 12).put("Info".getBytes())
+                .putInt(0x01).putInt(1020);
+        AudioInformation information = parse(concat(first,
+                repeat(new byte[][] { createFrame(CBR_128) }, 10)));
+
+        assertEquals("128", information.getBitRate());
+        assertEquals(Integer.valueOf(27), information.getTrackLength());
+    }
+
+    /**
+     * This method tests that file without audio frames is not parsed.
+     * 
+     * @throws IOException
+     */
+    public void testNoAudio() throws IOException {
+        byte[] content = new byte[8192];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 127);
+        }
+
+        assertNull(parse(content));
+    }
+
+    /**
+     * This method tests text frames of ID3v2.2 tag.
+     * 
+     * @throws IOException
+     */
+    public void testTagVersion2() throws IOException {
+        byte[] frames = concat(
+                createTextFrame(2, "TT2", 0, "Title".getBytes("ISO-8859-1")),
+                createTextFrame(2, "TP1", 0, "Artist".getBytes("ISO-8859-1")),
+                createTextFrame(2, "TAL", 0, "Album".getBytes("ISO-8859-1")),
+                createTextFrame(2, "TYE", 0, "1999".getBytes("ISO-8859-1")));
+        AudioInformation information = parse(concat(createTag(2, 0, frames,
+                16), repeat(new byte[][] { createFrame(CBR_128) }, 20)));
+
+        assertEquals("Title", information.getTitle());
+        assertEquals("Artist", information.getArtist());
+        assertEquals("Album", information.getAlbum());
+        assertEquals("1999", information.getYear());
+    }
+
+    /**
+     * This method tests text frames of ID3v2.3 tag in each encoding. The
+     * picture before text frames is skipped.
+     * 
+     * @throws IOException
+     */
+    public void testTagVersion3() throws IOException {
+        byte[] frames = concat(
+                createFrame(3, "APIC", new byte[5000]),
+                createTextFrame(3, "TIT2", 0,
+                        "Caf\u00e9\u0000".getBytes("ISO-8859-1")),
+                createTextFrame(3, "TPE1", 1,
+                        "G\u0119\u015bl\u0105".getBytes("UTF-16")),
+                createTextFrame(3, "TALB", 3,
+                        "Ja\u017a\u0144".getBytes("UTF-8")),
+                createTextFrame(3, "TYER", 2, "2026".getBytes("UTF-16BE")));
+        AudioInformation information = parse(concat(createTag(3, 0, frames,
+                100), repeat(new byte[][] { createFrame(CBR_128) }, 20)));
+
+        assertEquals("Caf\u00e9", information.getTitle());
+        assertEquals("G\u0119\u015bl\u0105", information.getArtist());
+        assertEquals("Ja\u017a\u0144", information.getAlbum());
+        assertEquals("2026", information.getYear());
+        assertEquals("128", information.getBitRate());
+    }
+
+    /**
+     * This method tests text frames of ID3v2.4 tag, where year is taken from
+     * recording time.
+     * 
+     * @throws IOException
+     */
+    public void testTagVersion4() throws IOException {
+        byte[] frames = concat(
+                createTextFrame(4, "TIT2", 3, "Title".getBytes("UTF-8")),
+                createTextFrame(4, "TDRC", 3, "2026-10-18".getBytes("UTF-8")));
+        AudioInformation information = parse(concat(createTag(4, 0, frames,
+                0), repeat(new byte[][] { createFrame(CBR_128) }, 20)));
+
+        assertEquals("Title", information.getTitle());
+        assertNull(information.getArtist());
+        assertEquals("2026", information.getYear());
+    }
+
+    /**
+     * This method tests ID3v2.3 tag with unsynchronisation, where zero bytes
+     * are inserted after each 0xFF, and sizes of frames do not count them.
+     * 
+     * @throws IOException
+     */
+    public void testUnsynchronisedTag() throws IOException {
+        byte[] frames = concat(
+                createTextFrame(3, "TIT2", 0, new byte[] { 'A', (byte) 0xff,
+                        (byte) 0xff, 'B' }),
+                createTextFrame(3, "TPE1", 0, "Artist".getBytes("ISO-8859-1")));
+        AudioInformation information = parse(concat(createTag(3, 0x80,
+                unsynchronise(frames), 0), repeat(
+                new byte[][] { createFrame(CBR_128) }, 20)));
+
+        assertEquals("A\u00ff\u00ffB", information.getTitle());
+        assertEquals("Artist", information.getArtist());
+    }
+
+    /**
+     * This method tests estimate of bit rate of file with variable bit rate
+     * and without header with frame count.
+     * 
+     * @throws IOException
+     */
+    public void testVariableBitRate() throws IOException {
+        AudioInformation information = parse(repeat(new byte[][] {
+                createFrame(CBR_128), createFrame(CBR_160) }, 1000));
+        String bitRate = information.getBitRate();
+
+        // The samples may end with either frame, so average is not exact.
+        assertTrue(bitRate.startsWith("~"));
+        assertTrue(Math.abs(Integer.valueOf(bitRate.substring(1)) - 144) <= 2);
+        assertEquals(Integer.valueOf(26), information.getTrackLength());
+    }
+
+    /**
+     * This method tests VBRI header.
+     * 
+     * @throws IOException
+     */
+    public void testVbriHeader() throws IOException {
+        byte[] first = createFrame(CBR_128);
+        ByteBuffer.wrap(first, 36, 18).put("VBRI".getBytes())
+                .putShort((short) 1).putShort((short) 0).putShort((short) 0)
+                .putInt(100 * 417).putInt(1020);
+        AudioInformation information = parse(concat(first,
+                repeat(new byte[][] { createFrame(CBR_128) }, 10)));
+
+        assertTrue(information.getBitRate().startsWith("~"));
+        assertEquals(Integer.valueOf(27), information.getTrackLength());
+    }
+
+    /**
+     * This method tests Xing header with LAME tag, where encoder delay and
+     * padding are not counted to track length.
+     * 
+     * @throws IOException
+     */
+    public void testXingHeader() throws IOException {
+        byte[] first = createFrame(CBR_128);
+        ByteBuffer xing = ByteBuffer.wrap(first, XING_OFFSET, 40);
+        xing.put("Xing".getBytes()).putInt(0x03).putInt(1020).putInt(20 * 417);
+        AudioInformation information = parse(concat(first,
+                repeat(new byte[][] { createFrame(CBR_160) }, 30)));
+
+        assertEquals(Integer.valueOf(27), information.getTrackLength());
+        // 19 frames of 417 bytes in 26.64 seconds.
+        assertEquals("~2", information.getBitRate());
+
+        // The maximum delay and padding, 8190 samples.
+        xing.put("LAME".getBytes()).position(xing.position() + 17);
+        xing.put((byte) 0xff).put((byte) 0xff).put((byte) 0xff);
+        information = parse(concat(first,
+                repeat(new byte[][] { createFrame(CBR_160) }, 30)));
+
+        assertEquals(Integer.valueOf(26), information.getTrackLength());
+    }
+}
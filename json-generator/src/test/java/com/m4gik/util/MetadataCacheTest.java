@@ -0,0 +1,181 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests storing of entries in {@link MetadataCache}, when cache is
+ * closed and opened again, also when cache file ends with incomplete record.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class MetadataCacheTest extends TestCase {
+
+    /**
+     * The server of files.
+     */
+    private final static String ORIGIN = "ftp://localhost";
+
+    /**
+     * The start of title of each entry, with characters outside ASCII.
+     */
+    private final static String TITLE = "Za\u017c\u00f3\u0142\u0107 ";
+
+    /**
+     * The temporary cache file.
+     */
+    private File file;
+
+    /**
+     * This method creates entry of file.
+     * 
+     * @param location
+     *            The location of file.
+     * @param size
+     *            The size of file.
+     * @return The entry of file.
+     */
+    private TrackEntry createEntry(String location, Long size) {
+        TrackEntry entry = new TrackEntry();
+        entry.setTitle(TITLE + location);
+        entry.setArtist("Artist");
+        entry.setAlbum("Album");
+        entry.setYear("2026");
+        entry.setSize(size.toString());
+        entry.setLocation(location);
+        entry.setModified("1000");
+
+        return entry;
+    }
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("audio-search", ".cache");
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * This method tests that entries appended to compacted cache are read
+     * after cache is opened again.
+     */
+    public void testCompact() {
+        MetadataCache cache = new MetadataCache(file, ORIGIN);
+        cache.open();
+
+        for (Integer i = 0; i < 2000; i++) {
+            cache.put("/a.mp3", createEntry("/a.mp3", i.longValue()));
+        }
+
+        cache.put("/b.mp3", createEntry("/b.mp3", 20L));
+        Long length = file.length();
+        cache.close();
+        assertTrue(file.length() < length / 100);
+
+        cache.open();
+        assertEquals("1999", cache.get("/a.mp3", 1999L, 1000L).getSize());
+        assertNotNull(cache.get("/b.mp3", 20L, 1000L));
+        cache.put("/c.mp3", createEntry("/c.mp3", 30L));
+        cache.close();
+
+        cache.open();
+        assertNotNull(cache.get("/c.mp3", 30L, 1000L));
+        cache.close();
+    }
+
+    /**
+     * This method tests that cache of other server is not used.
+     */
+    public void testOtherOrigin() {
+        MetadataCache cache = new MetadataCache(file, ORIGIN);
+        cache.open();
+        cache.put("/a.mp3", createEntry("/a.mp3", 10L));
+        cache.close();
+
+        cache = new MetadataCache(file, "ftp://other");
+        cache.open();
+        assertNull(cache.get("/a.mp3", 10L, 1000L));
+        cache.close();
+    }
+
+    /**
+     * This method tests that entries are read before and after cache is
+     * opened again, and only if file has not changed.
+     */
+    public void testRoundTrip() {
+        MetadataCache cache = new MetadataCache(file, ORIGIN);
+        cache.open();
+        cache.put("/a.mp3", createEntry("/a.mp3", 10L));
+        cache.put("/b.mp3", createEntry("/b.mp3", 20L));
+        assertEquals(TITLE + "/a.mp3", cache.get("/a.mp3", 10L, 1000L)
+                .getTitle());
+        cache.close();
+
+        cache.open();
+        TrackEntry entry = cache.get("/a.mp3", 10L, 1000L);
+        assertEquals(TITLE + "/a.mp3", entry.getTitle());
+        assertEquals("Artist", entry.getArtist());
+        assertEquals("2026", entry.getYear());
+        assertEquals("/a.mp3", entry.getLocation());
+        assertEquals(TITLE + "/b.mp3", cache.get("/b.mp3", 20L, null)
+                .getTitle());
+        assertNull(cache.get("/a.mp3", 11L, 1000L));
+        assertNull(cache.get("/a.mp3", 10L, 2000L));
+        assertNull(cache.get("/c.mp3", 10L, 1000L));
+
+        // The newer record supersedes the mapped one.
+        cache.put("/a.mp3", createEntry("/a.mp3", 11L));
+        assertNotNull(cache.get("/a.mp3", 11L, 1000L));
+        cache.close();
+
+        cache.open();
+        assertNull(cache.get("/a.mp3", 10L, 1000L));
+        assertNotNull(cache.get("/a.mp3", 11L, 1000L));
+        cache.close();
+    }
+
+    /**
+     * This method tests that incomplete last record is removed, when cache is
+     * opened, and the previous records are kept.
+     * 
+     * @throws IOException
+     */
+    public void testTruncatedTail() throws IOException {
+        MetadataCache cache = new MetadataCache(file, ORIGIN);
+        cache.open();
+        cache.put("/a.mp3", createEntry("/a.mp3", 10L));
+        cache.put("/b.mp3", createEntry("/b.mp3", 20L));
+        cache.close();
+
+        RandomAccessFile cacheFile = new RandomAccessFile(file, "rw");
+
+        try {
+            cacheFile.setLength(cacheFile.length() - 5);
+        } finally {
+            cacheFile.close();
+        }
+
+        cache.open();
+        assertNotNull(cache.get("/a.mp3", 10L, 1000L));
+        assertNull(cache.get("/b.mp3", 20L, 1000L));
+        cache.put("/c.mp3", createEntry("/c.mp3", 30L));
+        cache.close();
+
+        cache.open();
+        assertNotNull(cache.get("/a.mp3", 10L, 1000L));
+        assertNotNull(cache.get("/c.mp3", 30L, 1000L));
+        cache.close();
+    }
+}
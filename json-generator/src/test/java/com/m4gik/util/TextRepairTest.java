@@ -0,0 +1,90 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.util;
+
+import java.io.UnsupportedEncodingException;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests repair of polish letters by {@link TextRepair}, in text
+ * written in windows-1250 or ISO-8859-2 and read as ISO-8859-1.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class TextRepairTest extends TestCase {
+
+    /**
+     * The text with all polish letters, "Zażółć gęślą jaźń ĄĆĘŁŃÓŚŹŻ".
+     */
+    private final static String POLISH = "Za\u017c\u00f3\u0142\u0107 "
+            + "g\u0119\u015bl\u0105 ja\u017a\u0144 "
+            + "\u0104\u0106\u0118\u0141\u0143\u00d3\u015a\u0179\u017b";
+
+    /**
+     * This method encodes text in given encoding and decodes it as
+     * ISO-8859-1, like text frame with wrong encoding.
+     * 
+     * @param text
+     * @param charsetName
+     *            The real encoding of text.
+     * @return The text with wrong characters.
+     * @throws UnsupportedEncodingException
+     */
+    private static String misread(String text, String charsetName)
+            throws UnsupportedEncodingException {
+        return new String(text.getBytes(charsetName), "ISO-8859-1");
+    }
+
+    /**
+     * This method tests that ASCII text is returned without copy.
+     */
+    public void testAscii() {
+        String text = "Artist - Title (2026) [Live]";
+
+        assertSame(text, TextRepair.repair(text));
+        assertEquals("", TextRepair.repair(""));
+        assertEquals("", TextRepair.repair(null));
+    }
+
+    /**
+     * This method tests that text decoded from UTF-16 or UTF-8 frame, and
+     * text with only letters shared by all encodings, is not changed.
+     */
+    public void testCorrectText() {
+        String latin = "Caf\u00e9 \u00d3 \u00f3";
+
+        assertSame(POLISH, TextRepair.repair(POLISH));
+        assertSame(latin, TextRepair.repair(latin));
+    }
+
+    /**
+     * This method tests repair of text written in ISO-8859-2.
+     * 
+     * @throws UnsupportedEncodingException
+     */
+    public void testIso88592() throws UnsupportedEncodingException {
+        String misread = misread(POLISH, "ISO-8859-2");
+
+        assertFalse(POLISH.equals(misread));
+        assertEquals(POLISH, TextRepair.repair(misread));
+    }
+
+    /**
+     * This method tests repair of text written in windows-1250.
+     * 
+     * @throws UnsupportedEncodingException
+     */
+    public void testWindows1250() throws UnsupportedEncodingException {
+        String misread = misread(POLISH, "windows-1250");
+
+        assertFalse(POLISH.equals(misread));
+        assertEquals(POLISH, TextRepair.repair(misread));
+        assertEquals("\u0141\u00f3d\u017a", TextRepair.repair(misread(
+                "\u0141\u00f3d\u017a", "windows-1250")));
+    }
+}
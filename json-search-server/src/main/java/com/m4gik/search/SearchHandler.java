@@ -0,0 +1,220 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.m4gik.util.JSONLibraryWriter;
+import com.m4gik.util.Library;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * This class answers HTTP queries of search page. The path /search returns
+ * page of entries matching parameters q, artist, year, page and size, the path
+ * /artists returns all distinct artists. Responses are written as JSON
+ * directly to response stream.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchHandler implements HttpHandler {
+
+    /**
+     * The path of query for artists.
+     */
+    public final static String ARTISTS_PATH = "/artists";
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(SearchHandler.class
+            .getName());
+
+    /**
+     * The path of query for entries.
+     */
+    public final static String SEARCH_PATH = "/search";
+
+    /**
+     * This method parses parameters of query string.
+     * 
+     * @param queryString
+     *            The raw query string, may be null.
+     * @return The decoded parameters.
+     * @throws UnsupportedEncodingException
+     */
+    static Map<String, String> parseParameters(String queryString)
+            throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+
+        if (queryString == null) {
+            return parameters;
+        }
+
+        for (String pair : queryString.split("&")) {
+            int separator = pair.indexOf('=');
+
+            if (separator > 0) {
+                parameters.put(
+                        URLDecoder.decode(pair.substring(0, separator),
+                                Library.CHARSET),
+                        URLDecoder.decode(pair.substring(separator + 1),
+                                Library.CHARSET));
+            }
+        }
+
+        return parameters;
+    }
+
+    /**
+     * This method parses number of parameter.
+     * 
+     * @param value
+     *            The value of parameter, may be null.
+     * @param defaultValue
+     *            The value used if parameter is missing or invalid.
+     * @return The number.
+     */
+    private static Integer parseNumber(String value, Integer defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * This method builds query from parameters of request. The year is given
+     * as single year or range "from-to" with optional bounds.
+     * 
+     * @param parameters
+     * @return The query.
+     */
+    static SearchQuery parseQuery(Map<String, String> parameters) {
+        SearchQuery query = new SearchQuery();
+        query.setText(parameters.get("q"));
+        query.setArtist(parameters.get("artist"));
+        query.setPage(parseNumber(parameters.get("page"), 0));
+        query.setSize(parseNumber(parameters.get("size"),
+                SearchQuery.DEFAULT_SIZE));
+        String year = parameters.get("year");
+
+        if (year != null) {
+            int separator = year.indexOf('-');
+
+            if (separator < 0) {
+                query.setFromYear(parseNumber(year, null));
+                query.setToYear(query.getFromYear());
+            } else {
+                query.setFromYear(parseNumber(year.substring(0, separator),
+                        null));
+                query.setToYear(parseNumber(year.substring(separator + 1),
+                        null));
+            }
+        }
+
+        return query;
+    }
+
+    /**
+     * The server with current index.
+     */
+    private final SearchServer server;
+
+    /**
+     * The constructor for {@link SearchHandler}.
+     * 
+     * @param server
+     *            The server with current index.
+     */
+    public SearchHandler(SearchServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            SearchIndex index = server.getIndex();
+            String path = exchange.getRequestURI().getPath();
+
+            if (index == null) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/json; charset=" + Library.CHARSET);
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin",
+                    "*");
+
+            if (path.equals(ARTISTS_PATH)) {
+                exchange.sendResponseHeaders(200, 0);
+                writeArtists(index, new JSONLibraryWriter(
+                        exchange.getResponseBody()));
+            } else if (path.equals(SEARCH_PATH)) {
+                SearchQuery query = parseQuery(parseParameters(exchange
+                        .getRequestURI().getRawQuery()));
+                SearchResult result = index.search(query);
+                exchange.sendResponseHeaders(200, 0);
+                JSONLibraryWriter writer = new JSONLibraryWriter(
+                        exchange.getResponseBody());
+                result.writeTo(writer);
+                writer.close();
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        } catch (IllegalArgumentException iae) {
+            logger.error(iae);
+            logger.debug(iae);
+            exchange.sendResponseHeaders(400, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * This method writes artists of index as array of objects with names.
+     * 
+     * @param index
+     * @param writer
+     * @throws IOException
+     */
+    private void writeArtists(SearchIndex index, JSONLibraryWriter writer)
+            throws IOException {
+        writer.beginObject(null);
+        writer.beginArray("artists");
+
+        for (String artist : index.getArtists()) {
+            writer.beginObject(null);
+            writer.value("name", artist);
+            writer.endObject();
+        }
+
+        writer.endArray();
+        writer.endObject();
+        writer.close();
+    }
+}
@@ -0,0 +1,309 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import com.m4gik.util.Library;
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class keeps inverted index over entries of library. Titles, artists,
+ * albums and directories are split into tokens, which are folded to lower case
+ * letters without diacritics. Each token of query matches all indexed tokens
+ * starting with it, so query may be run on each keystroke. The index is
+ * immutable, new index is built when library changes.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchIndex {
+
+    /**
+     * The distinct artists sorted for display.
+     */
+    private final List<String> artists;
+
+    /**
+     * The entries sorted by title, indexed by document number.
+     */
+    private final TrackEntry[] entries;
+
+    /**
+     * The sorted document numbers for each token, in order of tokens.
+     */
+    private final int[][] postings;
+
+    /**
+     * The sorted distinct tokens of all entries.
+     */
+    private final String[] tokens;
+
+    /**
+     * The years of entries, indexed by document number, zero if unknown.
+     */
+    private final int[] years;
+
+    /**
+     * This method folds text to lower case letters without diacritics.
+     * 
+     * @param text
+     * @return The folded text.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char character = decomposed.charAt(i);
+
+            if (Character.getType(character) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+
+            // The stroke of ł is not decomposed.
+            if (character == 'ł' || character == 'Ł') {
+                character = 'l';
+            }
+
+            folded.append(Character.toLowerCase(character));
+        }
+
+        return folded.toString();
+    }
+
+    /**
+     * This method splits text into folded tokens.
+     * 
+     * @param text
+     *            The text, may be null.
+     * @return The tokens of text.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<String>();
+
+        if (text == null) {
+            return tokens;
+        }
+
+        String folded = fold(text);
+        int start = -1;
+
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean isPart = i < folded.length()
+                    && Character.isLetterOrDigit(folded.charAt(i));
+
+            if (isPart && start < 0) {
+                start = i;
+            } else if (!isPart && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * The constructor for {@link SearchIndex}.
+     * 
+     * @param library
+     *            The library to index.
+     */
+    public SearchIndex(Library library) {
+        List<TrackEntry> sorted = new ArrayList<TrackEntry>(
+                library.getEntries());
+        final Collator collator = Collator.getInstance(new Locale("pl"));
+        Collections.sort(sorted, new Comparator<TrackEntry>() {
+
+            @Override
+            public int compare(TrackEntry first, TrackEntry second) {
+                return collator.compare(String.valueOf(first.getTitle()),
+                        String.valueOf(second.getTitle()));
+            }
+        });
+
+        entries = sorted.toArray(new TrackEntry[sorted.size()]);
+        years = new int[entries.length];
+        Map<String, List<Integer>> index;
+        index = new HashMap<String, List<Integer>>();
+        TreeSet<String> distinctArtists = new TreeSet<String>(collator);
+
+        for (int document = 0; document < entries.length; document++) {
+            TrackEntry entry = entries[document];
+            years[document] = parseYear(entry.getYear());
+
+            if (entry.getArtist() != null && !entry.getArtist().equals("")) {
+                distinctArtists.add(entry.getArtist());
+            }
+
+            List<String> entryTokens = tokenize(entry.getTitle());
+            entryTokens.addAll(tokenize(entry.getArtist()));
+            entryTokens.addAll(tokenize(entry.getAlbum()));
+            entryTokens.addAll(tokenize(entry.getDirectory()));
+
+            for (String token : entryTokens) {
+                List<Integer> documents = index.get(token);
+
+                if (documents == null) {
+                    documents = new ArrayList<Integer>();
+                    index.put(token, documents);
+                }
+
+                // Documents are visited in order, so duplicates are adjacent.
+                if (documents.isEmpty()
+                        || documents.get(documents.size() - 1) != document) {
+                    documents.add(document);
+                }
+            }
+        }
+
+        tokens = index.keySet().toArray(new String[index.size()]);
+        Arrays.sort(tokens);
+        postings = new int[tokens.length][];
+
+        for (int i = 0; i < tokens.length; i++) {
+            List<Integer> documents = index.get(tokens[i]);
+            postings[i] = new int[documents.size()];
+
+            for (int j = 0; j < postings[i].length; j++) {
+                postings[i][j] = documents.get(j);
+            }
+        }
+
+        artists = Collections.unmodifiableList(new ArrayList<String>(
+                distinctArtists));
+    }
+
+    /**
+     * @return The distinct artists sorted for display.
+     */
+    public List<String> getArtists() {
+        return artists;
+    }
+
+    /**
+     * @return The amount of indexed entries.
+     */
+    public Integer getSize() {
+        return entries.length;
+    }
+
+    /**
+     * This method finds documents with token starting with given prefix.
+     * 
+     * @param prefix
+     *            The folded prefix.
+     * @return The set of document numbers.
+     */
+    private BitSet match(String prefix) {
+        BitSet documents = new BitSet(entries.length);
+        int first = Arrays.binarySearch(tokens, prefix);
+
+        if (first < 0) {
+            first = -first - 1;
+        }
+
+        for (int i = first; i < tokens.length; i++) {
+            if (!tokens[i].startsWith(prefix)) {
+                break;
+            }
+
+            for (int document : postings[i]) {
+                documents.set(document);
+            }
+        }
+
+        return documents;
+    }
+
+    /**
+     * This method parses year from tag.
+     * 
+     * @param year
+     * @return The year, or zero if it is not a number.
+     */
+    private int parseYear(String year) {
+        int value = 0;
+
+        if (year == null) {
+            return value;
+        }
+
+        for (int i = 0; i < year.length() && i < 4; i++) {
+            char character = year.charAt(i);
+
+            if (character < '0' || character > '9') {
+                return 0;
+            }
+
+            value = value * 10 + (character - '0');
+        }
+
+        return value;
+    }
+
+    /**
+     * This method runs query on index.
+     * 
+     * @param query
+     *            The query.
+     * @return The page of results with total amount of matching entries.
+     */
+    public SearchResult search(SearchQuery query) {
+        BitSet matches = null;
+
+        for (String token : tokenize(query.getText())) {
+            BitSet documents = match(token);
+
+            if (matches == null) {
+                matches = documents;
+            } else {
+                matches.and(documents);
+            }
+
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+
+        if (matches == null) {
+            matches = new BitSet(entries.length);
+            matches.set(0, entries.length);
+        }
+
+        Integer first = query.getPage() * query.getSize();
+        List<TrackEntry> page = new ArrayList<TrackEntry>(query.getSize());
+        Integer total = 0;
+
+        int document = matches.nextSetBit(0);
+
+        for (; document >= 0; document = matches.nextSetBit(document + 1)) {
+            if (!query.accepts(entries[document], years[document])) {
+                continue;
+            }
+
+            if (total >= first && page.size() < query.getSize()) {
+                page.add(entries[document]);
+            }
+
+            total++;
+        }
+
+        return new SearchResult(query, total, page);
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class keeps parameters of single query: searched text, optional
+ * filters by artist and range of years, and requested page of results.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchQuery {
+
+    /**
+     * The default amount of results on page.
+     */
+    public final static Integer DEFAULT_SIZE = 20;
+
+    /**
+     * The maximum amount of results on page.
+     */
+    public final static Integer MAX_SIZE = 100;
+
+    /**
+     * The exact artist of results, null for any artist.
+     */
+    private String artist;
+
+    /**
+     * The first year of results, null for no lower bound.
+     */
+    private Integer fromYear;
+
+    /**
+     * The number of page, counted from zero.
+     */
+    private Integer page = 0;
+
+    /**
+     * The amount of results on page.
+     */
+    private Integer size = DEFAULT_SIZE;
+
+    /**
+     * The searched text.
+     */
+    private String text = "";
+
+    /**
+     * The last year of results, null for no upper bound.
+     */
+    private Integer toYear;
+
+    /**
+     * This method checks if entry passes filters of query.
+     * 
+     * @param entry
+     *            The entry matching searched text.
+     * @param year
+     *            The year of entry, zero if unknown.
+     * @return True if entry should be returned.
+     */
+    Boolean accepts(TrackEntry entry, int year) {
+        if (artist != null && !artist.equals(entry.getArtist())) {
+            return false;
+        }
+
+        if (fromYear != null && year < fromYear) {
+            return false;
+        }
+
+        if (toYear != null && (year == 0 || year > toYear)) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the artist
+     */
+    public String getArtist() {
+        return artist;
+    }
+
+    /**
+     * @return the fromYear
+     */
+    public Integer getFromYear() {
+        return fromYear;
+    }
+
+    /**
+     * @return the page
+     */
+    public Integer getPage() {
+        return page;
+    }
+
+    /**
+     * @return the size
+     */
+    public Integer getSize() {
+        return size;
+    }
+
+    /**
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return the toYear
+     */
+    public Integer getToYear() {
+        return toYear;
+    }
+
+    /**
+     * @param artist
+     *            the artist to set, null or empty for any artist
+     */
+    public void setArtist(String artist) {
+        this.artist = artist == null || artist.equals("") ? null : artist;
+    }
+
+    /**
+     * @param fromYear
+     *            the fromYear to set
+     */
+    public void setFromYear(Integer fromYear) {
+        this.fromYear = fromYear;
+    }
+
+    /**
+     * @param page
+     *            the page to set, negative pages are read as first page
+     */
+    public void setPage(Integer page) {
+        this.page = Math.max(page, 0);
+    }
+
+    /**
+     * @param size
+     *            the size to set, limited to {@link #MAX_SIZE}
+     */
+    public void setSize(Integer size) {
+        this.size = Math.min(Math.max(size, 1), MAX_SIZE);
+    }
+
+    /**
+     * @param text
+     *            the text to set
+     */
+    public void setText(String text) {
+        this.text = text == null ? "" : text;
+    }
+
+    /**
+     * @param toYear
+     *            the toYear to set
+     */
+    public void setToYear(Integer toYear) {
+        this.toYear = toYear;
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.m4gik.util.JSONLibraryWriter;
+import com.m4gik.util.TrackEntry;
+
+/**
+ * This class keeps single page of results with total amount of entries
+ * matching query.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchResult {
+
+    /**
+     * The entries on requested page.
+     */
+    private final List<TrackEntry> entries;
+
+    /**
+     * The query of this result.
+     */
+    private final SearchQuery query;
+
+    /**
+     * The total amount of entries matching query.
+     */
+    private final Integer total;
+
+    /**
+     * The constructor for {@link SearchResult}.
+     * 
+     * @param query
+     * @param total
+     * @param entries
+     */
+    public SearchResult(SearchQuery query, Integer total,
+            List<TrackEntry> entries) {
+        this.query = query;
+        this.total = total;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the entries
+     */
+    public List<TrackEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the query
+     */
+    public SearchQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the total
+     */
+    public Integer getTotal() {
+        return total;
+    }
+
+    /**
+     * This method writes result as JSON object with total amount, number and
+     * size of page and array of entries.
+     * 
+     * @param writer
+     *            The writer of JSON.
+     * @throws IOException
+     */
+    public void writeTo(JSONLibraryWriter writer) throws IOException {
+        writer.beginObject(null);
+        writer.value("total", total.longValue());
+        writer.value("page", query.getPage().longValue());
+        writer.value("size", query.getSize().longValue());
+        writer.beginArray("results");
+
+        for (TrackEntry entry : entries) {
+            entry.writeTo(null, writer);
+        }
+
+        writer.endArray();
+        writer.endObject();
+    }
+}
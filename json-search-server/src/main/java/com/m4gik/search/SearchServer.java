@@ -0,0 +1,202 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+import com.m4gik.util.Library;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The main class of search server. This class loads JSON library from file or
+ * URL, builds index over its entries and answers queries of search page over
+ * HTTP, so the page no longer downloads and scans whole library in browser.
+ * The library is optionally reloaded in given interval and new index replaces
+ * the old one without stopping the server.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchServer {
+
+    /**
+     * The amount of threads answering queries.
+     */
+    private final static Integer HANDLER_THREADS = Runtime.getRuntime()
+            .availableProcessors();
+
+    /**
+     * This logger is responsible for the registration of events.
+     */
+    static final Logger logger = LogManager.getLogger(SearchServer.class
+            .getName());
+
+    /**
+     * This method parses arguments and starts the server.
+     * 
+     * @param args
+     *            The location of library, port and optional interval of
+     *            reloading library in seconds.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Użycie: java -jar search-server.jar "
+                    + "<lib.json lub URL> <port> [przeładowanie w sekundach]");
+            return;
+        }
+
+        try {
+            SearchServer server = new SearchServer(toURL(args[0]));
+            server.reload();
+            server.start(Integer.valueOf(args[1]));
+
+            if (args.length > 2) {
+                server.scheduleReload(Long.valueOf(args[2]));
+            }
+
+            System.out.println("Serwer wyszukiwania działa na porcie "
+                    + args[1] + ", liczba plików: "
+                    + server.getIndex().getSize());
+        } catch (IOException ioe) {
+            logger.error(ioe);
+            logger.debug(ioe);
+        }
+    }
+
+    /**
+     * This method converts location of library to URL.
+     * 
+     * @param location
+     *            The path of file or URL.
+     * @return The URL of library.
+     * @throws IOException
+     */
+    private static URL toURL(String location) throws IOException {
+        if (location.contains("://")) {
+            return new URL(location);
+        }
+
+        return new File(location).toURI().toURL();
+    }
+
+    /**
+     * The index of current library, null before first load.
+     */
+    private volatile SearchIndex index;
+
+    /**
+     * The modification time of loaded library, zero if it is unknown.
+     */
+    private Long modified = 0L;
+
+    /**
+     * The location of library.
+     */
+    private final URL url;
+
+    /**
+     * The constructor for {@link SearchServer}.
+     * 
+     * @param url
+     *            The location of library.
+     */
+    public SearchServer(URL url) {
+        this.url = url;
+    }
+
+    /**
+     * @return The index of current library, null before first load.
+     */
+    public SearchIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * This method loads library and replaces index, if library was modified
+     * since last load.
+     * 
+     * @throws IOException
+     */
+    public synchronized void reload() throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setIfModifiedSince(modified);
+        // The stream is closed also when library is not read, so connection
+        // is released and may be reused.
+        InputStream inputStream = connection.getInputStream();
+
+        try {
+            if (connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection).getResponseCode()
+                    == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return;
+            }
+
+            Long lastModified = connection.getLastModified();
+
+            if (index != null && lastModified != 0
+                    && lastModified.equals(modified)) {
+                return;
+            }
+
+            Library library = Library.readFrom(inputStream);
+            index = new SearchIndex(library);
+            modified = lastModified;
+            logger.info("Loaded library with " + index.getSize() + " files");
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * This method reloads library in given interval.
+     * 
+     * @param seconds
+     *            The interval of reloading.
+     */
+    public void scheduleReload(Long seconds) {
+        ScheduledExecutorService executor = Executors
+                .newSingleThreadScheduledExecutor();
+        executor.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    reload();
+                } catch (IOException ioe) {
+                    logger.error(ioe);
+                    logger.debug(ioe);
+                }
+            }
+        }, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * This method starts HTTP server on given port.
+     * 
+     * @param port
+     * @throws IOException
+     */
+    public void start(Integer port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        SearchHandler handler = new SearchHandler(this);
+        server.createContext(SearchHandler.SEARCH_PATH, handler);
+        server.createContext(SearchHandler.ARTISTS_PATH, handler);
+        server.setExecutor(Executors.newFixedThreadPool(HANDLER_THREADS));
+        server.start();
+    }
+}
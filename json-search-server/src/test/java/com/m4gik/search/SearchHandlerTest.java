@@ -0,0 +1,115 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests reading of query from parameters of request by
+ * {@link SearchHandler}.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchHandlerTest extends TestCase {
+
+    /**
+     * This method reads query with given year parameter.
+     * 
+     * @param year
+     *            The year parameter, may be null.
+     * @return The query.
+     */
+    private static SearchQuery parseYear(String year) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("year", year);
+
+        return SearchHandler.parseQuery(parameters);
+    }
+
+    /**
+     * This method tests that missing parameters give first page of default
+     * size, and wrong numbers are replaced by defaults.
+     */
+    public void testDefaults() {
+        SearchQuery query = SearchHandler.parseQuery(
+                new HashMap<String, String>());
+
+        assertEquals("", query.getText());
+        assertNull(query.getArtist());
+        assertEquals(Integer.valueOf(0), query.getPage());
+        assertEquals(SearchQuery.DEFAULT_SIZE, query.getSize());
+        assertNull(query.getFromYear());
+        assertNull(query.getToYear());
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("page", "-3");
+        parameters.put("size", "1000");
+        parameters.put("artist", "");
+        query = SearchHandler.parseQuery(parameters);
+        assertEquals(Integer.valueOf(0), query.getPage());
+        assertEquals(SearchQuery.MAX_SIZE, query.getSize());
+        assertNull(query.getArtist());
+
+        parameters.put("size", "many");
+        assertEquals(SearchQuery.DEFAULT_SIZE, SearchHandler.parseQuery(
+                parameters).getSize());
+    }
+
+    /**
+     * This method tests that parameters are decoded from query string.
+     * 
+     * @throws UnsupportedEncodingException
+     */
+    public void testParameters() throws UnsupportedEncodingException {
+        Map<String, String> parameters = SearchHandler.parseParameters(
+                "q=%C5%81%C3%B3d%C5%BA+noc&artist=Kult&page=2&empty=");
+
+        assertEquals("\u0141\u00f3d\u017a noc", parameters.get("q"));
+        assertEquals("Kult", parameters.get("artist"));
+        assertEquals("2", parameters.get("page"));
+        assertEquals("", parameters.get("empty"));
+        assertTrue(SearchHandler.parseParameters(null).isEmpty());
+    }
+
+    /**
+     * This method tests year given as single year and as range with both,
+     * either or none of bounds.
+     */
+    public void testYears() {
+        SearchQuery query = parseYear("1991");
+        assertEquals(Integer.valueOf(1991), query.getFromYear());
+        assertEquals(Integer.valueOf(1991), query.getToYear());
+
+        query = parseYear(" 1980 - 1989 ");
+        assertEquals(Integer.valueOf(1980), query.getFromYear());
+        assertEquals(Integer.valueOf(1989), query.getToYear());
+
+        query = parseYear("2000-");
+        assertEquals(Integer.valueOf(2000), query.getFromYear());
+        assertNull(query.getToYear());
+
+        query = parseYear("-1999");
+        assertNull(query.getFromYear());
+        assertEquals(Integer.valueOf(1999), query.getToYear());
+
+        query = parseYear("-");
+        assertNull(query.getFromYear());
+        assertNull(query.getToYear());
+
+        query = parseYear("dawno");
+        assertNull(query.getFromYear());
+        assertNull(query.getToYear());
+
+        query = parseYear(null);
+        assertNull(query.getFromYear());
+        assertNull(query.getToYear());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Project audio-search.
+ * Copyright Michał Szczygieł.
+ * Created at Oct 18, 2026.
+ */
+package com.m4gik.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.m4gik.util.Library;
+import com.m4gik.util.TrackEntry;
+
+import junit.framework.TestCase;
+
+/**
+ * This class tests folding and tokenizing of text by {@link SearchIndex}, and
+ * queries with prefixes of tokens, filters and pages.
+ * 
+ * @author m4gik <michal.szczygiel@wp.pl>
+ * 
+ */
+public class SearchIndexTest extends TestCase {
+
+    /**
+     * The title with letters folded to other letters, "Łódź nocną porą".
+     */
+    private final static String LODZ = "\u0141\u00f3d\u017a "
+            + "nocn\u0105 por\u0105";
+
+    /**
+     * The index of few entries.
+     */
+    private SearchIndex index;
+
+    /**
+     * This method creates entry of file.
+     * 
+     * @param title
+     * @param artist
+     * @param year
+     * @return The entry of file.
+     */
+    private static TrackEntry createEntry(String title, String artist,
+            String year) {
+        TrackEntry entry = new TrackEntry();
+        entry.setTitle(title);
+        entry.setArtist(artist);
+        entry.setYear(year);
+        entry.setAlbum("Album");
+        entry.setDirectory("/music/");
+        entry.setLocation("/music/" + title + ".mp3");
+
+        return entry;
+    }
+
+    /**
+     * This method creates query of given text.
+     * 
+     * @param text
+     * @return The query.
+     */
+    private static SearchQuery query(String text) {
+        SearchQuery query = new SearchQuery();
+        query.setText(text);
+
+        return query;
+    }
+
+    /**
+     * This method runs query and gets titles of results.
+     * 
+     * @param query
+     * @return The titles of results on requested page.
+     */
+    private List<String> search(SearchQuery query) {
+        List<String> titles = new ArrayList<String>();
+
+        for (TrackEntry entry : index.search(query).getEntries()) {
+            titles.add(entry.getTitle());
+        }
+
+        return titles;
+    }
+
+    @Override
+    protected void setUp() {
+        Library library = new Library();
+
+        for (TrackEntry entry : new TrackEntry[] {
+                createEntry(LODZ, "Kult", "1991"),
+                createEntry("Arahja", "Kult", "1989"),
+                createEntry("Lodowa kr\u00f3lowa", "Lady Pank", "2004"),
+                createEntry("Kryzysowa narzeczona", "Lady Pank", ""),
+                createEntry("Zak\u0142ady", "Kult", "2008/05") }) {
+            library.put(entry.getLocation(), entry);
+        }
+
+        index = new SearchIndex(library);
+    }
+
+    /**
+     * This method tests that text is folded to lower case letters without
+     * diacritics, also letters with stroke.
+     */
+    public void testFold() {
+        assertEquals("zazolc gesla jazn", SearchIndex.fold("Za\u017c\u00f3"
+                + "\u0142\u0107 G\u0119\u015bl\u0105 Ja\u017a\u0144"));
+        assertEquals("lodz", SearchIndex.fold("\u0141\u00f3d\u017a"));
+        assertEquals("cafe", SearchIndex.fold("CAF\u00c9"));
+    }
+
+    /**
+     * This method tests that query with few tokens matches only entries,
+     * which have each of them as prefix of some token, in title, artist,
+     * album or directory.
+     */
+    public void testPrefixes() {
+        assertEquals(Arrays.asList(LODZ), search(query("lod noc")));
+        assertEquals(Arrays.asList("Lodowa kr\u00f3lowa", LODZ),
+                search(query("\u0141OD")));
+        assertEquals(Arrays.asList("Lodowa kr\u00f3lowa"),
+                search(query("lod pank")));
+        assertEquals(Arrays.asList("Arahja"), search(query("kult ara")));
+        assertTrue(search(query("lod arahja")).isEmpty());
+        assertTrue(search(query("xyz")).isEmpty());
+        assertEquals(Integer.valueOf(5), index.search(query("music album"))
+                .getTotal());
+    }
+
+    /**
+     * This method tests that total counts all matching entries, while only
+     * requested page of them is returned.
+     */
+    public void testPages() {
+        SearchQuery query = query("");
+        query.setSize(2);
+        query.setPage(2);
+        SearchResult result = index.search(query);
+
+        assertEquals(Integer.valueOf(5), result.getTotal());
+        assertEquals(Arrays.asList("Zak\u0142ady"), search(query));
+
+        query.setPage(3);
+        assertEquals(Integer.valueOf(5), index.search(query).getTotal());
+        assertTrue(search(query).isEmpty());
+
+        query = query("kult");
+        query.setSize(1);
+        query.setPage(1);
+        assertEquals(Integer.valueOf(3), index.search(query).getTotal());
+        assertEquals(Arrays.asList(LODZ), search(query));
+    }
+
+    /**
+     * This method tests filters by artist and by range of years, which
+     * entries of unknown year do not pass.
+     */
+    public void testFilters() {
+        SearchQuery query = query("");
+        query.setArtist("Lady Pank");
+        assertEquals(Integer.valueOf(2), index.search(query).getTotal());
+
+        query = query("");
+        query.setFromYear(1990);
+        query.setToYear(2005);
+        assertEquals(Arrays.asList("Lodowa kr\u00f3lowa", LODZ),
+                search(query));
+
+        query.setToYear(null);
+        assertEquals(Integer.valueOf(3), index.search(query).getTotal());
+
+        query.setFromYear(null);
+        query.setToYear(1995);
+        assertEquals(Integer.valueOf(2), index.search(query).getTotal());
+    }
+
+    /**
+     * This method tests that text is split on characters other than letters
+     * and digits, and tokens are folded.
+     */
+    public void testTokenize() {
+        assertEquals(Arrays.asList("lodz", "2026", "b", "side"),
+                SearchIndex.tokenize("  \u0141\u00f3d\u017a (2026) B-Side!"));
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+        assertTrue(SearchIndex.tokenize(" - ").isEmpty());
+    }
+}
@@ -3,7 +3,7 @@ var movies = [];
 jQuery.getJSON("../../nagrania/kazania/lib.json", function(data, textStatus) {
 	if (textStatus == "success") {
 		jQuery.each(data, function(key, value) {
-			if (key != "_comment") {
+			if (key.charAt(0) != "_") {
 				value.webdirectory = value["web-directory"];
 				delete value["web-directory"];			
 				movies.push(value);	
@@ -39,7 +39,7 @@ jQuery.getJSON("../../nagrania/kazania/lib.json", function(data, textStatus) {
       jQuery.getJSON("../../nagrania/kazania/lib.json", function(data, textStatus) {
         if (textStatus == "success") {
             jQuery.each(data, function(key, value) {
-                if (key != "_comment") {
+                if (key.charAt(0) != "_") {
                     jQuery.each(value, function(key, value) {
                         if (key == "artist") {
                             if (value != "") {